@@ -0,0 +1,55 @@
+package com.vision.paas.bladeauth.repository;
+
+import com.vision.paas.common.enums.SubscriptionPlan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads plans from the subscriptions table maintained by billing
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionRepository {
+    
+    private static final String ACTIVE_PLAN =
+            "SELECT plan_name FROM subscriptions"
+            + " WHERE user_id = ? AND status = 'active'"
+            + " AND (current_period_end IS NULL OR current_period_end > now())"
+            + " ORDER BY current_period_end DESC NULLS LAST LIMIT 1";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Plan of the user's active subscription
+     * @return Plan, FREE without an active subscription or if it cannot be read
+     */
+    public SubscriptionPlan findActivePlan(String userId) {
+        try {
+            // Untyped so the database matches the column, uuid or varchar
+            List<String> plans = jdbcTemplate.queryForList(ACTIVE_PLAN, String.class,
+                    new SqlParameterValue(Types.OTHER, userId));
+            return plans.isEmpty() || plans.get(0) == null ? SubscriptionPlan.FREE : toPlan(plans.get(0));
+        } catch (DataAccessException e) {
+            log.warn("Failed to read subscription of user {}, using the free plan", userId, e);
+            return SubscriptionPlan.FREE;
+        }
+    }
+    
+    private static SubscriptionPlan toPlan(String planName) {
+        try {
+            return SubscriptionPlan.valueOf(planName.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown subscription plan {}, using the free plan", planName);
+            return SubscriptionPlan.FREE;
+        }
+    }
+}
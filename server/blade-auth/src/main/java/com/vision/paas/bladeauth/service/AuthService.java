@@ -1,6 +1,7 @@
 package com.vision.paas.bladeauth.service;
 
 import com.vision.paas.bladeauth.entity.User;
+import com.vision.paas.bladeauth.repository.SubscriptionRepository;
 import com.vision.paas.bladeauth.repository.UserRepository;
 import com.vision.paas.common.exception.BusinessException;
 import com.vision.paas.common.util.IdGenerator;
@@ -28,9 +29,10 @@ import java.util.Map;
 public class AuthService {
     
     private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     
-    @Value("${jwt.secret:vision-paas-secret-key-change-in-production-please}")
+    @Value("${jwt.secret:vision-paas-jwt-secret-key-change-in-production}")
     private String jwtSecret;
     
     @Value("${jwt.expiration:86400000}") // 24 hours
@@ -124,6 +126,7 @@ public class AuthService {
                 .setSubject(user.getId())
                 .claim("email", user.getEmail())
                 .claim("name", user.getName())
+                .claim("plan", subscriptionRepository.findActivePlan(user.getId()).name())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -0,0 +1,100 @@
+package com.vision.paas.gateway.ratelimit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission throughput of one hot client's bucket shared by 1, 8 and 64 threads: the
+ * lock-free {@link TokenBucket} against the synchronized bucket RateLimitFilter used before.
+ * Both buckets are sized so they do not run dry within an iteration, so every call takes the
+ * admitting path. Run with {@code mvn -pl blade-gateway -am -Pjmh verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBucketBenchmark {
+    
+    private static final int[] THREADS = {1, 8, 64};
+    
+    private TokenBucket lockFree;
+    private SynchronizedBucket synchronizedBucket;
+    
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // Refilled completely every millisecond: more than the threads can take
+        lockFree = new TokenBucket(TokenBucket.MAX_CAPACITY, 1, LimiterStore.nowMillis());
+        synchronizedBucket = new SynchronizedBucket(Integer.MAX_VALUE);
+    }
+    
+    @Benchmark
+    public boolean lockFree() {
+        return lockFree.tryAcquire(LimiterStore.nowMillis());
+    }
+    
+    @Benchmark
+    public boolean synchronizedBucket() {
+        return synchronizedBucket.tryConsume();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder()
+                    .include(TokenBucketBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build())
+                    .run();
+        }
+    }
+    
+    /**
+     * RateLimitFilter's bucket before the lock-free one, kept here as the baseline
+     */
+    static class SynchronizedBucket {
+        private final int capacity;
+        private final AtomicInteger tokens;
+        private long lastRefillTime;
+        
+        SynchronizedBucket(int capacity) {
+            this.capacity = capacity;
+            this.tokens = new AtomicInteger(capacity);
+            this.lastRefillTime = System.currentTimeMillis();
+        }
+        
+        synchronized boolean tryConsume() {
+            refill();
+            if (tokens.get() > 0) {
+                tokens.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+        
+        private void refill() {
+            long now = System.currentTimeMillis();
+            long timePassed = now - lastRefillTime;
+            int tokensToAdd = (int) (timePassed / 1000);
+            if (tokensToAdd > 0) {
+                tokens.set(Math.min(capacity, tokens.get() + tokensToAdd));
+                lastRefillTime = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.vision.paas.gateway.auth;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Active API key, as resolved from its secret
+ * @param id Row ID in api_keys
+ * @param userId Owner
+ * @param scopes Granted scopes, e.g. read, write, deploy, admin
+ * @param expiresAt Null if the key does not expire
+ */
+public record ApiKey(
+        String id,
+        String userId,
+        Set<String> scopes,
+        Instant expiresAt) {
+    
+    /**
+     * Grants every scope
+     */
+    public static final String ADMIN_SCOPE = "admin";
+    
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+    
+    public boolean hasScope(String scope) {
+        return scopes.contains(scope) || scopes.contains(ADMIN_SCOPE);
+    }
+}
@@ -0,0 +1,57 @@
+package com.vision.paas.gateway.auth;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * API Key Configuration
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.api-key")
+public class ApiKeyProperties {
+    
+    /**
+     * Valid keys cached in process
+     */
+    private long cacheSize = 10000;
+    
+    /**
+     * Unknown keys remembered in process, apart from valid ones so guessing cannot evict them
+     */
+    private long invalidCacheSize = 100000;
+    
+    /**
+     * How long a resolved key is trusted in each cache level; a revoked key may keep working
+     * for up to twice this long
+     */
+    private Duration ttl = Duration.ofMinutes(1);
+    
+    /**
+     * How long an unknown key is rejected without a lookup
+     */
+    private Duration invalidTtl = Duration.ofSeconds(30);
+    
+    private String redisPrefix = "vision:apikey:";
+    
+    /**
+     * Redis calls slower than this are skipped in favour of the database
+     */
+    private Duration redisTimeout = Duration.ofMillis(100);
+    
+    /**
+     * How often last_used_at updates are written to the database
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+    
+    /**
+     * Scope a key needs to modify through a route, by route ID. Reads always need "read",
+     * modifications on other routes "write".
+     */
+    private Map<String, String> routeScopes = new HashMap<>();
+}
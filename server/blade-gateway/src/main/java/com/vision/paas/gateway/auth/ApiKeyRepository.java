@@ -0,0 +1,79 @@
+package com.vision.paas.gateway.auth;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * API Key Repository
+ * Blocking JDBC access to api_keys; call off the event loop.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ApiKeyRepository {
+    
+    private static final String FIND_ACTIVE =
+            "SELECT id, user_id, scopes, expires_at FROM api_keys WHERE api_key = ? AND is_active = true";
+    
+    // Never move last_used_at backwards when several gateways flush
+    private static final String UPDATE_LAST_USED =
+            "UPDATE api_keys SET last_used_at = ? WHERE id = ? AND (last_used_at IS NULL OR last_used_at < ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public Optional<ApiKey> findActive(String secret) {
+        return jdbcTemplate.query(FIND_ACTIVE, (rs, rowNum) -> map(rs), secret).stream().findFirst();
+    }
+    
+    /**
+     * Record key use in one batch
+     * @param lastUsed Time of last use by key ID
+     */
+    public void updateLastUsed(Map<String, Instant> lastUsed) {
+        List<Map.Entry<String, Instant>> entries = new ArrayList<>(lastUsed.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_LAST_USED, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Timestamp usedAt = Timestamp.from(entries.get(i).getValue());
+                ps.setTimestamp(1, usedAt);
+                // Untyped so the database matches the column, uuid or varchar
+                ps.setObject(2, entries.get(i).getKey(), Types.OTHER);
+                ps.setTimestamp(3, usedAt);
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+    
+    private static ApiKey map(ResultSet rs) throws SQLException {
+        Array scopes = rs.getArray("scopes");
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        return new ApiKey(
+                rs.getString("id"),
+                rs.getString("user_id"),
+                scopes != null ? Arrays.stream((String[]) scopes.getArray())
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toUnmodifiableSet()) : Set.of(),
+                expiresAt != null ? expiresAt.toInstant() : null);
+    }
+}
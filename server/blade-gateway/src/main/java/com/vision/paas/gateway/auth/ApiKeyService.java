@@ -0,0 +1,210 @@
+package com.vision.paas.gateway.auth;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API Key Service
+ * Resolves API key secrets through an in-process cache, then Redis shared by all gateway
+ * replicas, then the database. Unknown secrets are cached too, in a separate bounded cache,
+ * so guessing keys costs no lookups and cannot push valid keys out. Secrets are cached only
+ * by their SHA-256.
+ * <p>
+ * Key use is collected in memory and written to api_keys.last_used_at in one batch per
+ * flush interval instead of once per request.
+ */
+@Slf4j
+@Service
+public class ApiKeyService {
+    
+    /**
+     * Redis value of a secret that matches no active key
+     */
+    private static final String INVALID = "-";
+    
+    private static final String READ_SCOPE = "read";
+    private static final String WRITE_SCOPE = "write";
+    
+    private final ApiKeyRepository apiKeyRepository;
+    private final ReactiveStringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final ApiKeyProperties properties;
+    
+    private final Cache<String, ApiKey> validKeys;
+    private final Cache<String, Boolean> invalidKeys;
+    
+    /**
+     * Time of last use by key ID, not yet written
+     */
+    private final Map<String, Instant> lastUsed = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    
+    public ApiKeyService(ApiKeyRepository apiKeyRepository, ReactiveStringRedisTemplate redis,
+                         ObjectMapper objectMapper, ApiKeyProperties properties) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.validKeys = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+        this.invalidKeys = Caffeine.newBuilder()
+                .maximumSize(properties.getInvalidCacheSize())
+                .expireAfterWrite(properties.getInvalidTtl())
+                .build();
+    }
+    
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gateway-api-key-usage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+    
+    /**
+     * Key of a presented secret
+     * @return Key, or empty if the secret is unknown, or the key revoked or expired
+     */
+    public Mono<ApiKey> resolve(String secret) {
+        String hash = Hashing.sha256(secret);
+        ApiKey cached = validKeys.getIfPresent(hash);
+        if (cached != null) {
+            return usable(cached);
+        }
+        if (invalidKeys.getIfPresent(hash) != null) {
+            return Mono.empty();
+        }
+        
+        return fromRedis(hash)
+                .switchIfEmpty(Mono.defer(() -> fromDatabase(secret, hash)))
+                .doOnNext(result -> remember(hash, result))
+                .flatMap(result -> result.map(this::usable).orElseGet(Mono::empty));
+    }
+    
+    /**
+     * Scope a key needs for a request
+     * @param routeId Matched route, may be null
+     */
+    public String requiredScope(String routeId, HttpMethod method) {
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+            return READ_SCOPE;
+        }
+        String routeScope = routeId != null ? properties.getRouteScopes().get(routeId) : null;
+        return routeScope != null ? routeScope : WRITE_SCOPE;
+    }
+    
+    /**
+     * Record that a key was used now; written with the next flush
+     */
+    public void markUsed(ApiKey key) {
+        lastUsed.put(key.id(), Instant.now());
+    }
+    
+    /**
+     * Write collected key use in one batch; entries used again meanwhile stay for the next flush
+     */
+    void flush() {
+        if (lastUsed.isEmpty()) {
+            return;
+        }
+        Map<String, Instant> batch = new HashMap<>(lastUsed);
+        try {
+            apiKeyRepository.updateLastUsed(batch);
+            batch.forEach(lastUsed::remove);
+            log.debug("Recorded use of {} API keys", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to record API key use, retrying next flush: {}", e.getMessage());
+        }
+    }
+    
+    private Mono<ApiKey> usable(ApiKey key) {
+        return key.isExpired(Instant.now()) ? Mono.empty() : Mono.just(key);
+    }
+    
+    /**
+     * @return Cached result, or empty on a miss or if Redis is unavailable
+     */
+    private Mono<Optional<ApiKey>> fromRedis(String hash) {
+        return redis.opsForValue().get(properties.getRedisPrefix() + hash)
+                .timeout(properties.getRedisTimeout())
+                .map(value -> INVALID.equals(value) ? Optional.<ApiKey>empty() : Optional.of(readKey(value)))
+                .onErrorResume(e -> {
+                    log.debug("API key cache unavailable: {}", e.toString());
+                    return Mono.empty();
+                });
+    }
+    
+    private Mono<Optional<ApiKey>> fromDatabase(String secret, String hash) {
+        return Mono.fromCallable(() -> apiKeyRepository.findActive(secret))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(result -> share(hash, result));
+    }
+    
+    private void remember(String hash, Optional<ApiKey> result) {
+        if (result.isPresent()) {
+            validKeys.put(hash, result.get());
+        } else {
+            invalidKeys.put(hash, Boolean.TRUE);
+        }
+    }
+    
+    /**
+     * Publish a database result to the other replicas, without waiting for it
+     */
+    private void share(String hash, Optional<ApiKey> result) {
+        String value = result.map(this::writeKey).orElse(INVALID);
+        Duration ttl = result.isPresent() ? properties.getTtl() : properties.getInvalidTtl();
+        redis.opsForValue().set(properties.getRedisPrefix() + hash, value, ttl)
+                .timeout(properties.getRedisTimeout())
+                .subscribe(stored -> {
+                }, e -> log.debug("Failed to cache API key in Redis: {}", e.toString()));
+    }
+    
+    private ApiKey readKey(String json) {
+        try {
+            return objectMapper.readValue(json, ApiKey.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private String writeKey(ApiKey key) {
+        try {
+            return objectMapper.writeValueAsString(key);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
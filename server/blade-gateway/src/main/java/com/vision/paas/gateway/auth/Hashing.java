@@ -0,0 +1,27 @@
+package com.vision.paas.gateway.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Digests of credentials, used wherever a secret would otherwise be stored as a cache key
+ */
+public final class Hashing {
+    
+    private Hashing() {
+    }
+    
+    /**
+     * Hex SHA-256 of the UTF-8 bytes
+     */
+    public static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
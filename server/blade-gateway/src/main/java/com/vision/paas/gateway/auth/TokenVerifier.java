@@ -0,0 +1,114 @@
+package com.vision.paas.gateway.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token Verifier
+ * Verifies HS256 access tokens issued by blade-auth with a key derived once at startup.
+ * Verified tokens are cached by their SHA-256 until they expire, so a client's repeat
+ * requests skip the HMAC, Base64 decoding and JSON parsing. Only valid tokens are cached.
+ */
+@Slf4j
+@Component
+public class TokenVerifier {
+    
+    /**
+     * How long a token without an expiry claim stays cached
+     */
+    private static final long NO_EXPIRY_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    
+    private final JwtParser jwtParser;
+    private final Cache<String, VerifiedToken> verified;
+    
+    /**
+     * @param jwtSecret HS256 secret shared with blade-auth
+     * @param cacheSize Verified tokens kept at once
+     */
+    public TokenVerifier(@Value("${jwt.secret}") String jwtSecret,
+                         @Value("${gateway.auth.token-cache-size:50000}") long cacheSize) {
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+    
+    /**
+     * Verify signature and expiry
+     * @return Claims, or null if the token is not valid
+     */
+    public Claims verify(String token) {
+        String hash = Hashing.sha256(token);
+        VerifiedToken cached = verified.getIfPresent(hash);
+        if (cached != null) {
+            // The cache may hold an entry briefly past its expiry
+            if (cached.expiresAtMillis() > System.currentTimeMillis()) {
+                return cached.claims();
+            }
+            verified.invalidate(hash);
+            return null;
+        }
+        
+        Claims claims;
+        try {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Invalid JWT: {}", e.getMessage());
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ?
+                expiration.getTime() : System.currentTimeMillis() + NO_EXPIRY_TTL_MILLIS;
+        verified.put(hash, new VerifiedToken(claims, expiresAt));
+        return claims;
+    }
+    
+    public long cachedTokens() {
+        return verified.estimatedSize();
+    }
+    
+    /**
+     * @param claims Shared between requests, must not be modified
+     * @param expiresAtMillis Wall-clock time the token stops being valid
+     */
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+    
+    /**
+     * Drop a token when it expires
+     */
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            long millis = Math.max(0, token.expiresAtMillis() - System.currentTimeMillis());
+            return TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+        
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.vision.paas.gateway.filter;
 
+import com.vision.paas.common.constant.IdentityHeaders;
+import com.vision.paas.gateway.auth.ApiKey;
+import com.vision.paas.gateway.auth.ApiKeyService;
+import com.vision.paas.gateway.auth.TokenVerifier;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
@@ -11,15 +20,30 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Authentication Filter
- * Validates JWT tokens and API keys
+ * Validates JWT tokens and API keys, enforces API key scopes, and forwards the verified
+ * identity to services in {@link IdentityHeaders}. Identity headers sent by the client are
+ * always removed.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AuthenticationFilter implements GlobalFilter, Ordered {
     
+    /**
+     * Exchange attribute holding the verified JWT claims
+     */
+    public static final String CLAIMS_ATTRIBUTE = AuthenticationFilter.class.getName() + ".claims";
+    
+    /**
+     * Exchange attribute holding the resolved {@link ApiKey}
+     */
+    public static final String API_KEY_ATTRIBUTE = AuthenticationFilter.class.getName() + ".apiKey";
+    
     private static final List<String> EXCLUDED_PATHS = List.of(
             "/api/auth/login",
             "/api/auth/register",
@@ -28,38 +52,81 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
             "/actuator"
     );
     
+    private final TokenVerifier tokenVerifier;
+    private final ApiKeyService apiKeyService;
+    
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
+        // Only the gateway may assert an identity
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> IdentityHeaders.ALL.forEach(headers::remove))
+                .build();
+        ServerWebExchange stripped = exchange.mutate().request(request).build();
         String path = request.getURI().getPath();
         
         log.debug("Processing request: {} {}", request.getMethod(), path);
         
         // Skip authentication for excluded paths
         if (isExcludedPath(path)) {
-            return chain.filter(exchange);
+            return chain.filter(stripped);
         }
         
-        // Check for API Key
+        // Check for API Key, falling back to the JWT if it is not valid
         String apiKey = request.getHeaders().getFirst("X-API-Key");
-        if (apiKey != null && validateApiKey(apiKey)) {
-            log.debug("Valid API key authentication");
-            return chain.filter(exchange);
+        if (apiKey != null) {
+            return apiKeyService.resolve(apiKey)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(key -> key.isPresent() ?
+                            authorize(stripped, chain, key.get()) : authenticateJwt(stripped, chain));
+        }
+        return authenticateJwt(stripped, chain);
+    }
+    
+    /**
+     * Admit an API key request if the key has the scope the route and method need
+     */
+    private Mono<Void> authorize(ServerWebExchange exchange, GatewayFilterChain chain, ApiKey key) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String scope = apiKeyService.requiredScope(route != null ? route.getId() : null,
+                exchange.getRequest().getMethod());
+        if (!key.hasScope(scope)) {
+            log.warn("API key {} lacks scope {} for: {}", key.id(), scope, exchange.getRequest().getURI().getPath());
+            return reject(exchange, HttpStatus.FORBIDDEN);
         }
         
-        // Check for JWT Token
-        String authHeader = request.getHeaders().getFirst("Authorization");
+        log.debug("Valid API key authentication");
+        apiKeyService.markUsed(key);
+        exchange.getAttributes().put(API_KEY_ATTRIBUTE, key);
+        return chain.filter(withIdentity(exchange, headers -> {
+            setIfPresent(headers, IdentityHeaders.USER_ID, key.userId());
+            setIfPresent(headers, IdentityHeaders.API_KEY_ID, key.id());
+        }));
+    }
+    
+    private Mono<Void> authenticateJwt(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String authHeader = exchange.getRequest().getHeaders().getFirst("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (validateJwtToken(token)) {
+            Claims claims = tokenVerifier.verify(token);
+            if (claims != null) {
                 log.debug("Valid JWT authentication");
-                return chain.filter(exchange);
+                exchange.getAttributes().put(CLAIMS_ATTRIBUTE, claims);
+                return chain.filter(withIdentity(exchange, headers -> {
+                    setIfPresent(headers, IdentityHeaders.USER_ID, claims.getSubject());
+                    setIfPresent(headers, IdentityHeaders.EMAIL, claims.get("email"));
+                    setIfPresent(headers, IdentityHeaders.PLAN, claims.get("plan"));
+                }));
             }
         }
         
         // No valid authentication found
-        log.warn("Unauthorized request to: {}", path);
-        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        log.warn("Unauthorized request to: {}", exchange.getRequest().getURI().getPath());
+        return reject(exchange, HttpStatus.UNAUTHORIZED);
+    }
+    
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
         return exchange.getResponse().setComplete();
     }
     
@@ -67,14 +134,17 @@ public class AuthenticationFilter implements GlobalFilter, Ordered {
         return EXCLUDED_PATHS.stream().anyMatch(path::startsWith);
     }
     
-    private boolean validateApiKey(String apiKey) {
-        // TODO: Implement API key validation with vision-user service
-        return apiKey.startsWith("vp_");
+    private ServerWebExchange withIdentity(ServerWebExchange exchange, Consumer<HttpHeaders> identity) {
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(identity)
+                .build();
+        return exchange.mutate().request(request).build();
     }
     
-    private boolean validateJwtToken(String token) {
-        // TODO: Implement JWT validation with blade-auth service
-        return token != null && !token.isEmpty();
+    private static void setIfPresent(HttpHeaders headers, String name, Object value) {
+        if (value != null) {
+            headers.set(name, value.toString());
+        }
     }
     
     @Override
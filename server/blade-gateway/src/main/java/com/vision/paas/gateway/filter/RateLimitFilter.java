@@ -1,52 +1,162 @@
 package com.vision.paas.gateway.filter;
 
+import com.vision.paas.common.enums.SubscriptionPlan;
+import com.vision.paas.gateway.auth.ApiKey;
+import com.vision.paas.gateway.auth.Hashing;
+import com.vision.paas.gateway.ratelimit.Decision;
+import com.vision.paas.gateway.ratelimit.DistributedLimiter;
+import com.vision.paas.gateway.ratelimit.LimiterStore;
+import com.vision.paas.gateway.ratelimit.RateLimit;
+import com.vision.paas.gateway.ratelimit.RateLimitProperties;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Rate Limiting Filter
- * Implements token bucket algorithm for rate limiting
+ * Applies the policy of the matched route and the client's subscription plan, and reports
+ * the client's allowance in X-RateLimit-Limit, X-RateLimit-Remaining and X-RateLimit-Reset
+ * (seconds until the full allowance is back). With distributed limiting enabled the allowance
+ * is shared by all gateway replicas through Redis, and kept per replica while Redis is down.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class RateLimitFilter implements GlobalFilter, Ordered {
     
-    private final ConcurrentHashMap<String, RateLimitBucket> buckets = new ConcurrentHashMap<>();
+    private static final String DEFAULT_POLICY = "*";
     
-    private static final int MAX_REQUESTS_PER_MINUTE = 60;
+    private final RateLimitProperties properties;
+    private final LimiterStore limiters;
+    private final DistributedLimiter distributedLimiter;
+    
+    /**
+     * Resolved policies by policy key and plan
+     */
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+    
+    /**
+     * Fail at startup rather than on the first request when a policy is incomplete or out of range
+     */
+    @PostConstruct
+    public void validate() {
+        for (String routeId : properties.getRoutes().keySet()) {
+            validate(routeId);
+        }
+        validate(null);
+    }
+    
+    private void validate(String routeId) {
+        List<SubscriptionPlan> plans = new ArrayList<>(List.of(SubscriptionPlan.values()));
+        plans.add(null);
+        for (SubscriptionPlan plan : plans) {
+            RateLimit rateLimit = RateLimit.resolve(properties, routeId, plan);
+            if (!rateLimit.isUnlimited()) {
+                rateLimit.newLimiter(LimiterStore.nowMillis());
+            }
+        }
+    }
     
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        String clientId = getClientId(exchange);
+        String policyKey = getPolicyKey(exchange);
+        SubscriptionPlan plan = getPlan(exchange);
+        RateLimit rateLimit = rateLimits.computeIfAbsent(policyKey + "|" + plan, k ->
+                RateLimit.resolve(properties, DEFAULT_POLICY.equals(policyKey) ? null : policyKey, plan));
+        if (rateLimit.isUnlimited()) {
+            return chain.filter(exchange);
+        }
         
-        RateLimitBucket bucket = buckets.computeIfAbsent(clientId, 
-                k -> new RateLimitBucket(MAX_REQUESTS_PER_MINUTE));
+        String clientId = getClientId(exchange);
+        String key = policyKey + "|" + plan + "|" + clientId;
+        Mono<Decision> decision = distributedLimiter.isEnabled() ?
+                distributedLimiter.tryAcquire(key, rateLimit)
+                        .switchIfEmpty(Mono.fromSupplier(() -> acquireLocally(key, rateLimit))) :
+                Mono.just(acquireLocally(key, rateLimit));
         
-        if (bucket.tryConsume()) {
-            log.debug("Request allowed for client: {}", clientId);
-            return chain.filter(exchange);
-        } else {
-            log.warn("Rate limit exceeded for client: {}", clientId);
-            exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-            return exchange.getResponse().setComplete();
+        return decision.flatMap(result -> {
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            headers.set("X-RateLimit-Limit", String.valueOf(rateLimit.limit()));
+            headers.set("X-RateLimit-Remaining", String.valueOf(result.remaining()));
+            headers.set("X-RateLimit-Reset", String.valueOf(toSeconds(result.millisUntilReset())));
+            
+            if (result.allowed()) {
+                log.debug("Request allowed for client: {}", clientId);
+                return chain.filter(exchange);
+            } else {
+                log.warn("Rate limit exceeded for client: {} on {}", clientId, policyKey);
+                headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(result.millisUntilNext())));
+                exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                return exchange.getResponse().setComplete();
+            }
+        });
+    }
+    
+    /**
+     * Limit on this replica alone; also the fallback while Redis is unavailable
+     */
+    private Decision acquireLocally(String key, RateLimit rateLimit) {
+        long now = LimiterStore.nowMillis();
+        return Decision.acquire(limiters.get(key, () -> rateLimit.newLimiter(now)), now);
+    }
+    
+    /**
+     * Matched route if it has a policy of its own, otherwise the shared default
+     */
+    private String getPolicyKey(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null && properties.getRoutes().containsKey(route.getId()) ? route.getId() : DEFAULT_POLICY;
+    }
+    
+    /**
+     * Plan from the verified JWT, null for API keys and anonymous requests
+     */
+    private SubscriptionPlan getPlan(ServerWebExchange exchange) {
+        Claims claims = exchange.getAttribute(AuthenticationFilter.CLAIMS_ATTRIBUTE);
+        Object plan = claims != null ? claims.get(properties.getPlanClaim()) : null;
+        if (plan == null) {
+            return null;
+        }
+        try {
+            return SubscriptionPlan.valueOf(plan.toString().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
     
     private String getClientId(ServerWebExchange exchange) {
-        // Use API key if available, otherwise use IP address
+        // Use the authenticated user if any, then the API key, otherwise the IP address
+        Claims claims = exchange.getAttribute(AuthenticationFilter.CLAIMS_ATTRIBUTE);
+        if (claims != null && claims.getSubject() != null) {
+            return "user:" + claims.getSubject();
+        }
+        
+        ApiKey key = exchange.getAttribute(AuthenticationFilter.API_KEY_ATTRIBUTE);
+        if (key != null) {
+            return "key:" + key.id();
+        }
+        
         String apiKey = exchange.getRequest().getHeaders().getFirst("X-API-Key");
         if (apiKey != null) {
-            return apiKey;
+            // Keys may end up in Redis, so never use the secret itself
+            return "key:" + Hashing.sha256(apiKey);
         }
         
         String clientIp = exchange.getRequest().getRemoteAddress() != null ?
@@ -54,45 +164,12 @@ public class RateLimitFilter implements GlobalFilter, Ordered {
         return clientIp;
     }
     
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+    
     @Override
     public int getOrder() {
         return -50;
     }
-    
-    /**
-     * Simple token bucket implementation
-     */
-    private static class RateLimitBucket {
-        private final int capacity;
-        private final AtomicInteger tokens;
-        private long lastRefillTime;
-        
-        public RateLimitBucket(int capacity) {
-            this.capacity = capacity;
-            this.tokens = new AtomicInteger(capacity);
-            this.lastRefillTime = System.currentTimeMillis();
-        }
-        
-        public synchronized boolean tryConsume() {
-            refill();
-            if (tokens.get() > 0) {
-                tokens.decrementAndGet();
-                return true;
-            }
-            return false;
-        }
-        
-        private void refill() {
-            long now = System.currentTimeMillis();
-            long timePassed = now - lastRefillTime;
-            
-            // Refill 1 token per second
-            int tokensToAdd = (int) (timePassed / 1000);
-            if (tokensToAdd > 0) {
-                int newTokens = Math.min(capacity, tokens.get() + tokensToAdd);
-                tokens.set(newTokens);
-                lastRefillTime = now;
-            }
-        }
-    }
 }
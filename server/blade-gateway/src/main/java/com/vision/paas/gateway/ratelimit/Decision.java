@@ -0,0 +1,23 @@
+package com.vision.paas.gateway.ratelimit;
+
+/**
+ * Outcome of one admission check, with the client's allowance after it
+ * @param remaining Requests that would be admitted right now
+ * @param millisUntilNext Time until one more request will be admitted
+ * @param millisUntilReset Time until the full allowance is available again
+ */
+public record Decision(
+        boolean allowed,
+        long remaining,
+        long millisUntilNext,
+        long millisUntilReset) {
+    
+    /**
+     * Admit one request through a local limiter
+     */
+    public static Decision acquire(Limiter limiter, long nowMillis) {
+        boolean allowed = limiter.tryAcquire(nowMillis);
+        return new Decision(allowed, limiter.remaining(nowMillis),
+                limiter.millisUntilNext(nowMillis), limiter.millisUntilReset(nowMillis));
+    }
+}
@@ -0,0 +1,180 @@
+package com.vision.paas.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributed Limiter
+ * Keeps allowances in Redis, shared by all gateway replicas. Each replica reserves a small
+ * lease of admissions per Redis round trip with an atomic script, and admits from the lease
+ * locally until it runs out or goes stale, so the hot path reaches Redis only every few
+ * requests. A denial is remembered until Redis said the next admission is due, so a client
+ * hammering a spent allowance costs no round trips either.
+ * <p>
+ * When Redis is unreachable or slow the limiter reports no decision and the caller falls back
+ * to its local limiters; Redis is retried after the configured interval.
+ */
+@Slf4j
+@Component
+public class DistributedLimiter {
+    
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET =
+            RedisScript.of(new ClassPathResource("scripts/ratelimit/token_bucket.lua"), List.class);
+    
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SLIDING_WINDOW_LOG =
+            RedisScript.of(new ClassPathResource("scripts/ratelimit/sliding_window_log.lua"), List.class);
+    
+    /**
+     * Dropping a lease costs at most one extra round trip, so idle ones need not stay long
+     */
+    private static final Duration LEASE_IDLE = Duration.ofMinutes(1);
+    
+    private final ReactiveStringRedisTemplate redis;
+    private final RateLimitProperties.Distributed properties;
+    private final Cache<String, Lease> leases;
+    
+    /**
+     * Makes sliding window members unique across replicas and calls
+     */
+    private final String replicaId = UUID.randomUUID().toString();
+    private final AtomicLong calls = new AtomicLong();
+    
+    /**
+     * Monotonic time before which Redis is not tried, after a failure
+     */
+    private volatile long unavailableUntil;
+    
+    public DistributedLimiter(ReactiveStringRedisTemplate redis, RateLimitProperties properties) {
+        this.redis = redis;
+        this.properties = properties.getDistributed();
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfterAccess(LEASE_IDLE)
+                .build();
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    /**
+     * Admit one request against the cluster-wide allowance of a key
+     * @return Decision, or empty if Redis cannot be used and the caller should limit locally
+     */
+    public Mono<Decision> tryAcquire(String key, RateLimit rateLimit) {
+        long now = LimiterStore.nowMillis();
+        Lease lease = leases.get(key, k -> new Lease());
+        Decision local = lease.tryTake(now);
+        if (local != null) {
+            return Mono.just(local);
+        }
+        if (now < unavailableUntil) {
+            return Mono.empty();
+        }
+        
+        return reserve(key, rateLimit)
+                .timeout(properties.getTimeout())
+                .map(reply -> lease.grant(reply, LimiterStore.nowMillis(), properties.getLeaseTtl().toMillis()))
+                .doOnNext(decision -> unavailableUntil = 0)
+                .onErrorResume(e -> {
+                    markUnavailable(e);
+                    return Mono.empty();
+                });
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Mono<long[]> reserve(String key, RateLimit rateLimit) {
+        String leaseSize = String.valueOf(leaseSize(rateLimit));
+        List<String> keys = List.of(properties.getKeyPrefix() + key);
+        List<String> args = switch (rateLimit.algorithm()) {
+            case TOKEN_BUCKET -> List.of(String.valueOf(rateLimit.capacity()),
+                    String.valueOf(rateLimit.refillMillis()), leaseSize);
+            case SLIDING_WINDOW_LOG -> List.of(String.valueOf(rateLimit.limit()),
+                    String.valueOf(rateLimit.periodMillis()), leaseSize,
+                    replicaId + ":" + calls.incrementAndGet());
+        };
+        RedisScript<List> script = rateLimit.algorithm() == RateLimitProperties.Algorithm.TOKEN_BUCKET ?
+                TOKEN_BUCKET : SLIDING_WINDOW_LOG;
+        return redis.execute(script, keys, args)
+                .next()
+                .map(reply -> ((List<Object>) reply).stream()
+                        .mapToLong(value -> ((Number) value).longValue())
+                        .toArray());
+    }
+    
+    /**
+     * A twentieth of the limit within [1, lease-size]: admissions reserved but never used are
+     * lost to the client, so a replica must not sit on a large share of a small allowance
+     */
+    private int leaseSize(RateLimit rateLimit) {
+        return Math.max(1, Math.min(properties.getLeaseSize(), rateLimit.limit() / 20));
+    }
+    
+    private void markUnavailable(Throwable e) {
+        if (unavailableUntil == 0) {
+            log.warn("Redis rate limiting unavailable, limiting per replica for {}: {}",
+                    properties.getRetryInterval(), e.toString());
+        }
+        unavailableUntil = LimiterStore.nowMillis() + properties.getRetryInterval().toMillis();
+    }
+    
+    /**
+     * Admissions this replica reserved for one key, and what Redis last said about the rest
+     */
+    private static final class Lease {
+        private int tokens;
+        private long expiresAt;
+        private long deniedUntil;
+        private long remaining;
+        private long resetAt;
+        
+        /**
+         * Decide without Redis: admit from the lease, or deny while the last denial holds
+         * @return Decision, or null if Redis must be asked
+         */
+        synchronized Decision tryTake(long now) {
+            if (tokens > 0 && now < expiresAt) {
+                tokens--;
+                return new Decision(true, remaining + tokens, 0, Math.max(0, resetAt - now));
+            }
+            if (now < deniedUntil) {
+                return new Decision(false, 0, deniedUntil - now, Math.max(0, resetAt - now));
+            }
+            return null;
+        }
+        
+        /**
+         * Take a reply of the script into the lease and decide the request that asked for it
+         * @param reply granted, left, ms until next, ms until reset
+         */
+        synchronized Decision grant(long[] reply, long now, long ttlMillis) {
+            if (now >= expiresAt) {
+                tokens = 0;
+            }
+            tokens += (int) reply[0];
+            expiresAt = now + ttlMillis;
+            remaining = reply[1];
+            resetAt = now + reply[3];
+            if (tokens > 0) {
+                tokens--;
+                deniedUntil = 0;
+                return new Decision(true, remaining + tokens, 0, reply[3]);
+            }
+            deniedUntil = now + reply[2];
+            return new Decision(false, 0, reply[2], reply[3]);
+        }
+    }
+}
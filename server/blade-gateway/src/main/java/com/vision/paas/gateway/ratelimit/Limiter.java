@@ -0,0 +1,33 @@
+package com.vision.paas.gateway.ratelimit;
+
+/**
+ * Admission state of one client under one rate limit.
+ * All times are on the monotonic millisecond clock of {@link LimiterStore#nowMillis()}.
+ */
+public interface Limiter {
+    
+    /**
+     * Admit one request if the limit allows it
+     */
+    boolean tryAcquire(long nowMillis);
+    
+    /**
+     * Requests that would be admitted right now
+     */
+    long remaining(long nowMillis);
+    
+    /**
+     * Time until one more request will be admitted, 0 if one would be admitted now
+     */
+    long millisUntilNext(long nowMillis);
+    
+    /**
+     * Time until the full allowance is available again
+     */
+    long millisUntilReset(long nowMillis);
+    
+    /**
+     * Time after its last use at which the limiter is back in its initial state and can be dropped
+     */
+    long idleMillis();
+}
@@ -0,0 +1,68 @@
+package com.vision.paas.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limiter Store
+ * Limiters per client and policy, bounded in size. A limiter left alone for its idle time is
+ * back in its initial state, i.e. indistinguishable from a new one, so it expires then without
+ * changing any outcome; only when more clients are active at once than the bound does
+ * eviction reset a limiter early.
+ */
+@Component
+public class LimiterStore {
+    
+    private final Cache<String, Limiter> limiters;
+    
+    public LimiterStore(RateLimitProperties properties) {
+        this.limiters = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfter(new IdleExpiry())
+                .build();
+    }
+    
+    /**
+     * Limiter of a key, created on first use
+     */
+    public Limiter get(String key, Supplier<Limiter> factory) {
+        return limiters.get(key, k -> factory.get());
+    }
+    
+    public long size() {
+        return limiters.estimatedSize();
+    }
+    
+    /**
+     * Monotonic clock the limiters run on
+     */
+    public static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+    
+    /**
+     * Expire a limiter its idle time after it was last used
+     */
+    private static class IdleExpiry implements Expiry<String, Limiter> {
+        
+        @Override
+        public long expireAfterCreate(String key, Limiter limiter, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(limiter.idleMillis());
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, Limiter limiter, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(limiter.idleMillis());
+        }
+        
+        @Override
+        public long expireAfterRead(String key, Limiter limiter, long currentTime, long currentDuration) {
+            return TimeUnit.MILLISECONDS.toNanos(limiter.idleMillis());
+        }
+    }
+}
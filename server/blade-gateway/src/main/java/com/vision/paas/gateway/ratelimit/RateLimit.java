@@ -0,0 +1,94 @@
+package com.vision.paas.gateway.ratelimit;
+
+import com.vision.paas.common.enums.SubscriptionPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Effective rate limit of a route for a plan, with inheritance resolved
+ * @param limit Requests per period, -1 for no limit
+ * @param burst Extra requests a token bucket admits at once
+ */
+public record RateLimit(
+        RateLimitProperties.Algorithm algorithm,
+        int limit,
+        long periodMillis,
+        int burst) {
+    
+    /**
+     * @param routeId Route with a policy of its own, or null for the defaults
+     * @param plan Client's plan, or null when unknown
+     * @throws IllegalStateException if a field is set nowhere along the chain
+     */
+    public static RateLimit resolve(RateLimitProperties properties, String routeId, SubscriptionPlan plan) {
+        List<RateLimitProperties.Policy> chain = new ArrayList<>();
+        addWithPlan(chain, properties.getDefaults(), plan);
+        if (routeId != null) {
+            addWithPlan(chain, properties.getRoutes().get(routeId), plan);
+        }
+        
+        RateLimitProperties.Algorithm algorithm = null;
+        Integer limit = null;
+        Long periodMillis = null;
+        Integer burst = null;
+        for (RateLimitProperties.Policy policy : chain) {
+            if (policy.getAlgorithm() != null) {
+                algorithm = policy.getAlgorithm();
+            }
+            if (policy.getLimit() != null) {
+                limit = policy.getLimit();
+            }
+            if (policy.getPeriod() != null) {
+                periodMillis = policy.getPeriod().toMillis();
+            }
+            if (policy.getBurst() != null) {
+                burst = policy.getBurst();
+            }
+        }
+        if (algorithm == null || limit == null || periodMillis == null) {
+            throw new IllegalStateException("Incomplete rate limit policy for route " + routeId + ", plan " + plan);
+        }
+        return new RateLimit(algorithm, limit, periodMillis, burst != null ? burst : 0);
+    }
+    
+    private static void addWithPlan(List<RateLimitProperties.Policy> chain, RateLimitProperties.Policy policy,
+                                    SubscriptionPlan plan) {
+        if (policy == null) {
+            return;
+        }
+        chain.add(policy);
+        if (plan != null && policy.getPlans().containsKey(plan)) {
+            chain.add(policy.getPlans().get(plan));
+        }
+    }
+    
+    public boolean isUnlimited() {
+        return limit < 0;
+    }
+    
+    /**
+     * Fresh limiter with the full allowance
+     * @throws IllegalArgumentException if the limit does not fit the algorithm
+     */
+    public Limiter newLimiter(long nowMillis) {
+        return switch (algorithm) {
+            case TOKEN_BUCKET -> new TokenBucket(capacity(), refillMillis(), nowMillis);
+            case SLIDING_WINDOW_LOG -> new SlidingWindowLog(limit, periodMillis);
+        };
+    }
+    
+    /**
+     * Requests admitted at once: limit + burst for a token bucket, limit for a sliding window
+     */
+    public int capacity() {
+        return algorithm == RateLimitProperties.Algorithm.TOKEN_BUCKET ? limit + burst : limit;
+    }
+    
+    /**
+     * Time for a token bucket to refill from empty to full, at limit per period
+     */
+    public long refillMillis() {
+        return Math.max(1, periodMillis * capacity() / Math.max(1, limit));
+    }
+}
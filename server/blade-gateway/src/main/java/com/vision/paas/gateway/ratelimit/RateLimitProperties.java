@@ -0,0 +1,120 @@
+package com.vision.paas.gateway.ratelimit;
+
+import com.vision.paas.common.enums.SubscriptionPlan;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate Limit Configuration
+ * Policies by route ID and subscription plan. A policy's unset fields are inherited, from
+ * lowest to highest precedence: defaults, defaults.plans, the route's policy, the route's plans.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+    
+    /**
+     * Limiters kept at once; idle ones expire when they are back to a full allowance
+     */
+    private long maxBuckets = 100000;
+    
+    /**
+     * JWT claim holding the subscription plan
+     */
+    private String planClaim = "plan";
+    
+    /**
+     * Policy of routes without one of their own; those routes share one allowance per client
+     */
+    private Policy defaults = Policy.of(Algorithm.TOKEN_BUCKET, 60, Duration.ofMinutes(1), 0);
+    
+    /**
+     * Policies by route ID, each with an allowance per client of its own
+     */
+    private Map<String, Policy> routes = new HashMap<>();
+    
+    /**
+     * Sharing of allowances across gateway replicas
+     */
+    private Distributed distributed = new Distributed();
+    
+    public enum Algorithm {
+        /**
+         * Refills continuously at limit per period and admits up to limit + burst at once
+         */
+        TOKEN_BUCKET,
+        
+        /**
+         * At most limit requests in any window of one period; burst does not apply
+         */
+        SLIDING_WINDOW_LOG
+    }
+    
+    @Data
+    public static class Policy {
+        private Algorithm algorithm;
+        
+        /**
+         * Requests per period, -1 for no limit
+         */
+        private Integer limit;
+        
+        private Duration period;
+        
+        /**
+         * Requests a token bucket admits above the limit in a spike
+         */
+        private Integer burst;
+        
+        /**
+         * Overrides by subscription plan
+         */
+        private Map<SubscriptionPlan, Policy> plans = new HashMap<>();
+        
+        static Policy of(Algorithm algorithm, int limit, Duration period, int burst) {
+            Policy policy = new Policy();
+            policy.setAlgorithm(algorithm);
+            policy.setLimit(limit);
+            policy.setPeriod(period);
+            policy.setBurst(burst);
+            return policy;
+        }
+    }
+    
+    @Data
+    public static class Distributed {
+        /**
+         * Keep allowances in Redis so a client gets the limit once, not once per replica
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Most admissions a replica reserves per Redis round trip. The lease of a policy is
+         * a twentieth of its limit within [1, lease-size], so small limits stay exact.
+         */
+        private int leaseSize = 10;
+        
+        /**
+         * Reserved admissions left unused this long are dropped rather than admitted late
+         */
+        private Duration leaseTtl = Duration.ofSeconds(1);
+        
+        /**
+         * Redis calls slower than this count as failed
+         */
+        private Duration timeout = Duration.ofMillis(100);
+        
+        /**
+         * After a failed call, limit with the local limiters this long before trying Redis again
+         */
+        private Duration retryInterval = Duration.ofSeconds(5);
+        
+        private String keyPrefix = "vision:ratelimit:";
+    }
+}
@@ -0,0 +1,80 @@
+package com.vision.paas.gateway.ratelimit;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window log
+ * Admits at most limit requests in any window of the given length. The log is a ring of
+ * the last limit admission times, oldest at the head: a request is admitted exactly when
+ * the oldest logged admission has left the window. Precise at the cost of one long per
+ * allowed request, so meant for small limits on expensive routes.
+ */
+public final class SlidingWindowLog implements Limiter {
+    
+    /**
+     * Largest limit a log is created for
+     */
+    public static final int MAX_LIMIT = 10_000;
+    
+    private final long windowMillis;
+    private final long[] admissions;
+    private int head;
+    
+    public SlidingWindowLog(int limit, long windowMillis) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ": " + limit);
+        }
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("Window must be positive: " + windowMillis);
+        }
+        this.windowMillis = windowMillis;
+        this.admissions = new long[limit];
+        // Entries that left every window long ago
+        Arrays.fill(admissions, Long.MIN_VALUE / 2);
+    }
+    
+    @Override
+    public synchronized boolean tryAcquire(long nowMillis) {
+        if (admissions[head] > nowMillis - windowMillis) {
+            return false;
+        }
+        admissions[head] = nowMillis;
+        head = (head + 1) % admissions.length;
+        return true;
+    }
+    
+    /**
+     * Entries outside the window, found by binary search over the ring in time order
+     */
+    @Override
+    public synchronized long remaining(long nowMillis) {
+        long windowStart = nowMillis - windowMillis;
+        int low = 0;
+        int high = admissions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (admissions[(head + mid) % admissions.length] <= windowStart) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    @Override
+    public synchronized long millisUntilNext(long nowMillis) {
+        return Math.max(0, admissions[head] + windowMillis - nowMillis);
+    }
+    
+    @Override
+    public synchronized long millisUntilReset(long nowMillis) {
+        int newest = (head + admissions.length - 1) % admissions.length;
+        return Math.max(0, admissions[newest] + windowMillis - nowMillis);
+    }
+    
+    @Override
+    public long idleMillis() {
+        return windowMillis;
+    }
+}
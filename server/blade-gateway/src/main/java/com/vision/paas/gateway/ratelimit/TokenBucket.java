@@ -0,0 +1,141 @@
+package com.vision.paas.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket
+ * Tokens and the refill timestamp are packed into one long and updated with CAS, so
+ * concurrent requests on Netty event-loop threads never block each other. Tokens are
+ * kept in 1/256ths and refill continuously. Refill is counted on a fixed grid from the
+ * bucket's creation, so the fraction of a unit earned between updates carries over
+ * exactly: frequent updates neither lose refill to rounding nor count time twice.
+ * <p>
+ * Layout: upper 24 bits token units, lower 40 bits milliseconds since the bucket was created.
+ */
+public final class TokenBucket implements Limiter {
+    
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int SCALE_BITS = 8;
+    private static final long UNIT = 1L << SCALE_BITS;
+    
+    /**
+     * Largest capacity the token field can hold
+     */
+    public static final long MAX_CAPACITY = ((1L << (Long.SIZE - TIME_BITS)) - 1) >> SCALE_BITS;
+    
+    private final long capacityUnits;
+    private final long periodMillis;
+    private final long epochMillis;
+    private final AtomicLong state;
+    
+    /**
+     * Full bucket
+     * @param capacity Burst size, at most {@link #MAX_CAPACITY}
+     * @param periodMillis Time to refill from empty to full
+     * @param nowMillis Current time on a monotonic millisecond clock
+     */
+    public TokenBucket(long capacity, long periodMillis, long nowMillis) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        if (periodMillis < 1 || periodMillis > Long.MAX_VALUE / 2 / (capacity << SCALE_BITS)) {
+            throw new IllegalArgumentException("Refill period out of range: " + periodMillis);
+        }
+        this.capacityUnits = capacity << SCALE_BITS;
+        this.periodMillis = periodMillis;
+        this.epochMillis = nowMillis;
+        this.state = new AtomicLong(capacityUnits << TIME_BITS);
+    }
+    
+    /**
+     * Take one token if available
+     * @param nowMillis Current time on the clock the bucket was created with
+     */
+    @Override
+    public boolean tryAcquire(long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis) & TIME_MASK;
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, now);
+            long units = refilled >>> TIME_BITS;
+            if (units < UNIT) {
+                return false;
+            }
+            if (state.compareAndSet(current, refilled - (UNIT << TIME_BITS))) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Whole tokens available right now
+     */
+    @Override
+    public long remaining(long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis) & TIME_MASK;
+        return (refill(state.get(), now) >>> TIME_BITS) >> SCALE_BITS;
+    }
+    
+    @Override
+    public long millisUntilNext(long nowMillis) {
+        return millisUntilUnits(nowMillis, UNIT);
+    }
+    
+    @Override
+    public long millisUntilReset(long nowMillis) {
+        return millisUntilUnits(nowMillis, capacityUnits);
+    }
+    
+    /**
+     * The bucket is full one refill period after its last use
+     */
+    @Override
+    public long idleMillis() {
+        return periodMillis;
+    }
+    
+    /**
+     * Time until the bucket holds at least the given units
+     */
+    private long millisUntilUnits(long nowMillis, long targetUnits) {
+        long now = Math.max(0, nowMillis - epochMillis) & TIME_MASK;
+        long refilled = refill(state.get(), now);
+        long missing = targetUnits - (refilled >>> TIME_BITS);
+        if (missing <= 0) {
+            return 0;
+        }
+        long stamp = refilled & TIME_MASK;
+        long needed = missing * periodMillis - carried(stamp);
+        long ready = stamp + (needed + capacityUnits - 1) / capacityUnits;
+        return Math.max(0, ready - now);
+    }
+    
+    /**
+     * State with the refill up to now applied
+     */
+    private long refill(long current, long now) {
+        long units = current >>> TIME_BITS;
+        long last = current & TIME_MASK;
+        long elapsed = now - last;
+        if (elapsed <= 0) {
+            return current;
+        }
+        if (elapsed >= periodMillis) {
+            return capacityUnits << TIME_BITS | now;
+        }
+        long added = (carried(last) + elapsed * capacityUnits) / periodMillis;
+        if (units + added >= capacityUnits) {
+            return capacityUnits << TIME_BITS | now;
+        }
+        return (units + added) << TIME_BITS | now;
+    }
+    
+    /**
+     * Progress towards the next unit at a point in time, scaled by the period: refill follows
+     * floor(t * capacity / period) from the bucket's creation, however often the state changes
+     */
+    private long carried(long time) {
+        return time % periodMillis * capacityUnits % periodMillis;
+    }
+}
@@ -0,0 +1,37 @@
+-- Reserve up to ARGV[3] admissions from a sliding window log, atomically.
+-- KEYS[1]  sorted set of admissions scored by time
+-- ARGV[1]  limit per window
+-- ARGV[2]  window in milliseconds
+-- ARGV[3]  admissions requested
+-- ARGV[4]  prefix making this call's members unique
+-- Returns {granted, admissions left, ms until the next admission, ms until the window is empty}.
+-- Time is taken from the Redis server so replicas with skewed clocks agree.
+local limit = tonumber(ARGV[1])
+local window_ms = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window_ms)
+local count = redis.call('ZCARD', KEYS[1])
+
+local granted = math.max(0, math.min(requested, limit - count))
+for i = 1, granted do
+    redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i)
+end
+count = count + granted
+
+local until_next = 0
+if count >= limit and count > 0 then
+    local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+    until_next = math.max(0, tonumber(oldest[2]) + window_ms - now)
+end
+local until_empty = 0
+if count > 0 then
+    local newest = redis.call('ZRANGE', KEYS[1], -1, -1, 'WITHSCORES')
+    until_empty = math.max(0, tonumber(newest[2]) + window_ms - now)
+    redis.call('PEXPIRE', KEYS[1], until_empty + 1000)
+end
+
+return {granted, math.max(0, limit - count), until_next, until_empty}
@@ -0,0 +1,40 @@
+-- Reserve up to ARGV[3] tokens from a token bucket, atomically.
+-- KEYS[1]  hash {tokens, ts}
+-- ARGV[1]  capacity
+-- ARGV[2]  milliseconds to refill from empty to full
+-- ARGV[3]  tokens requested
+-- Returns {granted, tokens left, ms until the next token, ms until full}.
+-- Time is taken from the Redis server so replicas with skewed clocks agree.
+local capacity = tonumber(ARGV[1])
+local refill_ms = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+end
+if now > ts then
+    tokens = math.min(capacity, tokens + (now - ts) * capacity / refill_ms)
+    ts = now
+end
+
+local granted = math.max(0, math.min(requested, math.floor(tokens)))
+tokens = tokens - granted
+
+local until_next = 0
+if tokens < 1 then
+    until_next = math.ceil((1 - tokens) * refill_ms / capacity)
+end
+local until_full = math.ceil((capacity - tokens) * refill_ms / capacity)
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', ts)
+-- A full bucket is the same as no bucket
+redis.call('PEXPIRE', KEYS[1], until_full + 1000)
+
+return {granted, math.floor(tokens), until_next, until_full}
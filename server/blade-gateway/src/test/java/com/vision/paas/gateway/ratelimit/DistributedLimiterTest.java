@@ -0,0 +1,237 @@
+package com.vision.paas.gateway.ratelimit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the Redis scripts through {@link DistributedLimiter} against a real Redis: a container
+ * started with Testcontainers, or the server at {@code -Dtest.redis.url=redis://host:port} where
+ * Docker is not available.
+ */
+class DistributedLimiterTest {
+    
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    
+    private static GenericContainer<?> container;
+    private static LettuceConnectionFactory connectionFactory;
+    private static ReactiveStringRedisTemplate redis;
+    
+    private final List<LettuceConnectionFactory> extraFactories = new ArrayList<>();
+    private RateLimitProperties properties;
+    
+    @BeforeAll
+    static void startRedis() {
+        String url = System.getProperty("test.redis.url");
+        String host;
+        int port;
+        if (url != null) {
+            URI uri = URI.create(url);
+            host = uri.getHost();
+            port = uri.getPort();
+        } else {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                    "Needs Docker or -Dtest.redis.url");
+            container = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+            container.start();
+            host = container.getHost();
+            port = container.getMappedPort(6379);
+        }
+        connectionFactory = connect(host, port);
+        redis = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+    
+    @AfterAll
+    static void stopRedis() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (container != null) {
+            container.stop();
+        }
+    }
+    
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getDistributed().setEnabled(true);
+        // Fresh keys per test, so nothing carries over between them
+        properties.getDistributed().setKeyPrefix("test:" + UUID.randomUUID() + ":");
+        // Generous, so a slow CI machine does not fall back to local limiting
+        properties.getDistributed().setTimeout(Duration.ofSeconds(5));
+        properties.getDistributed().setLeaseTtl(Duration.ofMinutes(1));
+    }
+    
+    @AfterEach
+    void closeExtraConnections() {
+        extraFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+    
+    @Test
+    void tokenBucketGrantsCapacityThenDenies() {
+        DistributedLimiter limiter = new DistributedLimiter(redis, properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.TOKEN_BUCKET, 5, MINUTE, 0);
+        
+        for (int i = 4; i >= 0; i--) {
+            Decision decision = limiter.tryAcquire("client", rateLimit).block();
+            assertThat(decision).isNotNull();
+            assertThat(decision.allowed()).isTrue();
+            assertThat(decision.remaining()).isEqualTo(i);
+        }
+        
+        Decision denied = limiter.tryAcquire("client", rateLimit).block();
+        assertThat(denied).isNotNull();
+        assertThat(denied.allowed()).isFalse();
+        assertThat(denied.remaining()).isZero();
+        // One token every 12 s, all five after a minute
+        assertThat(denied.millisUntilNext()).isBetween(1L, 12_000L);
+        assertThat(denied.millisUntilReset()).isBetween(48_000L, MINUTE);
+    }
+    
+    @Test
+    void tokenBucketLeasesAreTakenFromTheSharedAllowance() {
+        DistributedLimiter replicaA = new DistributedLimiter(redis, properties);
+        DistributedLimiter replicaB = new DistributedLimiter(redis, properties);
+        // Lease of min(lease-size 10, 200 / 20) = 10 admissions per round trip; refill is slow
+        // enough that no whole token is added while the test runs
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.TOKEN_BUCKET, 200, HOUR, 0);
+        
+        assertThat(replicaA.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        assertThat(storedTokens("client")).isEqualTo(190);
+        
+        // The rest of the lease is admitted without Redis
+        for (int i = 0; i < 9; i++) {
+            assertThat(replicaA.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        }
+        assertThat(storedTokens("client")).isEqualTo(190);
+        
+        // Another replica reserves from the same bucket
+        Decision fromB = replicaB.tryAcquire("client", rateLimit).block();
+        assertThat(fromB.allowed()).isTrue();
+        assertThat(fromB.remaining()).isEqualTo(180 + 9);
+        assertThat(storedTokens("client")).isEqualTo(180);
+        
+        // A spent lease is refilled by the next call
+        assertThat(replicaA.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        assertThat(storedTokens("client")).isEqualTo(170);
+    }
+    
+    @Test
+    void tokenBucketGrantsWhatIsLeftOfALease() {
+        DistributedLimiter limiter = new DistributedLimiter(redis, properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.TOKEN_BUCKET, 200, HOUR, 0);
+        // Three tokens left, last refilled in the future so none are added meanwhile
+        redis.opsForHash().put(redisKey("client"), "tokens", "3").block();
+        redis.opsForHash().put(redisKey("client"), "ts", String.valueOf(System.currentTimeMillis() + MINUTE)).block();
+        
+        int allowed = 0;
+        for (int i = 0; i < 5; i++) {
+            if (limiter.tryAcquire("client", rateLimit).block().allowed()) {
+                allowed++;
+            }
+        }
+        
+        assertThat(allowed).isEqualTo(3);
+        assertThat(storedTokens("client")).isZero();
+    }
+    
+    @Test
+    void denialIsRememberedWithoutAskingRedis() {
+        DistributedLimiter limiter = new DistributedLimiter(redis, properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.TOKEN_BUCKET, 1, MINUTE, 0);
+        
+        assertThat(limiter.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        assertThat(limiter.tryAcquire("client", rateLimit).block().allowed()).isFalse();
+        
+        // A fresh bucket in Redis would admit again; the remembered denial still holds
+        redis.delete(redisKey("client")).block();
+        Decision decision = limiter.tryAcquire("client", rateLimit).block();
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.millisUntilNext()).isPositive();
+        assertThat(redis.hasKey(redisKey("client")).block()).isFalse();
+    }
+    
+    @Test
+    void slidingWindowAdmitsLimitAcrossReplicas() {
+        DistributedLimiter replicaA = new DistributedLimiter(redis, properties);
+        DistributedLimiter replicaB = new DistributedLimiter(redis, properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.SLIDING_WINDOW_LOG, 3, MINUTE, 0);
+        
+        assertThat(replicaA.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        assertThat(replicaB.tryAcquire("client", rateLimit).block().allowed()).isTrue();
+        Decision third = replicaA.tryAcquire("client", rateLimit).block();
+        assertThat(third.allowed()).isTrue();
+        assertThat(third.remaining()).isZero();
+        
+        Decision denied = replicaB.tryAcquire("client", rateLimit).block();
+        assertThat(denied.allowed()).isFalse();
+        // The oldest admission leaves the window a minute after it was made
+        assertThat(denied.millisUntilNext()).isBetween(1L, MINUTE);
+        assertThat(denied.millisUntilReset()).isBetween(1L, MINUTE);
+        
+        // Members from both replicas are kept apart, one per admission
+        assertThat(redis.opsForZSet().size(redisKey("client")).block()).isEqualTo(3);
+    }
+    
+    @Test
+    void keysAreLimitedIndependently() {
+        DistributedLimiter limiter = new DistributedLimiter(redis, properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.SLIDING_WINDOW_LOG, 1, MINUTE, 0);
+        
+        assertThat(limiter.tryAcquire("a", rateLimit).block().allowed()).isTrue();
+        assertThat(limiter.tryAcquire("a", rateLimit).block().allowed()).isFalse();
+        assertThat(limiter.tryAcquire("b", rateLimit).block().allowed()).isTrue();
+    }
+    
+    @Test
+    void unreachableRedisLeavesTheDecisionToLocalLimiters() {
+        properties.getDistributed().setTimeout(Duration.ofMillis(500));
+        properties.getDistributed().setRetryInterval(Duration.ofMinutes(1));
+        // Nothing listens on port 1
+        LettuceConnectionFactory unreachable = connect("127.0.0.1", 1);
+        extraFactories.add(unreachable);
+        DistributedLimiter limiter = new DistributedLimiter(new ReactiveStringRedisTemplate(unreachable), properties);
+        RateLimit rateLimit = new RateLimit(RateLimitProperties.Algorithm.TOKEN_BUCKET, 5, MINUTE, 0);
+        
+        assertThat(limiter.tryAcquire("client", rateLimit).blockOptional()).isEmpty();
+        
+        // Within the retry interval Redis is not tried at all
+        long started = System.nanoTime();
+        assertThat(limiter.tryAcquire("client", rateLimit).blockOptional()).isEmpty();
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(100));
+    }
+    
+    private long storedTokens(String key) {
+        Object tokens = redis.opsForHash().get(redisKey(key), "tokens").block();
+        return (long) Math.floor(Double.parseDouble(String.valueOf(tokens)));
+    }
+    
+    private String redisKey(String key) {
+        return properties.getDistributed().getKeyPrefix() + key;
+    }
+    
+    private static LettuceConnectionFactory connect(String host, int port) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        factory.afterPropertiesSet();
+        factory.start();
+        return factory;
+    }
+}
@@ -0,0 +1,185 @@
+package com.vision.paas.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+    
+    private static final long START = 1_000_000;
+    
+    @Test
+    void newBucketAdmitsItsCapacityThenDenies() {
+        TokenBucket bucket = new TokenBucket(5, 1000, START);
+        
+        assertThat(bucket.remaining(START)).isEqualTo(5);
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(START)).isTrue();
+        }
+        assertThat(bucket.tryAcquire(START)).isFalse();
+        assertThat(bucket.remaining(START)).isZero();
+    }
+    
+    @Test
+    void refillsContinuouslyRatherThanPerSecond() {
+        // One token every 100 ms
+        TokenBucket bucket = drained(10, 1000);
+        
+        assertThat(bucket.tryAcquire(START + 99)).isFalse();
+        assertThat(bucket.tryAcquire(START + 100)).isTrue();
+        assertThat(bucket.tryAcquire(START + 100)).isFalse();
+        assertThat(bucket.remaining(START + 450)).isEqualTo(3);
+    }
+    
+    @Test
+    void carriesTimeNotYetConvertedIntoTokens() {
+        TokenBucket bucket = drained(10, 1000);
+        
+        // Each 7 ms poll adds 17.92 units; the fraction must carry to the next poll
+        int admitted = 0;
+        for (long t = 7; t <= 1001; t += 7) {
+            if (bucket.tryAcquire(START + t)) {
+                admitted++;
+            }
+        }
+        
+        assertThat(admitted).isEqualTo(10);
+    }
+    
+    @Test
+    void frequentAdmissionsDoNotRefillFaster() {
+        // 170.67 units per millisecond; taking every token each millisecond stores a refill
+        // that ends between two milliseconds every time
+        TokenBucket bucket = drained(1000, 1500);
+        
+        int admitted = 0;
+        for (long t = 1; t <= 1500; t++) {
+            while (bucket.tryAcquire(START + t)) {
+                admitted++;
+            }
+        }
+        
+        assertThat(admitted).isEqualTo(1000);
+    }
+    
+    @Test
+    void neverHoldsMoreThanItsCapacity() {
+        TokenBucket bucket = new TokenBucket(4, 1000, START);
+        bucket.tryAcquire(START);
+        bucket.tryAcquire(START);
+        
+        assertThat(bucket.remaining(START + 900)).isEqualTo(4);
+        assertThat(bucket.remaining(START + 60_000)).isEqualTo(4);
+        
+        int admitted = 0;
+        while (bucket.tryAcquire(START + 60_000)) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(4);
+    }
+    
+    @Test
+    void millisUntilNextCountsFromTheCarriedTimestamp() {
+        TokenBucket bucket = drained(10, 1000);
+        
+        assertThat(bucket.millisUntilNext(START)).isEqualTo(100);
+        assertThat(bucket.millisUntilNext(START + 40)).isEqualTo(60);
+        assertThat(bucket.millisUntilNext(START + 100)).isZero();
+        
+        // Taking the token at 130 keeps the 30 ms already counted towards the next one
+        assertThat(bucket.tryAcquire(START + 130)).isTrue();
+        assertThat(bucket.millisUntilNext(START + 130)).isEqualTo(70);
+    }
+    
+    @Test
+    void millisUntilResetIsTheTimeToRefillCompletely() {
+        TokenBucket bucket = drained(10, 1000);
+        
+        assertThat(bucket.millisUntilReset(START)).isEqualTo(1000);
+        assertThat(bucket.millisUntilReset(START + 250)).isEqualTo(750);
+        assertThat(bucket.millisUntilReset(START + 1000)).isZero();
+        assertThat(new TokenBucket(10, 1000, START).millisUntilReset(START)).isZero();
+    }
+    
+    @Test
+    void idleTimeIsOneRefillPeriod() {
+        assertThat(new TokenBucket(10, 2500, START).idleMillis()).isEqualTo(2500);
+    }
+    
+    @Test
+    void clockGoingBackwardsAddsNothing() {
+        TokenBucket bucket = drained(10, 1000);
+        
+        assertThat(bucket.tryAcquire(START - 5000)).isFalse();
+        assertThat(bucket.remaining(START + 100)).isEqualTo(1);
+    }
+    
+    @Test
+    void handlesTheLargestCapacity() {
+        TokenBucket bucket = new TokenBucket(TokenBucket.MAX_CAPACITY, 1000, START);
+        
+        assertThat(bucket.remaining(START)).isEqualTo(TokenBucket.MAX_CAPACITY);
+        assertThat(bucket.tryAcquire(START)).isTrue();
+        assertThat(bucket.remaining(START)).isEqualTo(TokenBucket.MAX_CAPACITY - 1);
+        assertThat(bucket.remaining(START + 1000)).isEqualTo(TokenBucket.MAX_CAPACITY);
+    }
+    
+    @Test
+    void rejectsCapacityAndPeriodOutOfRange() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1000, START)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(TokenBucket.MAX_CAPACITY + 1, 1000, START))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0, START)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(TokenBucket.MAX_CAPACITY, Long.MAX_VALUE / 1000, START))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void concurrentAcquiresNeverOverspend() throws Exception {
+        int threads = 8;
+        TokenBucket bucket = new TokenBucket(1000, TimeUnit.DAYS.toMillis(1), START);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int admitted = 0;
+                    for (int j = 0; j < 500; j++) {
+                        if (bucket.tryAcquire(START + j)) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            start.countDown();
+            
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(total).isEqualTo(1000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static TokenBucket drained(long capacity, long periodMillis) {
+        TokenBucket bucket = new TokenBucket(capacity, periodMillis, START);
+        while (bucket.tryAcquire(START)) {
+            // drain
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,25 @@
+package com.vision.paas.common.constant;
+
+import java.util.List;
+
+/**
+ * Identity Headers
+ * Set by the gateway after it has verified the caller; the gateway removes any the client
+ * sent, so services behind it can trust them without parsing tokens again.
+ */
+public final class IdentityHeaders {
+    
+    public static final String USER_ID = "X-User-Id";
+    public static final String EMAIL = "X-User-Email";
+    public static final String PLAN = "X-User-Plan";
+    
+    /**
+     * Set instead of email and plan when the caller used an API key
+     */
+    public static final String API_KEY_ID = "X-Api-Key-Id";
+    
+    public static final List<String> ALL = List.of(USER_ID, EMAIL, PLAN, API_KEY_ID);
+    
+    private IdentityHeaders() {
+    }
+}
@@ -11,6 +11,7 @@ public enum DeploymentStatus {
     DEPLOYING("Deploying Container"),
     RUNNING("Running"),
     FAILED("Failed"),
+    CANCELLED("Cancelled"),
     STOPPED("Stopped"),
     ROLLING_BACK("Rolling Back");
     
@@ -23,4 +24,35 @@ public enum DeploymentStatus {
     public String getDisplayName() {
         return displayName;
     }
+    
+    /**
+     * Whether a deployment in this status may move to the given one.
+     * In-progress deployments may go back to PENDING when they are requeued after a restart,
+     * and a requeued deployment may resume at any later in-progress status.
+     */
+    public boolean canTransitionTo(DeploymentStatus next) {
+        if (next == this) {
+            return true;
+        }
+        return switch (this) {
+            case PENDING -> next == CLONING || next == DETECTING || next == BUILDING || next == DEPLOYING
+                    || next == FAILED || next == CANCELLED;
+            case CLONING -> next == DETECTING || next == BUILDING || next == DEPLOYING || next == PENDING
+                    || next == FAILED || next == CANCELLED;
+            case DETECTING -> next == BUILDING || next == DEPLOYING || next == PENDING
+                    || next == FAILED || next == CANCELLED;
+            case BUILDING -> next == DEPLOYING || next == PENDING || next == FAILED || next == CANCELLED;
+            case DEPLOYING -> next == RUNNING || next == PENDING || next == FAILED;
+            case RUNNING -> next == STOPPED || next == ROLLING_BACK;
+            case ROLLING_BACK -> next == RUNNING || next == FAILED;
+            case FAILED, CANCELLED, STOPPED -> false;
+        };
+    }
+    
+    /**
+     * Whether the deployment is still moving through the pipeline
+     */
+    public boolean isInProgress() {
+        return this == PENDING || this == CLONING || this == DETECTING || this == BUILDING || this == DEPLOYING;
+    }
 }
@@ -0,0 +1,74 @@
+package com.vision.paas.deploy.detector;
+
+import ch.qos.logback.classic.Logger;
+import com.vision.paas.common.enums.ProjectType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detection of type and port for the whole fixture corpus: the RepoSnapshot based
+ * {@link ProjectDetector} against {@link BaselineProjectDetector}. The fixtures stay in the
+ * page cache, so this measures the file system calls and parsing, not disk reads.
+ * Run with {@code mvn -pl vision-deploy -am -Pjmh verify -DskipTests}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectDetectorBenchmark {
+    
+    private final ProjectDetector detector = new ProjectDetector();
+    private final BaselineProjectDetector baseline = new BaselineProjectDetector();
+    private List<String> repos;
+    
+    @Setup
+    public void setUp() {
+        repos = FixtureRepos.all().stream().map(Path::toString).toList();
+        // Both detectors log every detection; writing that out would dominate the measurement
+        ((Logger) LoggerFactory.getLogger(ProjectDetector.class.getPackageName()))
+                .setLevel(ch.qos.logback.classic.Level.ERROR);
+    }
+    
+    @Benchmark
+    public void snapshot(Blackhole blackhole) {
+        for (String repo : repos) {
+            RepoSnapshot snapshot = RepoSnapshot.scan(repo);
+            ProjectType type = detector.detect(snapshot);
+            blackhole.consume(detector.detectPort(snapshot, type));
+        }
+    }
+    
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        for (String repo : repos) {
+            ProjectType type = baseline.detect(repo);
+            blackhole.consume(baseline.detectPort(repo, type));
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProjectDetectorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.vision.paas.deploy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Docker Host Configuration
+ * Daemons that build images and run deployment containers
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "deploy.docker")
+public class DockerHostProperties {
+    
+    /**
+     * Daemons to use; when empty the local daemon from DOCKER_HOST does everything
+     */
+    private List<Host> hosts = new ArrayList<>();
+    
+    /**
+     * Memory kept free on every run host for the daemon and the system
+     */
+    private long reservedMemoryMb = 512;
+    
+    /**
+     * Address of published ports when no hosts are configured and the local daemon is used
+     */
+    private String localAddress = "localhost";
+    
+    public enum Role {
+        BUILD,
+        RUN
+    }
+    
+    @Data
+    public static class Host {
+        private String name;
+        
+        /**
+         * Daemon endpoint, e.g. tcp://10.0.0.5:2376 or unix:///var/run/docker.sock
+         */
+        private String url;
+        
+        /**
+         * Address at which ports published on this host are reachable
+         */
+        private String address = "localhost";
+        
+        private boolean tlsVerify;
+        private String certPath;
+        private List<Role> roles = new ArrayList<>(List.of(Role.BUILD, Role.RUN));
+        
+        /**
+         * Upper bound of deployment containers on this host, null for no limit
+         */
+        private Integer maxContainers;
+    }
+}
@@ -0,0 +1,30 @@
+package com.vision.paas.deploy.config;
+
+import com.vision.paas.deploy.controller.DeployLogWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket Configuration
+ * Registers the live deployment log endpoint for the configured frontend origins
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+    
+    private final DeployLogWebSocketHandler deployLogWebSocketHandler;
+    
+    @Value("${deploy.logs.allowed-origins:http://localhost:5173,http://localhost:3000}")
+    private String[] allowedOrigins;
+    
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(deployLogWebSocketHandler, "/api/deploy/jobs/*/ws")
+                .setAllowedOrigins(allowedOrigins);
+    }
+}
@@ -0,0 +1,95 @@
+package com.vision.paas.deploy.controller;
+
+import com.vision.paas.common.dto.ApiResponse;
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.log.ContainerLogService;
+import com.vision.paas.deploy.log.LogLine;
+import com.vision.paas.deploy.stats.ContainerStatsCollector;
+import com.vision.paas.deploy.stats.StatsSample;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Container Controller
+ * Runtime data of deployment containers
+ */
+@RestController
+@RequestMapping("/api/deploy/containers")
+@RequiredArgsConstructor
+public class ContainerController {
+    
+    private static final Duration MAX_WINDOW = Duration.ofHours(1);
+    
+    private final ContainerStatsCollector containerStatsCollector;
+    private final ContainerLogService containerLogService;
+    
+    /**
+     * Resource usage samples at one-second resolution
+     * GET /api/deploy/containers/{id}/stats?window=5m
+     * @param window Seconds, or a duration such as 30s, 5m, 1h; at most one hour
+     */
+    @GetMapping("/{id}/stats")
+    public ApiResponse<List<StatsSample>> getStats(
+            @PathVariable String id,
+            @RequestParam(value = "window", defaultValue = "60") String window) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window, ChronoUnit.SECONDS);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(400, "Invalid window: " + window);
+        }
+        if (duration.isNegative() || duration.compareTo(MAX_WINDOW) > 0) {
+            duration = MAX_WINDOW;
+        }
+        return ApiResponse.success(containerStatsCollector.getSamples(id, duration));
+    }
+    
+    /**
+     * Container output, oldest first
+     * GET /api/deploy/containers/{id}/logs?since=&until=&tail=
+     * @param since Unix seconds or ISO-8601 instant
+     * @param until Unix seconds or ISO-8601 instant
+     */
+    @GetMapping("/{id}/logs")
+    public ApiResponse<List<LogLine>> getLogs(
+            @PathVariable String id,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "until", required = false) String until,
+            @RequestParam(value = "tail", defaultValue = "200") int tail) {
+        return ApiResponse.success(containerLogService.getLines(id, parseTime(since), parseTime(until), tail));
+    }
+    
+    /**
+     * Follow container output as Server-Sent Events
+     * GET /api/deploy/containers/{id}/logs/stream?since=
+     * Reconnecting clients resume after the Last-Event-ID they received.
+     */
+    @GetMapping(value = "/{id}/logs/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLogs(
+            @PathVariable String id,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(value = "since", required = false) String since) {
+        return containerLogService.follow(id, parseTime(since), lastEventId);
+    }
+    
+    private static Instant parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return value.chars().allMatch(Character::isDigit) ?
+                    Instant.ofEpochSecond(Long.parseLong(value)) : Instant.parse(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new BusinessException(400, "Invalid time: " + value);
+        }
+    }
+}
@@ -1,11 +1,26 @@
 package com.vision.paas.deploy.controller;
 
 import com.vision.paas.common.dto.ApiResponse;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.job.DeploymentJobService;
+import com.vision.paas.deploy.job.DeploymentQueueFullException;
+import com.vision.paas.deploy.detector.DetectionCache;
+import com.vision.paas.deploy.health.ReadinessProber;
+import com.vision.paas.deploy.log.LogStreamService;
+import com.vision.paas.deploy.pipeline.DeploymentPipeline;
+import com.vision.paas.deploy.routing.Route;
+import com.vision.paas.deploy.routing.RoutingTable;
 import com.vision.paas.deploy.service.AutoDeployService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -18,25 +33,33 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class DeployController {
     
+    private final DeploymentJobService deploymentJobService;
+    private final DeploymentPipeline deploymentPipeline;
+    private final LogStreamService logStreamService;
+    private final ReadinessProber readinessProber;
+    private final DetectionCache detectionCache;
     private final AutoDeployService autoDeployService;
+    private final RoutingTable routingTable;
     
     /**
      * Auto-deploy (zero-config mode)
      * POST /api/deploy/auto
      */
     @PostMapping("/auto")
-    public ApiResponse<AutoDeployService.DeploymentResult> autoDeploy(
+    public ApiResponse<DeploymentJob> autoDeploy(
             @RequestBody AutoDeployRequest request) {
         log.info("Received auto-deploy request for project: {}", request.getProjectId());
         
-        AutoDeployService.DeploymentResult result = autoDeployService.deploy(
+        DeploymentJob job = deploymentJobService.submit(DeploymentJob.auto(
                 request.getProjectId(),
                 request.getGitUrl(),
+                request.getBranch(),
                 request.getEnvVars(),
-                request.getMemoryMB() != null ? request.getMemoryMB() : 512
-        );
+                request.getMemoryMB() != null ? request.getMemoryMB() : 512,
+                request.getPriority() != null ? request.getPriority() : 0
+        ));
         
-        return ApiResponse.success("Deployment initiated", result);
+        return ApiResponse.success("Deployment queued", job);
     }
     
     /**
@@ -44,7 +67,7 @@ public class DeployController {
      * POST /api/deploy/custom
      */
     @PostMapping("/custom")
-    public ApiResponse<AutoDeployService.DeploymentResult> customDeploy(
+    public ApiResponse<DeploymentJob> customDeploy(
             @RequestBody CustomDeployRequest request) {
         log.info("Received custom deploy request for project: {}", request.getProjectId());
         
@@ -57,14 +80,17 @@ public class DeployController {
         config.setEnvVars(request.getEnvVars());
         config.setMemoryMB(request.getMemoryMB());
         config.setRootDirectory(request.getRootDirectory());
+        config.setHealthCheckPath(request.getHealthCheckPath());
         
-        AutoDeployService.DeploymentResult result = autoDeployService.deployWithConfig(
+        DeploymentJob job = deploymentJobService.submit(DeploymentJob.custom(
                 request.getProjectId(),
                 request.getGitUrl(),
-                config
-        );
+                request.getBranch(),
+                config,
+                request.getPriority() != null ? request.getPriority() : 0
+        ));
         
-        return ApiResponse.success("Custom deployment initiated", result);
+        return ApiResponse.success("Custom deployment queued", job);
     }
     
     /**
@@ -72,19 +98,89 @@ public class DeployController {
      * POST /api/deploy/redeploy/{projectId}
      */
     @PostMapping("/redeploy/{projectId}")
-    public ApiResponse<AutoDeployService.DeploymentResult> redeploy(
+    public ApiResponse<DeploymentJob> redeploy(
             @PathVariable String projectId,
             @RequestBody RedeployRequest request) {
         log.info("Received redeploy request for project: {}", projectId);
         
-        AutoDeployService.DeploymentResult result = autoDeployService.redeploy(
+        DeploymentJob job = deploymentJobService.submit(DeploymentJob.redeploy(
                 projectId,
                 request.getGitUrl(),
+                request.getBranch(),
                 request.getEnvVars(),
-                request.getMemoryMB() != null ? request.getMemoryMB() : 512
-        );
+                request.getMemoryMB() != null ? request.getMemoryMB() : 512,
+                request.getPriority() != null ? request.getPriority() : 0
+        ));
         
-        return ApiResponse.success("Redeployment completed", result);
+        return ApiResponse.success("Redeployment queued", job);
+    }
+    
+    /**
+     * Roll back to the previous deployment
+     * POST /api/deploy/rollback/{projectId}
+     */
+    @PostMapping("/rollback/{projectId}")
+    public ApiResponse<Route> rollback(@PathVariable String projectId) {
+        log.info("Received rollback request for project: {}", projectId);
+        return ApiResponse.success("Rolled back", autoDeployService.rollback(projectId));
+    }
+    
+    /**
+     * Get the container currently serving a project
+     * GET /api/deploy/routes/{projectId}
+     */
+    @GetMapping("/routes/{projectId}")
+    public ApiResponse<Route> getRoute(@PathVariable String projectId) {
+        return ApiResponse.success(routingTable.getRoute(projectId));
+    }
+    
+    /**
+     * Get deployment job status
+     * GET /api/deploy/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ApiResponse<DeploymentJob> getJob(@PathVariable String jobId) {
+        return ApiResponse.success(deploymentJobService.getJob(jobId));
+    }
+    
+    /**
+     * Cancel a deployment job that has not started rolling out
+     * DELETE /api/deploy/jobs/{jobId}
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    public ApiResponse<DeploymentJob> cancelJob(@PathVariable String jobId) {
+        return ApiResponse.success("Cancellation requested", deploymentJobService.cancel(jobId));
+    }
+    
+    /**
+     * Stream deployment progress and build output as Server-Sent Events
+     * GET /api/deploy/jobs/{jobId}/stream
+     * Reconnecting clients resume after the Last-Event-ID they received;
+     * WebSocket clients can use /api/deploy/jobs/{jobId}/ws instead.
+     */
+    @GetMapping(value = "/jobs/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(
+            @PathVariable String jobId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(value = "after", required = false) Long after) {
+        DeploymentJob job = deploymentJobService.getJob(jobId);
+        long afterSeq = lastEventId != null ? lastEventId : (after != null ? after : 0);
+        return logStreamService.streamSse(job.getResult().getDeploymentLog(), afterSeq);
+    }
+    
+    /**
+     * Pipeline metrics: job queue plus per-stage queue depth and latency, readiness and detection cache hits
+     * GET /api/deploy/pipeline/metrics
+     */
+    @GetMapping("/pipeline/metrics")
+    public ApiResponse<Map<String, Object>> pipelineMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queuedJobs", deploymentJobService.getQueuedCount());
+        metrics.put("runningJobs", deploymentJobService.getRunningCount());
+        metrics.put("stages", deploymentPipeline.getMetrics());
+        metrics.put("readiness", readinessProber.getMetrics());
+        metrics.put("detectionCache", detectionCache.getMetrics());
+        return ApiResponse.success(metrics);
     }
     
     /**
@@ -96,12 +192,25 @@ public class DeployController {
         return ApiResponse.success("Deploy service is running");
     }
     
+    /**
+     * Reject with 429 and a Retry-After hint when the deployment queue is full
+     */
+    @ExceptionHandler(DeploymentQueueFullException.class)
+    public ResponseEntity<ApiResponse<Void>> handleQueueFull(DeploymentQueueFullException e) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getCode(), e.getMessage()));
+    }
+    
     // Request DTOs
     public static class AutoDeployRequest {
         private String projectId;
         private String gitUrl;
+        private String branch;
         private Map<String, String> envVars;
         private Integer memoryMB;
+        private Integer priority;
         
         // Getters and Setters
         public String getProjectId() { return projectId; }
@@ -110,11 +219,17 @@ public class DeployController {
         public String getGitUrl() { return gitUrl; }
         public void setGitUrl(String gitUrl) { this.gitUrl = gitUrl; }
         
+        public String getBranch() { return branch; }
+        public void setBranch(String branch) { this.branch = branch; }
+        
         public Map<String, String> getEnvVars() { return envVars; }
         public void setEnvVars(Map<String, String> envVars) { this.envVars = envVars; }
         
         public Integer getMemoryMB() { return memoryMB; }
         public void setMemoryMB(Integer memoryMB) { this.memoryMB = memoryMB; }
+        
+        public Integer getPriority() { return priority; }
+        public void setPriority(Integer priority) { this.priority = priority; }
     }
     
     public static class CustomDeployRequest extends AutoDeployRequest {
@@ -124,6 +239,7 @@ public class DeployController {
         private String buildCommand;
         private String startCommand;
         private String rootDirectory;
+        private String healthCheckPath;
         
         // Getters and Setters
         public com.vision.paas.common.enums.ProjectType getProjectType() { return projectType; }
@@ -147,21 +263,32 @@ public class DeployController {
         
         public String getRootDirectory() { return rootDirectory; }
         public void setRootDirectory(String rootDirectory) { this.rootDirectory = rootDirectory; }
+        
+        public String getHealthCheckPath() { return healthCheckPath; }
+        public void setHealthCheckPath(String healthCheckPath) { this.healthCheckPath = healthCheckPath; }
     }
     
     public static class RedeployRequest {
         private String gitUrl;
+        private String branch;
         private Map<String, String> envVars;
         private Integer memoryMB;
+        private Integer priority;
         
         // Getters and Setters
         public String getGitUrl() { return gitUrl; }
         public void setGitUrl(String gitUrl) { this.gitUrl = gitUrl; }
         
+        public String getBranch() { return branch; }
+        public void setBranch(String branch) { this.branch = branch; }
+        
         public Map<String, String> getEnvVars() { return envVars; }
         public void setEnvVars(Map<String, String> envVars) { this.envVars = envVars; }
         
         public Integer getMemoryMB() { return memoryMB; }
         public void setMemoryMB(Integer memoryMB) { this.memoryMB = memoryMB; }
+        
+        public Integer getPriority() { return priority; }
+        public void setPriority(Integer priority) { this.priority = priority; }
     }
 }
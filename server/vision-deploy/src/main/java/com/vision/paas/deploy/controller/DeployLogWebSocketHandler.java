@@ -0,0 +1,88 @@
+package com.vision.paas.deploy.controller;
+
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.job.DeploymentJobService;
+import com.vision.paas.deploy.log.LogStreamService;
+import com.vision.paas.deploy.log.LogSubscription;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * Deployment Log WebSocket Handler
+ * WebSocket variant of GET /api/deploy/jobs/{jobId}/stream
+ * WS /api/deploy/jobs/{jobId}/ws?after={seq}
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeployLogWebSocketHandler extends TextWebSocketHandler {
+    
+    private static final String SUBSCRIPTION_ATTRIBUTE = "logSubscription";
+    
+    private final DeploymentJobService deploymentJobService;
+    private final LogStreamService logStreamService;
+    
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        URI uri = session.getUri();
+        if (uri == null) {
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        
+        // Path is /api/deploy/jobs/{jobId}/ws
+        String[] segments = uri.getPath().split("/");
+        String jobId = segments[segments.length - 2];
+        String after = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("after");
+        long afterSeq = parseAfter(after);
+        if (afterSeq < 0) {
+            session.close(CloseStatus.BAD_DATA.withReason("Invalid after: " + after));
+            return;
+        }
+        
+        DeploymentJob job;
+        try {
+            job = deploymentJobService.getJob(jobId);
+        } catch (BusinessException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+        
+        LogSubscription subscription = logStreamService.streamWebSocket(
+                job.getResult().getDeploymentLog(),
+                afterSeq,
+                session);
+        session.getAttributes().put(SUBSCRIPTION_ATTRIBUTE, subscription);
+        log.debug("WebSocket log subscriber attached to job {}", jobId);
+    }
+    
+    /**
+     * Sequence to resume after, -1 if the parameter is not a non-negative number
+     */
+    private static long parseAfter(String after) {
+        if (after == null) {
+            return 0;
+        }
+        try {
+            return Math.max(Long.parseLong(after), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Object subscription = session.getAttributes().get(SUBSCRIPTION_ATTRIBUTE);
+        if (subscription instanceof LogSubscription logSubscription) {
+            logSubscription.cancel();
+        }
+    }
+}
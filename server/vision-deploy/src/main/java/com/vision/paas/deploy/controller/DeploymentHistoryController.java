@@ -0,0 +1,61 @@
+package com.vision.paas.deploy.controller;
+
+import com.vision.paas.common.dto.ApiResponse;
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.deploy.entity.DeploymentRecord;
+import com.vision.paas.deploy.repository.DeploymentRecordRepository;
+import com.vision.paas.deploy.service.DeploymentHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+/**
+ * Deployment History Controller
+ * Persisted deployments, queryable after their jobs have left memory
+ */
+@RestController
+@RequestMapping("/api/deploy/history")
+@RequiredArgsConstructor
+public class DeploymentHistoryController {
+    
+    private final DeploymentHistoryService historyService;
+    
+    /**
+     * List deployments newest first
+     * GET /api/deploy/history?projectId=&status=&from=&until=&cursor=&limit=50
+     * Pass the returned nextCursor to get the following page.
+     */
+    @GetMapping
+    public ApiResponse<DeploymentHistoryService.HistoryPage> list(
+            @RequestParam(required = false) String projectId,
+            @RequestParam(required = false) DeploymentStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant until,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ApiResponse.success(historyService.find(projectId, status, from, until, cursor, limit));
+    }
+    
+    /**
+     * Get one deployment
+     * GET /api/deploy/history/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ApiResponse<DeploymentRecord> get(@PathVariable String jobId) {
+        return ApiResponse.success(historyService.get(jobId));
+    }
+    
+    /**
+     * Build time percentiles of a project, excluding deployments that reused an image
+     * GET /api/deploy/history/build-times?projectId=&from=&until=
+     */
+    @GetMapping("/build-times")
+    public ApiResponse<DeploymentRecordRepository.BuildTimePercentiles> buildTimes(
+            @RequestParam String projectId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant until) {
+        return ApiResponse.success(historyService.buildTimePercentiles(projectId, from, until));
+    }
+}
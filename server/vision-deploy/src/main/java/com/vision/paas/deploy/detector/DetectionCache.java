@@ -0,0 +1,98 @@
+package com.vision.paas.deploy.detector;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.vision.paas.common.enums.ProjectType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Detection Cache
+ * Remembers what detection and Dockerfile generation produced for a commit, so redeploying
+ * an unchanged commit skips both. A commit's tree never changes, so entries only expire
+ * to bound memory and to pick up generator changes after a while.
+ */
+@Slf4j
+@Service
+public class DetectionCache {
+    
+    @Value("${deploy.detection-cache.max-entries:1000}")
+    private long maxEntries;
+    
+    @Value("${deploy.detection-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+    
+    private Cache<Key, Detection> cache;
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * @return Cached detection, or null on a miss
+     */
+    public Detection get(Key key) {
+        return cache.getIfPresent(key);
+    }
+    
+    public void put(Key key, Detection detection) {
+        cache.put(key, detection);
+    }
+    
+    /**
+     * Hit/miss counts of the cache since startup
+     */
+    public Snapshot getMetrics() {
+        CacheStats stats = cache.stats();
+        return new Snapshot(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                cache.estimatedSize());
+    }
+    
+    /**
+     * Everything detection and generation depend on. The project is part of the key because
+     * generated Dockerfiles carry project-scoped cache mounts.
+     * @param rootDirectory Requested root directory, normalized
+     * @param projectTypeOverride Project type forced by the request, or null
+     * @param portOverride Port forced by the request, or null
+     */
+    public record Key(
+            String gitUrl,
+            String commitSha,
+            String projectId,
+            String rootDirectory,
+            ProjectType projectTypeOverride,
+            Integer portOverride) {
+    }
+    
+    /**
+     * @param contextDirectory Build context relative to the checkout
+     */
+    public record Detection(
+            ProjectType projectType,
+            int port,
+            String contextDirectory,
+            String dockerfile) {
+    }
+    
+    public record Snapshot(
+            long hits,
+            long misses,
+            double hitRate,
+            long evictions,
+            long size) {
+    }
+}
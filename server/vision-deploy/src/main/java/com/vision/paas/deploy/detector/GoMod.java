@@ -0,0 +1,55 @@
+package com.vision.paas.deploy.detector;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Module path and requirements of a go.mod
+ * @param module Module path, may be null
+ * @param requires Required module paths, direct and indirect
+ */
+public record GoMod(
+        String module,
+        Set<String> requires) {
+    
+    public static GoMod parse(String content) {
+        String module = null;
+        Set<String> requires = new LinkedHashSet<>();
+        boolean inRequireBlock = false;
+        
+        for (String rawLine : content.split("\n")) {
+            int comment = rawLine.indexOf("//");
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            if (inRequireBlock) {
+                if (line.equals(")")) {
+                    inRequireBlock = false;
+                } else {
+                    requires.add(unquote(tokens[0]));
+                }
+            } else if (tokens[0].equals("module") && tokens.length > 1) {
+                module = unquote(tokens[1]);
+            } else if (line.startsWith("require")) {
+                String rest = line.substring("require".length()).trim();
+                if (rest.equals("(")) {
+                    inRequireBlock = true;
+                } else if (!rest.isEmpty()) {
+                    requires.add(unquote(rest.split("\\s+")[0]));
+                }
+            }
+        }
+        return new GoMod(module, requires);
+    }
+    
+    public boolean requiresModule(String modulePath) {
+        return requires.contains(modulePath);
+    }
+    
+    private static String unquote(String token) {
+        return token.length() >= 2 && (token.startsWith("\"") || token.startsWith("`")) ?
+                token.substring(1, token.length() - 1) : token;
+    }
+}
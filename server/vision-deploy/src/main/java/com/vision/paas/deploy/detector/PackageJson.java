@@ -0,0 +1,137 @@
+package com.vision.paas.deploy.detector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a package.json that detection and generation use, read with a streaming
+ * parser that skips everything else
+ * @param name Package name, may be null
+ * @param dependencies Names under "dependencies"
+ * @param devDependencies Names under "devDependencies"
+ * @param scripts npm scripts by name
+ * @param workspaces Workspace globs, from either the array or the object form
+ */
+public record PackageJson(
+        String name,
+        Set<String> dependencies,
+        Set<String> devDependencies,
+        Map<String, String> scripts,
+        List<String> workspaces) {
+    
+    private static final JsonFactory JSON = new JsonFactory();
+    
+    /**
+     * @throws IllegalArgumentException if the content is not a JSON object
+     */
+    public static PackageJson parse(String content) {
+        String name = null;
+        Set<String> dependencies = new LinkedHashSet<>();
+        Set<String> devDependencies = new LinkedHashSet<>();
+        Map<String, String> scripts = new LinkedHashMap<>();
+        List<String> workspaces = new ArrayList<>();
+        
+        try (JsonParser parser = JSON.createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("package.json is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "dependencies" -> readKeys(parser, dependencies);
+                    case "devDependencies" -> readKeys(parser, devDependencies);
+                    case "scripts" -> readStrings(parser, scripts);
+                    case "workspaces" -> readWorkspaces(parser, workspaces);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid package.json: " + e.getMessage(), e);
+        }
+        return new PackageJson(name, dependencies, devDependencies, scripts, workspaces);
+    }
+    
+    /**
+     * Whether the package depends on a module at runtime
+     */
+    public boolean dependsOn(String module) {
+        return dependencies.contains(module);
+    }
+    
+    /**
+     * Whether the package depends on a module at runtime or for its build
+     */
+    public boolean usesModule(String module) {
+        return dependencies.contains(module) || devDependencies.contains(module);
+    }
+    
+    public String script(String scriptName) {
+        return scripts.get(scriptName);
+    }
+    
+    private static void readKeys(JsonParser parser, Collection<String> keys) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            keys.add(parser.currentName());
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+    
+    private static void readStrings(JsonParser parser, Map<String, String> values) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                values.put(key, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+    
+    /**
+     * "workspaces": ["packages/*"] or, in the Yarn form, "workspaces": {"packages": ["packages/*"]}
+     */
+    private static void readWorkspaces(JsonParser parser, List<String> globs) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                    globs.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean packages = "packages".equals(parser.currentName());
+                parser.nextToken();
+                if (packages) {
+                    readWorkspaces(parser, globs);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+    }
+}
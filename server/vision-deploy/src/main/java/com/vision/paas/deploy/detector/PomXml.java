@@ -0,0 +1,114 @@
+package com.vision.paas.deploy.detector;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of a Maven pom.xml that detection and generation use, read with StAX
+ * @param artifactId Artifact ID of the project
+ * @param packaging Packaging, "jar" when not declared
+ * @param modules Modules of a multi-module project, relative directories
+ * @param coordinates groupId:artifactId of the parent, dependencies (including managed ones),
+ *                    plugins and extensions
+ */
+public record PomXml(
+        String artifactId,
+        String packaging,
+        List<String> modules,
+        Set<String> coordinates) {
+    
+    private static final Set<String> COORDINATE_ELEMENTS = Set.of("parent", "dependency", "plugin", "extension");
+    
+    private static final XMLInputFactory XML = createFactory();
+    
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Repository content is untrusted
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the content is not well-formed XML
+     */
+    public static PomXml parse(String content) {
+        String artifactId = null;
+        String packaging = "jar";
+        List<String> modules = new ArrayList<>();
+        Set<String> coordinates = new LinkedHashSet<>();
+        
+        Deque<String> path = new ArrayDeque<>();
+        StringBuilder text = new StringBuilder();
+        String groupId = null;
+        String coordinateArtifactId = null;
+        try {
+            XMLStreamReader reader = XML.createXMLStreamReader(new StringReader(content));
+            try {
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            path.push(reader.getLocalName());
+                            text.setLength(0);
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(reader.getText());
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            String element = path.pop();
+                            String parent = path.isEmpty() ? "" : path.peek();
+                            String value = text.toString().trim();
+                            if (path.size() == 1 && "artifactId".equals(element)) {
+                                artifactId = value;
+                            } else if (path.size() == 1 && "packaging".equals(element)) {
+                                packaging = value;
+                            } else if (path.size() == 2 && "module".equals(element) && "modules".equals(parent)) {
+                                modules.add(value);
+                            } else if (COORDINATE_ELEMENTS.contains(parent) && "groupId".equals(element)) {
+                                groupId = value;
+                            } else if (COORDINATE_ELEMENTS.contains(parent) && "artifactId".equals(element)) {
+                                coordinateArtifactId = value;
+                            } else if (COORDINATE_ELEMENTS.contains(element)) {
+                                coordinates.add((groupId != null ? groupId : "") + ":"
+                                        + (coordinateArtifactId != null ? coordinateArtifactId : ""));
+                                groupId = null;
+                                coordinateArtifactId = null;
+                            }
+                            text.setLength(0);
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid pom.xml: " + e.getMessage(), e);
+        }
+        return new PomXml(artifactId, packaging, modules, coordinates);
+    }
+    
+    /**
+     * Whether the parent, a dependency or a plugin belongs to a group or one of its subgroups
+     */
+    public boolean usesGroup(String groupId) {
+        for (String coordinate : coordinates) {
+            if (coordinate.startsWith(groupId + ":") || coordinate.startsWith(groupId + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public boolean isAggregator() {
+        return "pom".equals(packaging) && !modules.isEmpty();
+    }
+}
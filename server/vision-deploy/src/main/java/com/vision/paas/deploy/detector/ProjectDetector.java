@@ -3,148 +3,166 @@ package com.vision.paas.deploy.detector;
 import com.vision.paas.common.enums.ProjectType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
-import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Project Type Detector
  * Automatically detects project type from repository files
- * Supports 20+ project types for zero-configuration deployment
+ * Supports 20+ project types for zero-configuration deployment.
+ * Works on a {@link RepoSnapshot}, so each manifest is read and parsed once per deployment.
+ * Also detects monorepo workspaces (npm, Yarn, pnpm, Maven modules) at the repository root.
  */
 @Slf4j
 @Service
 public class ProjectDetector {
     
+    /**
+     * Where application.properties/yml are looked up, in order
+     */
+    private static final List<String> CONFIG_DIRS = List.of("config/", "src/main/resources/", "");
+    
+    private static final List<String> PORT_KEYS = List.of("server.port", "quarkus.http.port", "micronaut.server.port");
+    
     /**
      * Detect project type by analyzing repository files
      * @param repoPath Path to cloned repository
      * @return Detected ProjectType
      */
     public ProjectType detect(String repoPath) {
-        log.info("Detecting project type for: {}", repoPath);
+        return detect(RepoSnapshot.scan(repoPath));
+    }
+    
+    /**
+     * Detect project type from an existing snapshot of the repository
+     */
+    public ProjectType detect(RepoSnapshot repo) {
+        log.info("Detecting project type for: {}", repo.getRoot());
         
-        File repoDir = new File(repoPath);
-        if (!repoDir.exists() || !repoDir.isDirectory()) {
-            log.warn("Invalid repository path: {}", repoPath);
+        if (!repo.isDirectory()) {
+            log.warn("Invalid repository path: {}", repo.getRoot());
             return ProjectType.UNKNOWN;
         }
         
         // Check for Node.js projects
-        if (fileExists(repoPath, "package.json")) {
-            return detectNodeProject(repoPath);
+        if (repo.has("package.json")) {
+            return detectNodeProject(repo);
         }
         
         // Check for Java projects
-        if (fileExists(repoPath, "pom.xml")) {
-            return detectJavaProject(repoPath);
+        if (repo.has("pom.xml")) {
+            return detectJavaProject(repo);
         }
         
-        if (fileExists(repoPath, "build.gradle") || fileExists(repoPath, "build.gradle.kts")) {
+        if (repo.has("build.gradle") || repo.has("build.gradle.kts")) {
             return ProjectType.SPRING_BOOT;
         }
         
         // Check for Python projects
-        if (fileExists(repoPath, "requirements.txt") || fileExists(repoPath, "Pipfile")) {
-            return detectPythonProject(repoPath);
+        if (repo.hasAny("requirements.txt", "Pipfile", "pyproject.toml")) {
+            return detectPythonProject(repo);
         }
         
         // Check for Go projects
-        if (fileExists(repoPath, "go.mod")) {
-            return detectGoProject(repoPath);
+        if (repo.has("go.mod")) {
+            return detectGoProject(repo);
         }
         
         // Check for Ruby projects
-        if (fileExists(repoPath, "Gemfile")) {
-            return detectRubyProject(repoPath);
+        if (repo.has("Gemfile")) {
+            return detectRubyProject(repo);
         }
         
         // Check for PHP projects
-        if (fileExists(repoPath, "composer.json")) {
-            return detectPhpProject(repoPath);
+        if (repo.has("composer.json")) {
+            return detectPhpProject(repo);
         }
         
         // Check for static HTML
-        if (fileExists(repoPath, "index.html") && !hasFrameworkFiles(repoPath)) {
+        if (repo.has("index.html") && !hasFrameworkFiles(repo)) {
             return ProjectType.STATIC_HTML;
         }
         
-        log.warn("Could not detect project type for: {}", repoPath);
+        log.warn("Could not detect project type for: {}", repo.getRoot());
         return ProjectType.UNKNOWN;
     }
     
     /**
-     * Detect Node.js project type
+     * Detect Node.js project type.
+     * Frameworks are matched by exact dependency name; build-time frameworks (Nuxt, Svelte)
+     * also count from devDependencies, everything else only from runtime dependencies.
      */
-    private ProjectType detectNodeProject(String repoPath) {
-        try {
-            String packageJson = Files.readString(Paths.get(repoPath, "package.json"));
-            
+    private ProjectType detectNodeProject(RepoSnapshot repo) {
+        PackageJson packageJson = repo.manifest("package.json", PackageJson::parse);
+        if (packageJson != null) {
             // Check for Next.js
-            if (packageJson.contains("\"next\"") || fileExists(repoPath, "next.config.js")) {
+            if (packageJson.dependsOn("next") || repo.hasAny("next.config.js", "next.config.mjs", "next.config.ts")) {
                 log.info("Detected Next.js project");
                 return ProjectType.NEXTJS;
             }
             
             // Check for NestJS
-            if (packageJson.contains("\"@nestjs/core\"")) {
+            if (packageJson.dependsOn("@nestjs/core")) {
                 log.info("Detected NestJS project");
                 return ProjectType.NESTJS;
             }
             
             // Check for Nuxt
-            if (packageJson.contains("\"nuxt\"")) {
+            if (packageJson.usesModule("nuxt") || repo.hasAny("nuxt.config.js", "nuxt.config.ts")) {
                 log.info("Detected Nuxt.js project");
                 return ProjectType.NUXT;
             }
             
             // Check for Vue
-            if (packageJson.contains("\"vue\"") || fileExists(repoPath, "vue.config.js")) {
+            if (packageJson.dependsOn("vue") || repo.has("vue.config.js")) {
                 log.info("Detected Vue.js project");
                 return ProjectType.VUE;
             }
             
             // Check for Angular
-            if (packageJson.contains("\"@angular/core\"")) {
+            if (packageJson.dependsOn("@angular/core")) {
                 log.info("Detected Angular project");
                 return ProjectType.ANGULAR;
             }
             
             // Check for Svelte
-            if (packageJson.contains("\"svelte\"")) {
+            if (packageJson.usesModule("svelte")) {
                 log.info("Detected Svelte project");
                 return ProjectType.SVELTE;
             }
             
             // Check for Gatsby
-            if (packageJson.contains("\"gatsby\"")) {
+            if (packageJson.dependsOn("gatsby")) {
                 log.info("Detected Gatsby project");
                 return ProjectType.GATSBY;
             }
             
             // Check for Express
-            if (packageJson.contains("\"express\"")) {
+            if (packageJson.dependsOn("express")) {
                 log.info("Detected Express.js project");
                 return ProjectType.EXPRESS;
             }
             
             // Check for Koa
-            if (packageJson.contains("\"koa\"")) {
+            if (packageJson.dependsOn("koa")) {
                 log.info("Detected Koa project");
                 return ProjectType.KOA;
             }
             
             // Check for React (fallback)
-            if (packageJson.contains("\"react\"")) {
+            if (packageJson.dependsOn("react")) {
                 log.info("Detected React project");
                 return ProjectType.REACT;
             }
-            
-        } catch (IOException e) {
-            log.error("Error reading package.json", e);
         }
         
         log.info("Detected generic Node.js project");
@@ -152,87 +170,79 @@ public class ProjectDetector {
     }
     
     /**
-     * Detect Java project type
+     * Detect Java project type from the parent, dependencies and plugins of the pom
      */
-    private ProjectType detectJavaProject(String repoPath) {
-        try {
-            String pomXml = Files.readString(Paths.get(repoPath, "pom.xml"));
-            
+    private ProjectType detectJavaProject(RepoSnapshot repo) {
+        PomXml pomXml = repo.manifest("pom.xml", PomXml::parse);
+        if (pomXml != null) {
             // Check for Spring Cloud
-            if (pomXml.contains("spring-cloud")) {
+            if (pomXml.usesGroup("org.springframework.cloud")) {
                 log.info("Detected Spring Cloud project");
                 return ProjectType.SPRING_CLOUD;
             }
             
             // Check for Micronaut
-            if (pomXml.contains("micronaut")) {
+            if (pomXml.usesGroup("io.micronaut")) {
                 log.info("Detected Micronaut project");
                 return ProjectType.MICRONAUT;
             }
             
             // Check for Quarkus
-            if (pomXml.contains("quarkus")) {
+            if (pomXml.usesGroup("io.quarkus")) {
                 log.info("Detected Quarkus project");
                 return ProjectType.QUARKUS;
             }
             
             // Default to Spring Boot
             log.info("Detected Spring Boot project");
-            return ProjectType.SPRING_BOOT;
-            
-        } catch (IOException e) {
-            log.error("Error reading pom.xml", e);
         }
         
         return ProjectType.SPRING_BOOT;
     }
     
     /**
-     * Detect Python project type
+     * Detect Python project type from requirements.txt, pyproject.toml and Pipfile
      */
-    private ProjectType detectPythonProject(String repoPath) {
-        try {
-            // Check for Django
-            if (fileExists(repoPath, "manage.py")) {
-                log.info("Detected Django project");
-                return ProjectType.DJANGO;
-            }
-            
-            // Check for FastAPI
-            if (fileExists(repoPath, "requirements.txt")) {
-                String requirements = Files.readString(Paths.get(repoPath, "requirements.txt"));
-                if (requirements.contains("fastapi")) {
-                    log.info("Detected FastAPI project");
-                    return ProjectType.FASTAPI;
-                }
-                if (requirements.contains("flask")) {
-                    log.info("Detected Flask project");
-                    return ProjectType.FLASK;
-                }
-            }
-            
-        } catch (IOException e) {
-            log.error("Error detecting Python project", e);
+    private ProjectType detectPythonProject(RepoSnapshot repo) {
+        Set<String> dependencies = new HashSet<>();
+        addAll(dependencies, repo.manifest("requirements.txt", PythonDependencies::fromRequirements));
+        addAll(dependencies, repo.manifest("pyproject.toml", PythonDependencies::fromPyproject));
+        addAll(dependencies, repo.manifest("Pipfile", PythonDependencies::fromPipfile));
+        
+        // Check for Django
+        if (repo.has("manage.py") || dependencies.contains("django")) {
+            log.info("Detected Django project");
+            return ProjectType.DJANGO;
+        }
+        
+        // Check for FastAPI
+        if (dependencies.contains("fastapi")) {
+            log.info("Detected FastAPI project");
+            return ProjectType.FASTAPI;
+        }
+        if (dependencies.contains("flask")) {
+            log.info("Detected Flask project");
+            return ProjectType.FLASK;
         }
         
         log.info("Detected Flask project (default)");
         return ProjectType.FLASK;
     }
     
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+    
     /**
      * Detect Go project type
      */
-    private ProjectType detectGoProject(String repoPath) {
-        try {
-            String goMod = Files.readString(Paths.get(repoPath, "go.mod"));
-            
-            if (goMod.contains("github.com/gin-gonic/gin")) {
-                log.info("Detected Gin project");
-                return ProjectType.GIN;
-            }
-            
-        } catch (IOException e) {
-            log.error("Error reading go.mod", e);
+    private ProjectType detectGoProject(RepoSnapshot repo) {
+        GoMod goMod = repo.manifest("go.mod", GoMod::parse);
+        if (goMod != null && goMod.requiresModule("github.com/gin-gonic/gin")) {
+            log.info("Detected Gin project");
+            return ProjectType.GIN;
         }
         
         log.info("Detected Go project");
@@ -242,13 +252,13 @@ public class ProjectDetector {
     /**
      * Detect Ruby project type
      */
-    private ProjectType detectRubyProject(String repoPath) {
-        if (fileExists(repoPath, "config.ru") || fileExists(repoPath, "config/application.rb")) {
+    private ProjectType detectRubyProject(RepoSnapshot repo) {
+        if (repo.has("config.ru") || repo.has("config/application.rb")) {
             log.info("Detected Ruby on Rails project");
             return ProjectType.RAILS;
         }
         
-        if (fileExists(repoPath, "_config.yml")) {
+        if (repo.has("_config.yml")) {
             log.info("Detected Jekyll project");
             return ProjectType.JEKYLL;
         }
@@ -259,8 +269,8 @@ public class ProjectDetector {
     /**
      * Detect PHP project type
      */
-    private ProjectType detectPhpProject(String repoPath) {
-        if (fileExists(repoPath, "artisan")) {
+    private ProjectType detectPhpProject(RepoSnapshot repo) {
+        if (repo.has("artisan")) {
             log.info("Detected Laravel project");
             return ProjectType.LARAVEL;
         }
@@ -272,40 +282,35 @@ public class ProjectDetector {
      * Detect port from project configuration
      */
     public int detectPort(String repoPath, ProjectType projectType) {
-        // Try to find port in common config files
-        try {
-            // Node.js - check package.json scripts
-            if (fileExists(repoPath, "package.json")) {
-                String packageJson = Files.readString(Paths.get(repoPath, "package.json"));
-                // Look for PORT=xxxx in start script
-                if (packageJson.contains("PORT=")) {
-                    // Extract port number
-                    int portIndex = packageJson.indexOf("PORT=");
-                    String portStr = packageJson.substring(portIndex + 5, Math.min(portIndex + 9, packageJson.length()));
-                    try {
-                        return Integer.parseInt(portStr.replaceAll("[^0-9]", "").substring(0, 4));
-                    } catch (Exception e) {
-                        // Continue to default
-                    }
-                }
+        return detectPort(RepoSnapshot.scan(repoPath), projectType);
+    }
+    
+    /**
+     * Detect port from an existing snapshot, reusing manifests already parsed by {@link #detect}.
+     * Looks at the npm start script, then at application.properties/yml in the locations
+     * Spring Boot, Quarkus and Micronaut read them from.
+     */
+    public int detectPort(RepoSnapshot repo, ProjectType projectType) {
+        PackageJson packageJson = repo.manifest("package.json", PackageJson::parse);
+        if (packageJson != null) {
+            Integer port = ServerPort.fromScript(packageJson.script("start"));
+            if (port != null) {
+                return port;
             }
-            
-            // Java - check application.properties
-            if (fileExists(repoPath, "src/main/resources/application.properties")) {
-                String props = Files.readString(Paths.get(repoPath, "src/main/resources/application.properties"));
-                if (props.contains("server.port=")) {
-                    int portIndex = props.indexOf("server.port=");
-                    String portStr = props.substring(portIndex + 12).split("[^0-9]")[0];
-                    try {
-                        return Integer.parseInt(portStr);
-                    } catch (Exception e) {
-                        // Continue to default
-                    }
-                }
+        }
+        
+        for (String dir : CONFIG_DIRS) {
+            Integer port = repo.manifest(dir + "application.properties",
+                    content -> ServerPort.fromProperties(content, PORT_KEYS));
+            if (port == null) {
+                port = repo.manifest(dir + "application.yml", content -> ServerPort.fromYaml(content, PORT_KEYS));
+            }
+            if (port == null) {
+                port = repo.manifest(dir + "application.yaml", content -> ServerPort.fromYaml(content, PORT_KEYS));
+            }
+            if (port != null) {
+                return port;
             }
-            
-        } catch (IOException e) {
-            log.error("Error detecting port", e);
         }
         
         // Return default port for project type
@@ -313,21 +318,115 @@ public class ProjectDetector {
     }
     
     /**
-     * Check if file exists in repository
+     * Detect a workspace declared at the root of a repository
+     * @param repo Snapshot of the repository root
+     * @return Workspace with its members, or null if the root declares none
+     */
+    public Workspace detectWorkspace(RepoSnapshot repo) {
+        if (!repo.isDirectory()) {
+            return null;
+        }
+        
+        List<String> pnpmGlobs = repo.manifest("pnpm-workspace.yaml", ProjectDetector::parsePnpmWorkspace);
+        if (pnpmGlobs != null && !pnpmGlobs.isEmpty()) {
+            return workspace(Workspace.Kind.PNPM, expandMembers(repo, pnpmGlobs, "package.json"));
+        }
+        
+        PackageJson packageJson = repo.manifest("package.json", PackageJson::parse);
+        if (packageJson != null && !packageJson.workspaces().isEmpty()) {
+            Workspace.Kind kind = repo.has("yarn.lock") ? Workspace.Kind.YARN : Workspace.Kind.NPM;
+            return workspace(kind, expandMembers(repo, packageJson.workspaces(), "package.json"));
+        }
+        
+        PomXml pomXml = repo.manifest("pom.xml", PomXml::parse);
+        if (pomXml != null && pomXml.isAggregator()) {
+            return workspace(Workspace.Kind.MAVEN, expandMembers(repo, pomXml.modules(), "pom.xml"));
+        }
+        
+        return null;
+    }
+    
+    private Workspace workspace(Workspace.Kind kind, List<String> members) {
+        log.info("Detected {} workspace with {} members", kind, members.size());
+        return new Workspace(kind, members);
+    }
+    
+    /**
+     * Resolve workspace globs to member directories. Supports literal paths, a trailing "*"
+     * or "**" segment (matched one level deep) and "!" exclusions; a member must contain its manifest.
+     */
+    private List<String> expandMembers(RepoSnapshot repo, List<String> globs, String manifest) {
+        Set<String> members = new LinkedHashSet<>();
+        Set<String> excluded = new HashSet<>();
+        for (String glob : globs) {
+            boolean negated = glob.startsWith("!");
+            String pattern = normalizeDirectory(negated ? glob.substring(1) : glob);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            
+            Set<String> target = negated ? excluded : members;
+            int slash = pattern.lastIndexOf('/');
+            String parent = slash < 0 ? "" : pattern.substring(0, slash);
+            String last = pattern.substring(slash + 1);
+            if ((last.equals("*") || last.equals("**")) && !parent.contains("*")) {
+                for (String name : repo.listDirectories(parent)) {
+                    target.add(parent.isEmpty() ? name : parent + "/" + name);
+                }
+            } else if (!pattern.contains("*")) {
+                target.add(pattern);
+            } else {
+                log.warn("Unsupported workspace pattern ignored: {}", glob);
+            }
+        }
+        members.removeAll(excluded);
+        
+        List<String> resolved = new ArrayList<>();
+        for (String member : members) {
+            if (Files.isRegularFile(repo.getRoot().resolve(member).resolve(manifest))) {
+                resolved.add(member);
+            }
+        }
+        return resolved;
+    }
+    
+    /**
+     * Normalize a directory inside the repository to a '/' separated relative path
+     * @return Normalized path, "" for the root itself, or null if the path leaves the repository
      */
-    private boolean fileExists(String repoPath, String fileName) {
-        return Files.exists(Paths.get(repoPath, fileName));
+    public static String normalizeDirectory(String path) {
+        if (path == null) {
+            return "";
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (segment.equals("..")) {
+                return null;
+            }
+            if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+    
+    private static List<String> parsePnpmWorkspace(String content) {
+        Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(content);
+        List<String> globs = new ArrayList<>();
+        if (document instanceof Map<?, ?> map && map.get("packages") instanceof List<?> packages) {
+            for (Object glob : packages) {
+                if (glob instanceof String text) {
+                    globs.add(text);
+                }
+            }
+        }
+        return globs;
     }
     
     /**
      * Check if repository has framework files (not just static HTML)
      */
-    private boolean hasFrameworkFiles(String repoPath) {
-        return fileExists(repoPath, "package.json") ||
-               fileExists(repoPath, "pom.xml") ||
-               fileExists(repoPath, "requirements.txt") ||
-               fileExists(repoPath, "go.mod") ||
-               fileExists(repoPath, "Gemfile") ||
-               fileExists(repoPath, "composer.json");
+    private boolean hasFrameworkFiles(RepoSnapshot repo) {
+        return repo.hasAny("package.json", "pom.xml", "requirements.txt", "pyproject.toml", "go.mod", "Gemfile", "composer.json");
     }
 }
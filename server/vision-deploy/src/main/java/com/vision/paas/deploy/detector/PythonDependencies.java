@@ -0,0 +1,105 @@
+package com.vision.paas.deploy.detector;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Python distribution names declared by requirements.txt, pyproject.toml (PEP 621 and Poetry)
+ * and Pipfile. Names are normalized as in PEP 503, e.g. "Flask_SQLAlchemy" becomes "flask-sqlalchemy".
+ */
+public final class PythonDependencies {
+    
+    private static final Pattern NAME = Pattern.compile("^\\s*([A-Za-z0-9][A-Za-z0-9._-]*)");
+    private static final Pattern QUOTED = Pattern.compile("\"([^\"]*)\"|'([^']*)'");
+    
+    private PythonDependencies() {
+    }
+    
+    public static Set<String> fromRequirements(String content) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String line : content.split("\n")) {
+            String requirement = stripComment(line).trim();
+            // Options such as -r other.txt or --index-url
+            if (requirement.isEmpty() || requirement.startsWith("-")) {
+                continue;
+            }
+            addName(requirement, names);
+        }
+        return names;
+    }
+    
+    /**
+     * [project] dependencies and the keys of [tool.poetry.dependencies]
+     */
+    public static Set<String> fromPyproject(String content) {
+        Set<String> names = new LinkedHashSet<>();
+        String table = "";
+        boolean inDependencyArray = false;
+        for (String rawLine : content.split("\n")) {
+            String line = stripComment(rawLine).trim();
+            if (inDependencyArray) {
+                addQuotedNames(line, names);
+                if (line.contains("]")) {
+                    inDependencyArray = false;
+                }
+                continue;
+            }
+            if (line.startsWith("[")) {
+                table = line.replaceAll("[\\[\\]\\s]", "");
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (equals <= 0) {
+                continue;
+            }
+            String key = line.substring(0, equals).trim();
+            String value = line.substring(equals + 1).trim();
+            if (table.equals("project") && key.equals("dependencies")) {
+                addQuotedNames(value, names);
+                inDependencyArray = value.startsWith("[") && !value.contains("]");
+            } else if (table.equals("tool.poetry.dependencies") && !key.equals("python")) {
+                addName(key.replace("\"", ""), names);
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Keys of the [packages] table
+     */
+    public static Set<String> fromPipfile(String content) {
+        Set<String> names = new LinkedHashSet<>();
+        String table = "";
+        for (String rawLine : content.split("\n")) {
+            String line = stripComment(rawLine).trim();
+            if (line.startsWith("[")) {
+                table = line.replaceAll("[\\[\\]\\s]", "");
+            } else if (table.equals("packages") && line.indexOf('=') > 0) {
+                addName(line.substring(0, line.indexOf('=')).trim().replace("\"", ""), names);
+            }
+        }
+        return names;
+    }
+    
+    private static void addQuotedNames(String line, Set<String> names) {
+        Matcher quoted = QUOTED.matcher(line);
+        while (quoted.find()) {
+            addName(quoted.group(1) != null ? quoted.group(1) : quoted.group(2), names);
+        }
+    }
+    
+    private static void addName(String requirement, Set<String> names) {
+        Matcher name = NAME.matcher(requirement);
+        if (name.find()) {
+            names.add(name.group(1).toLowerCase(Locale.ROOT).replaceAll("[-_.]+", "-"));
+        }
+    }
+    
+    private static String stripComment(String line) {
+        int hash = line.indexOf('#');
+        return hash >= 0 ? line.substring(0, hash) : line;
+    }
+}
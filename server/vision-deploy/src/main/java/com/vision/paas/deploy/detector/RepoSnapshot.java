@@ -0,0 +1,169 @@
+package com.vision.paas.deploy.detector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Repository Snapshot
+ * The files of a checkout that detection and Dockerfile generation look at, taken from one
+ * listing of the root plus a few well-known subdirectories. Existence checks are answered
+ * from memory and manifests are read and parsed at most once, on first use.
+ */
+@Slf4j
+public final class RepoSnapshot {
+    
+    /**
+     * Subdirectories listed besides the root, when present
+     */
+    private static final List<String> SCANNED_DIRS = List.of("config", "src/main/resources");
+    
+    private final Path root;
+    private final boolean directory;
+    private final Set<String> files;
+    private final Map<String, Optional<String>> contents = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Object>> manifests = new ConcurrentHashMap<>();
+    
+    private RepoSnapshot(Path root, boolean directory, Set<String> files) {
+        this.root = root;
+        this.directory = directory;
+        this.files = files;
+    }
+    
+    /**
+     * List the repository
+     * @param repoPath Checkout directory
+     * @return Snapshot; empty if the path is not a readable directory
+     */
+    public static RepoSnapshot scan(String repoPath) {
+        Path root = Paths.get(repoPath);
+        Set<String> files = new HashSet<>();
+        if (!list(root, "", files)) {
+            return new RepoSnapshot(root, false, Set.of());
+        }
+        for (String dir : SCANNED_DIRS) {
+            // Skip the lookup when the top-level directory is not there at all
+            if (files.contains(dir.split("/")[0])) {
+                list(root.resolve(dir), dir + "/", files);
+            }
+        }
+        return new RepoSnapshot(root, true, files);
+    }
+    
+    /**
+     * @return false if the directory does not exist or cannot be read
+     */
+    private static boolean list(Path dir, String prefix, Set<String> files) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                files.add(prefix + entry.getFileName());
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to list {}", dir, e);
+            return false;
+        }
+    }
+    
+    public Path getRoot() {
+        return root;
+    }
+    
+    /**
+     * Whether the repository path was a readable directory
+     */
+    public boolean isDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Whether a file or directory exists
+     * @param relativePath Path below the root with '/' separators, in the root or a scanned subdirectory
+     */
+    public boolean has(String relativePath) {
+        return files.contains(relativePath);
+    }
+    
+    public boolean hasAny(String... relativePaths) {
+        for (String path : relativePaths) {
+            if (files.contains(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Content of a file, read once and cached
+     * @return Content, or null if the file does not exist or cannot be read
+     */
+    public String read(String relativePath) {
+        if (!files.contains(relativePath)) {
+            return null;
+        }
+        return contents.computeIfAbsent(relativePath, path -> {
+            try {
+                return Optional.of(Files.readString(root.resolve(path)));
+            } catch (IOException e) {
+                log.error("Error reading {}", path, e);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+    
+    /**
+     * Parsed form of a manifest, parsed once and cached; the same path must always be
+     * parsed with the same parser
+     * @return Parsed manifest, or null if the file does not exist or does not parse
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T manifest(String relativePath, Function<String, T> parser) {
+        String content = read(relativePath);
+        if (content == null) {
+            return null;
+        }
+        return (T) manifests.computeIfAbsent(relativePath, path -> {
+            try {
+                return Optional.ofNullable(parser.apply(content));
+            } catch (RuntimeException e) {
+                log.warn("Ignoring unparseable {} in {}: {}", path, root, e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+    
+    /**
+     * Subdirectories of a directory, read from disk rather than the snapshot
+     * @param relativeDir Directory below the root, or "" for the root itself
+     * @return Names of the subdirectories, empty if the directory does not exist
+     */
+    public List<String> listDirectories(String relativeDir) {
+        List<String> names = new ArrayList<>();
+        Path dir = relativeDir.isEmpty() ? root : root.resolve(relativeDir);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+        } catch (NoSuchFileException e) {
+            // No such directory: no members
+        } catch (IOException e) {
+            log.warn("Failed to list {}", dir, e);
+        }
+        return names;
+    }
+}
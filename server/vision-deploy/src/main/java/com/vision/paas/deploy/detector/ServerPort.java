@@ -0,0 +1,110 @@
+package com.vision.paas.deploy.detector;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the listening port out of application configuration and npm scripts.
+ * Placeholders such as ${PORT:8081} resolve to their default; a placeholder without
+ * a default yields no port.
+ */
+final class ServerPort {
+    
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{[^:}]+:(\\d+)}");
+    private static final Pattern SCRIPT_PORT = Pattern.compile("(?:\\bPORT=|--port[= ]|(?:^|\\s)-p )(\\d{2,5})\\b");
+    
+    private ServerPort() {
+    }
+    
+    /**
+     * @param keys Property keys to try in order, e.g. "server.port"
+     * @return Port, or null if none of the keys holds a usable value
+     */
+    static Integer fromProperties(String content, List<String> keys) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(content));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        for (String key : keys) {
+            Integer port = parse(properties.getProperty(key));
+            if (port != null) {
+                return port;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Looks keys up both nested (server: port:) and flat (server.port:), in every document
+     */
+    static Integer fromYaml(String content, List<String> keys) {
+        Yaml yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
+        try {
+            for (Object document : yaml.loadAll(content)) {
+                if (!(document instanceof Map<?, ?> map)) {
+                    continue;
+                }
+                for (String key : keys) {
+                    Integer port = parse(lookup(map, key));
+                    if (port != null) {
+                        return port;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Malformed YAML: fall back to the default port
+        }
+        return null;
+    }
+    
+    /**
+     * Port passed on a command line, e.g. "PORT=4000 node server.js" or "next start -p 4000"
+     */
+    static Integer fromScript(String script) {
+        if (script == null) {
+            return null;
+        }
+        Matcher matcher = SCRIPT_PORT.matcher(script);
+        return matcher.find() ? parse(matcher.group(1)) : null;
+    }
+    
+    private static Object lookup(Map<?, ?> map, String key) {
+        if (map.containsKey(key)) {
+            return map.get(key);
+        }
+        int dot = key.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        Object child = map.get(key.substring(0, dot));
+        return child instanceof Map<?, ?> childMap ? lookup(childMap, key.substring(dot + 1)) : null;
+    }
+    
+    private static Integer parse(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        Matcher placeholder = PLACEHOLDER.matcher(text);
+        if (placeholder.matches()) {
+            text = placeholder.group(1);
+        }
+        try {
+            int port = Integer.parseInt(text);
+            return port > 0 && port <= 65535 ? port : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
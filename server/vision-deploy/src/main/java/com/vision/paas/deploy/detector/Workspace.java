@@ -0,0 +1,34 @@
+package com.vision.paas.deploy.detector;
+
+import java.util.List;
+
+/**
+ * Workspace
+ * A monorepo declared at the repository root: npm/Yarn workspaces, a pnpm workspace
+ * or a Maven multi-module build
+ * @param kind Tool that owns the workspace
+ * @param members Member directories relative to the root, '/' separated, globs expanded
+ */
+public record Workspace(
+        Kind kind,
+        List<String> members) {
+    
+    public enum Kind {
+        NPM,
+        YARN,
+        PNPM,
+        MAVEN;
+        
+        public boolean isNode() {
+            return this != MAVEN;
+        }
+    }
+    
+    /**
+     * Whether a directory is one of the members
+     * @param directory Directory relative to the root, '/' separated
+     */
+    public boolean contains(String directory) {
+        return members.contains(directory);
+    }
+}
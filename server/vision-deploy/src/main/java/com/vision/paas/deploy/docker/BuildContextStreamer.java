@@ -0,0 +1,202 @@
+package com.vision.paas.deploy.docker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Build Context Streamer
+ * Produces the Docker build context as a tar stream while the daemon reads it:
+ * the repository is walked once, .dockerignore and built-in excludes are applied,
+ * and the generated Dockerfile is added as an in-memory entry. Nothing is staged
+ * on disk or buffered in memory beyond the pipe.
+ */
+@Slf4j
+@Component
+public class BuildContextStreamer {
+    
+    private static final int PIPE_BUFFER_SIZE = 256 * 1024;
+    private static final String DOCKERFILE_ENTRY = "Dockerfile";
+    
+    private final AtomicInteger threadNumber = new AtomicInteger();
+    private final ExecutorService producers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "build-context-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PreDestroy
+    public void shutdown() {
+        producers.shutdownNow();
+    }
+    
+    /**
+     * Start streaming a build context
+     * @param contextRoot Repository checkout to send
+     * @param dockerfileContent Dockerfile to place at the context root
+     * @return Stream to hand to the daemon, with statistics available once it is drained
+     */
+    public BuildContext open(Path contextRoot, String dockerfileContent) throws IOException {
+        DockerIgnore ignore = DockerIgnore.load(contextRoot);
+        PipedInputStream input = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream output = new PipedOutputStream(input);
+        BuildContext context = new BuildContext(input);
+        
+        CompletableFuture.runAsync(() -> {
+            long started = System.nanoTime();
+            CountingOutputStream counter = new CountingOutputStream(output);
+            try (TarArchiveOutputStream tar = new TarArchiveOutputStream(counter)) {
+                tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                
+                byte[] dockerfile = dockerfileContent.getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry dockerfileEntry = new TarArchiveEntry(DOCKERFILE_ENTRY);
+                dockerfileEntry.setSize(dockerfile.length);
+                dockerfileEntry.setMode(0644);
+                tar.putArchiveEntry(dockerfileEntry);
+                tar.write(dockerfile);
+                tar.closeArchiveEntry();
+                
+                int files = writeTree(tar, contextRoot, ignore);
+                tar.finish();
+                context.complete(files + 1, counter.count, (System.nanoTime() - started) / 1_000_000, null);
+            } catch (Exception e) {
+                context.complete(0, counter.count, (System.nanoTime() - started) / 1_000_000, e);
+                log.debug("Build context stream aborted: {}", e.getMessage());
+            }
+        }, producers);
+        
+        return context;
+    }
+    
+    private int writeTree(TarArchiveOutputStream tar, Path root, DockerIgnore ignore) throws IOException {
+        AtomicInteger files = new AtomicInteger();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(root)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = relativeName(root, dir);
+                if (ignore.canPrune(name)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (!ignore.isExcluded(name)) {
+                    TarArchiveEntry entry = new TarArchiveEntry(name + "/");
+                    entry.setMode(040755);
+                    entry.setModTime(attrs.lastModifiedTime().toMillis());
+                    tar.putArchiveEntry(entry);
+                    tar.closeArchiveEntry();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = relativeName(root, file);
+                if (name.equals(DOCKERFILE_ENTRY) || ignore.isExcluded(name)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                if (attrs.isSymbolicLink()) {
+                    TarArchiveEntry entry = new TarArchiveEntry(name, TarConstants.LF_SYMLINK);
+                    entry.setLinkName(Files.readSymbolicLink(file).toString());
+                    tar.putArchiveEntry(entry);
+                    tar.closeArchiveEntry();
+                } else if (attrs.isRegularFile()) {
+                    TarArchiveEntry entry = new TarArchiveEntry(name);
+                    entry.setSize(attrs.size());
+                    entry.setMode(Files.isExecutable(file) ? 0100755 : 0100644);
+                    entry.setModTime(attrs.lastModifiedTime().toMillis());
+                    tar.putArchiveEntry(entry);
+                    Files.copy(file, tar);
+                    tar.closeArchiveEntry();
+                }
+                files.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files.get();
+    }
+    
+    private static String relativeName(Path root, Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+    
+    /**
+     * A build context being streamed to the daemon
+     */
+    public static class BuildContext {
+        private final InputStream stream;
+        private final CompletableFuture<Stats> stats = new CompletableFuture<>();
+        
+        BuildContext(InputStream stream) {
+            this.stream = stream;
+        }
+        
+        public InputStream getStream() {
+            return stream;
+        }
+        
+        /**
+         * Statistics, completed once the whole context has been handed to the daemon
+         */
+        public CompletableFuture<Stats> getStats() {
+            return stats;
+        }
+        
+        void complete(int files, long bytes, long uploadMs, Exception error) {
+            if (error != null) {
+                stats.completeExceptionally(error);
+            } else {
+                stats.complete(new Stats(files, bytes, uploadMs));
+            }
+        }
+    }
+    
+    /**
+     * Size of a streamed build context and how long the daemon took to take it
+     */
+    public record Stats(int files, long bytes, long uploadMs) {
+    }
+    
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
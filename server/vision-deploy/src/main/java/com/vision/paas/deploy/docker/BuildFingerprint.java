@@ -0,0 +1,59 @@
+package com.vision.paas.deploy.docker;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Content address of an image build: the same commit built with the same Dockerfile
+ * from the same build context directory produces the same fingerprint, so an image
+ * carrying it can be reused as is.
+ * @param value SHA-256 over the commit SHA, the context directory and the Dockerfile, hex encoded
+ * @param commitSha Source commit the image is built from
+ */
+public record BuildFingerprint(String value, String commitSha) {
+    
+    public static final String LABEL_PROJECT = "vision.project";
+    public static final String LABEL_FINGERPRINT = "vision.fingerprint";
+    public static final String LABEL_COMMIT = "vision.commit";
+    
+    public static BuildFingerprint of(String commitSha, String dockerfile) {
+        return of(commitSha, "", dockerfile);
+    }
+    
+    /**
+     * @param contextDirectory Build context relative to the checkout, "" for the root;
+     *                         the root keeps the fingerprints of images built before monorepo support
+     */
+    public static BuildFingerprint of(String commitSha, String contextDirectory, String dockerfile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(commitSha.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (contextDirectory != null && !contextDirectory.isEmpty()) {
+                digest.update(contextDirectory.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update(dockerfile.getBytes(StandardCharsets.UTF_8));
+            return new BuildFingerprint(HexFormat.of().formatHex(digest.digest()), commitSha);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Image tag derived from the fingerprint
+     */
+    public String tag() {
+        return value.substring(0, 12);
+    }
+    
+    public Map<String, String> labels(String projectId) {
+        return Map.of(
+                LABEL_PROJECT, projectId,
+                LABEL_FINGERPRINT, value,
+                LABEL_COMMIT, commitSha);
+    }
+}
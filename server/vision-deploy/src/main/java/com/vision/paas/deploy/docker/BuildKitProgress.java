@@ -0,0 +1,170 @@
+package com.vision.paas.deploy.docker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * BuildKit Progress
+ * Turns the moby.buildkit.trace messages of a BuildKit build into plain output lines, in the
+ * style of {@code docker build --progress=plain}: each step is numbered when it starts, followed
+ * by its log lines and whether it was cached or failed.
+ * <p>
+ * The trace is a protobuf StatusResponse of the BuildKit control API. Only the fields needed
+ * here are read, so the decoder stays a few lines instead of pulling in the generated classes:
+ * vertexes (1: digest 1, name 3, cached 4, started 5, error 7) and logs (3: vertex 1, msg 4).
+ */
+class BuildKitProgress {
+    
+    private final Consumer<String> output;
+    private final Map<String, Integer> steps = new HashMap<>();
+    private final Set<String> reported = new HashSet<>();
+    
+    BuildKitProgress(Consumer<String> output) {
+        this.output = output;
+    }
+    
+    /**
+     * Apply one decoded trace message
+     */
+    void accept(byte[] statusResponse) {
+        ProtoReader reader = new ProtoReader(statusResponse);
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            if (tag == (1 << 3 | 2)) {
+                vertex(new ProtoReader(reader.readBytes()));
+            } else if (tag == (3 << 3 | 2)) {
+                log(new ProtoReader(reader.readBytes()));
+            } else {
+                reader.skip(tag);
+            }
+        }
+    }
+    
+    private void vertex(ProtoReader reader) {
+        String digest = null;
+        String name = null;
+        String error = null;
+        boolean cached = false;
+        boolean started = false;
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            switch (tag) {
+                case 1 << 3 | 2 -> digest = reader.readString();
+                case 3 << 3 | 2 -> name = reader.readString();
+                case 4 << 3 -> cached = reader.readVarint() != 0;
+                case 5 << 3 | 2 -> {
+                    reader.readBytes();
+                    started = true;
+                }
+                case 7 << 3 | 2 -> error = reader.readString();
+                default -> reader.skip(tag);
+            }
+        }
+        if (digest == null) {
+            return;
+        }
+        int step = step(digest);
+        if ((started || cached) && reported.add(digest + ":start") && name != null) {
+            output.accept("#" + step + " " + name);
+        }
+        if (cached && reported.add(digest + ":cached")) {
+            output.accept("#" + step + " CACHED");
+        }
+        if (error != null && !error.isEmpty() && reported.add(digest + ":error")) {
+            output.accept("#" + step + " ERROR: " + error);
+        }
+    }
+    
+    private void log(ProtoReader reader) {
+        String digest = null;
+        byte[] message = null;
+        while (reader.hasMore()) {
+            int tag = reader.readTag();
+            switch (tag) {
+                case 1 << 3 | 2 -> digest = reader.readString();
+                case 4 << 3 | 2 -> message = reader.readBytes();
+                default -> reader.skip(tag);
+            }
+        }
+        if (digest == null || message == null) {
+            return;
+        }
+        String prefix = "#" + step(digest) + " ";
+        for (String line : new String(message, StandardCharsets.UTF_8).split("\\r?\\n")) {
+            if (!line.isBlank()) {
+                output.accept(prefix + line);
+            }
+        }
+    }
+    
+    private int step(String digest) {
+        return steps.computeIfAbsent(digest, key -> steps.size() + 1);
+    }
+    
+    /**
+     * Minimal protobuf wire format reader
+     */
+    static class ProtoReader {
+        private final byte[] data;
+        private int position;
+        
+        ProtoReader(byte[] data) {
+            this.data = data;
+        }
+        
+        boolean hasMore() {
+            return position < data.length;
+        }
+        
+        int readTag() {
+            return (int) readVarint();
+        }
+        
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+        
+        byte[] readBytes() {
+            int length = (int) readVarint();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Truncated field");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+        
+        String readString() {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+        
+        /**
+         * Skip the value of a field this decoder does not use
+         */
+        void skip(int tag) {
+            switch (tag & 7) {
+                case 0 -> readVarint();
+                case 1 -> position += 8;
+                case 2 -> readBytes();
+                case 5 -> position += 4;
+                default -> throw new IllegalArgumentException("Unsupported wire type " + (tag & 7));
+            }
+        }
+    }
+}
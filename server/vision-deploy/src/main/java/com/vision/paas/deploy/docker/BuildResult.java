@@ -0,0 +1,19 @@
+package com.vision.paas.deploy.docker;
+
+/**
+ * Outcome of an image build
+ * @param imageId Built image ID
+ * @param contextFiles Number of entries sent in the build context
+ * @param contextBytes Size of the build context tar
+ * @param uploadMs Time until the daemon had read the whole context
+ * @param buildMs Total build time including the upload
+ * @param host Docker host that built the image
+ */
+public record BuildResult(
+        String imageId,
+        int contextFiles,
+        long contextBytes,
+        long uploadMs,
+        long buildMs,
+        String host) {
+}
@@ -0,0 +1,70 @@
+package com.vision.paas.deploy.docker;
+
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.ExposedPort;
+import com.github.dockerjava.api.model.Ports;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last known state of a container
+ * @param containerId Container ID
+ * @param name Container name without the leading slash
+ * @param status Docker status: created, running, exited, ...
+ * @param health Health check status, null when the image defines no health check
+ * @param startedAt Start time as reported by Docker
+ * @param ports Host ports keyed by container port
+ * @param memoryLimit Memory limit in bytes, 0 when unlimited
+ * @param updatedAt Epoch millis of the last update
+ */
+public record ContainerState(
+        String containerId,
+        String name,
+        String status,
+        String health,
+        String startedAt,
+        Map<Integer, Integer> ports,
+        long memoryLimit,
+        long updatedAt) {
+    
+    static ContainerState of(InspectContainerResponse inspect) {
+        var state = inspect.getState();
+        String health = state.getHealth() != null ? state.getHealth().getStatus() : null;
+        
+        Map<Integer, Integer> ports = new LinkedHashMap<>();
+        if (inspect.getNetworkSettings() != null && inspect.getNetworkSettings().getPorts() != null) {
+            for (Map.Entry<ExposedPort, Ports.Binding[]> entry
+                    : inspect.getNetworkSettings().getPorts().getBindings().entrySet()) {
+                Ports.Binding[] bindings = entry.getValue();
+                if (bindings != null && bindings.length > 0 && bindings[0].getHostPortSpec() != null) {
+                    ports.put(entry.getKey().getPort(), Integer.parseInt(bindings[0].getHostPortSpec()));
+                }
+            }
+        }
+        
+        String name = inspect.getName();
+        Long memory = inspect.getHostConfig() != null ? inspect.getHostConfig().getMemory() : null;
+        return new ContainerState(inspect.getId(),
+                name != null && name.startsWith("/") ? name.substring(1) : name,
+                state.getStatus(), health, state.getStartedAt(),
+                Collections.unmodifiableMap(ports), memory != null ? memory : 0, System.currentTimeMillis());
+    }
+    
+    public boolean isRunning() {
+        return "running".equalsIgnoreCase(status);
+    }
+    
+    ContainerState withStatus(String status) {
+        // Stopped containers release their host ports
+        Map<Integer, Integer> ports = "running".equalsIgnoreCase(status) ? this.ports : Map.of();
+        return new ContainerState(containerId, name, status, health, startedAt, ports, memoryLimit,
+                System.currentTimeMillis());
+    }
+    
+    ContainerState withHealth(String health) {
+        return new ContainerState(containerId, name, status, health, startedAt, ports, memoryLimit,
+                System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,261 @@
+package com.vision.paas.deploy.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container State Cache
+ * Mirrors the state of deployment containers from a single Docker event subscription.
+ * Start events trigger one inspect to pick up the port bindings; die, stop, destroy and
+ * health events are applied without calling the daemon. Lookups of containers that have
+ * not produced an event yet fall back to an inspect; only deployment containers are cached,
+ * since no events keep others up to date. After the event stream drops, it is
+ * resubscribed and every container is re-inspected, so events missed meanwhile do not leave
+ * stale entries.
+ */
+@Slf4j
+class ContainerStateCache implements Closeable {
+    
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+    
+    private final DockerClient dockerClient;
+    private final Map<String, ContainerState> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idsByName = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reconnector;
+    private volatile EventStream subscription;
+    private volatile boolean closed;
+    private volatile long reconnectDelayMs = 1000;
+    
+    ContainerStateCache(String hostName, DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+        this.reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docker-events-" + hostName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Subscribe to container events and load the current state of all deployment containers
+     */
+    void start() {
+        subscribe();
+        resync();
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        reconnector.shutdownNow();
+        closeSubscription();
+    }
+    
+    /**
+     * State of a container by ID or name, inspecting it once if no event has been seen for it
+     * @return State, or null if the container does not exist
+     */
+    ContainerState get(String idOrName) {
+        ContainerState state = find(idOrName);
+        if (state != null) {
+            return state;
+        }
+        try {
+            InspectContainerResponse inspect = dockerClient.inspectContainerCmd(idOrName).exec();
+            ContainerState inspected = ContainerState.of(inspect);
+            if (!isManaged(inspect)) {
+                // No events arrive for it, so a cached copy would go stale
+                return inspected;
+            }
+            // An event that arrived meanwhile is newer than this inspect
+            ContainerState existing = byId.putIfAbsent(inspected.containerId(), inspected);
+            idsByName.put(inspected.name(), inspected.containerId());
+            return existing != null ? existing : inspected;
+        } catch (Exception e) {
+            log.debug("Container {} not found", idOrName, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Cached state of a container by ID or name, without asking the daemon
+     * @return State, or null if no event or lookup has been seen for it
+     */
+    ContainerState find(String idOrName) {
+        ContainerState state = byId.get(idOrName);
+        if (state == null) {
+            String id = idsByName.get(idOrName);
+            state = id != null ? byId.get(id) : null;
+        }
+        return state;
+    }
+    
+    /**
+     * All known deployment containers
+     */
+    Collection<ContainerState> getAll() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+    
+    private void subscribe() {
+        subscription = dockerClient.eventsCmd()
+                .withEventTypeFilter(EventType.CONTAINER)
+                .withLabelFilter(BuildFingerprint.LABEL_PROJECT)
+                .exec(new EventStream());
+    }
+    
+    private void apply(Event event) {
+        String id = event.getId();
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        if (id == null || action == null) {
+            return;
+        }
+        
+        if (action.startsWith("health_status")) {
+            String health = action.substring(action.indexOf(':') + 1).trim();
+            byId.computeIfPresent(id, (key, state) -> state.withHealth(health));
+            return;
+        }
+        switch (action) {
+            case "start", "restart", "unpause" -> refresh(id);
+            case "die", "stop", "kill", "oom" -> updateStatus(id, "exited", event);
+            case "pause" -> updateStatus(id, "paused", event);
+            case "destroy" -> remove(id);
+            default -> { }
+        }
+    }
+    
+    /**
+     * Re-inspect a container, for callers that just changed it and cannot wait for its event
+     */
+    void refresh(String idOrName) {
+        try {
+            InspectContainerResponse inspect = dockerClient.inspectContainerCmd(idOrName).exec();
+            if (!isManaged(inspect)) {
+                return;
+            }
+            ContainerState state = ContainerState.of(inspect);
+            byId.put(state.containerId(), state);
+            idsByName.put(state.name(), state.containerId());
+        } catch (Exception e) {
+            log.debug("Failed to inspect container {}", idOrName, e);
+        }
+    }
+    
+    /**
+     * Only deployment containers produce events on the subscription
+     */
+    private static boolean isManaged(InspectContainerResponse inspect) {
+        return inspect.getConfig() != null && inspect.getConfig().getLabels() != null
+                && inspect.getConfig().getLabels().containsKey(BuildFingerprint.LABEL_PROJECT);
+    }
+    
+    private void updateStatus(String id, String status, Event event) {
+        ContainerState state = byId.computeIfPresent(id, (key, current) -> current.withStatus(status));
+        if (state == null) {
+            // First event seen for this container; record it so a concurrent lookup cannot
+            // overwrite the stop with an older inspect
+            String name = event.getActor() != null && event.getActor().getAttributes() != null ?
+                    event.getActor().getAttributes().get("name") : null;
+            state = new ContainerState(id, name, status, null, null, Map.of(), 0, System.currentTimeMillis());
+            byId.putIfAbsent(id, state);
+            if (name != null) {
+                idsByName.put(name, id);
+            }
+        }
+    }
+    
+    private void remove(String id) {
+        ContainerState state = byId.remove(id);
+        if (state != null && state.name() != null) {
+            idsByName.remove(state.name(), id);
+        }
+    }
+    
+    /**
+     * Re-inspect every deployment container and drop the ones that no longer exist
+     */
+    private void resync() {
+        try {
+            Map<String, Boolean> present = new ConcurrentHashMap<>();
+            for (Container container : dockerClient.listContainersCmd()
+                    .withShowAll(true)
+                    .withLabelFilter(Collections.singleton(BuildFingerprint.LABEL_PROJECT))
+                    .exec()) {
+                present.put(container.getId(), true);
+                refresh(container.getId());
+            }
+            byId.keySet().stream()
+                    .filter(id -> !present.containsKey(id))
+                    .toList()
+                    .forEach(this::remove);
+            log.info("Container state cache loaded: {} containers", byId.size());
+        } catch (Exception e) {
+            log.warn("Failed to load container state", e);
+        }
+    }
+    
+    private synchronized void scheduleReconnect(EventStream stream) {
+        // Closing a replaced stream also ends up here
+        if (closed || stream != subscription) {
+            return;
+        }
+        closeSubscription();
+        long delay = reconnectDelayMs;
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, MAX_RECONNECT_DELAY_MS);
+        reconnector.schedule(() -> {
+            try {
+                subscribe();
+                resync();
+            } catch (Exception e) {
+                log.warn("Failed to resubscribe to Docker events", e);
+                scheduleReconnect(subscription);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private void closeSubscription() {
+        EventStream current = subscription;
+        subscription = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (Exception e) {
+                log.debug("Failed to close Docker event stream", e);
+            }
+        }
+    }
+    
+    private class EventStream extends ResultCallback.Adapter<Event> {
+        
+        @Override
+        public void onNext(Event event) {
+            reconnectDelayMs = 1000;
+            apply(event);
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            log.warn("Docker event stream failed", throwable);
+            scheduleReconnect(this);
+        }
+        
+        @Override
+        public void onComplete() {
+            scheduleReconnect(this);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.vision.paas.deploy.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.vision.paas.deploy.config.DockerHostProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Docker daemon of the pool, with its container state and current load
+ */
+@Slf4j
+public class DockerHost implements Closeable {
+    
+    private final String name;
+    private final String address;
+    private final Set<DockerHostProperties.Role> roles;
+    private final Integer maxContainers;
+    private final DockerClient client;
+    private final DockerHttpClient httpClient;
+    private final ContainerStateCache containerStates;
+    private volatile long memoryBytes;
+    private final AtomicLong pendingMemory = new AtomicLong();
+    private final AtomicInteger pendingContainers = new AtomicInteger();
+    private final AtomicInteger activeBuilds = new AtomicInteger();
+    
+    DockerHost(String name, String address, Set<DockerHostProperties.Role> roles, Integer maxContainers,
+               DockerClient client, DockerHttpClient httpClient) {
+        this.name = name;
+        this.address = address;
+        this.roles = roles;
+        this.maxContainers = maxContainers;
+        this.client = client;
+        this.httpClient = httpClient;
+        this.containerStates = new ContainerStateCache(name, client);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Address at which this host's published ports are reachable
+     */
+    public String getAddress() {
+        return address;
+    }
+    
+    public boolean canBuild() {
+        return roles.contains(DockerHostProperties.Role.BUILD);
+    }
+    
+    public boolean canRun() {
+        return roles.contains(DockerHostProperties.Role.RUN);
+    }
+    
+    DockerClient client() {
+        return client;
+    }
+    
+    /**
+     * Transport of {@link #client()}, for API calls docker-java has no command for
+     */
+    DockerHttpClient httpClient() {
+        return httpClient;
+    }
+    
+    ContainerStateCache containerStates() {
+        return containerStates;
+    }
+    
+    /**
+     * Total memory of the host as reported by the daemon, 0 while it has not been reachable
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+    
+    /**
+     * Read the total memory from the daemon
+     * @return Whether the daemon answered
+     */
+    boolean refreshMemory() {
+        try {
+            Long memTotal = client.infoCmd().exec().getMemTotal();
+            memoryBytes = memTotal != null ? memTotal : 0;
+            return true;
+        } catch (Exception e) {
+            log.debug("Docker host {} is not reachable", name, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Memory limits of running deployment containers plus placements still starting
+     */
+    public long getCommittedMemoryBytes() {
+        long committed = pendingMemory.get();
+        for (ContainerState state : containerStates.getAll()) {
+            if (state.isRunning()) {
+                committed += state.memoryLimit();
+            }
+        }
+        return committed;
+    }
+    
+    public int getContainerCount() {
+        int count = pendingContainers.get();
+        for (ContainerState state : containerStates.getAll()) {
+            if (state.isRunning()) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public boolean hasContainerSlot() {
+        return maxContainers == null || getContainerCount() < maxContainers;
+    }
+    
+    public int getActiveBuilds() {
+        return activeBuilds.get();
+    }
+    
+    void reserve(long memory) {
+        pendingMemory.addAndGet(memory);
+        pendingContainers.incrementAndGet();
+    }
+    
+    void release(long memory) {
+        pendingMemory.addAndGet(-memory);
+        pendingContainers.decrementAndGet();
+    }
+    
+    void buildStarted() {
+        activeBuilds.incrementAndGet();
+    }
+    
+    void buildFinished() {
+        activeBuilds.decrementAndGet();
+    }
+    
+    void start() {
+        containerStates.start();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        containerStates.close();
+        client.close();
+    }
+}
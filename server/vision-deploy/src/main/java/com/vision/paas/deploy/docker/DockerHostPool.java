@@ -0,0 +1,154 @@
+package com.vision.paas.deploy.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.vision.paas.deploy.config.DockerHostProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Docker Host Pool
+ * One client per configured daemon. Without configured hosts the pool holds the local
+ * daemon from the environment (DOCKER_HOST or the default socket) with both roles.
+ * Hosts that were unreachable at startup are asked for their memory every 30 seconds
+ * until they answer, and take placements from then on.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DockerHostPool {
+    
+    private final DockerHostProperties properties;
+    
+    private final List<DockerHost> hosts = new ArrayList<>();
+    private ScheduledExecutorService memoryProbe;
+    
+    @PostConstruct
+    public void init() {
+        List<DockerHostProperties.Host> configured = properties.getHosts();
+        if (configured.isEmpty()) {
+            DockerHostProperties.Host local = new DockerHostProperties.Host();
+            local.setName("local");
+            local.setAddress(properties.getLocalAddress());
+            configured = List.of(local);
+        }
+        for (DockerHostProperties.Host host : configured) {
+            try {
+                hosts.add(connect(host));
+            } catch (Exception e) {
+                log.error("Failed to initialize Docker client for host {}", host.getName(), e);
+            }
+        }
+        hosts.forEach(DockerHost::start);
+        memoryProbe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "docker-host-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        memoryProbe.scheduleWithFixedDelay(this::probeUnknownHosts, 30, 30, TimeUnit.SECONDS);
+        log.info("Docker host pool: {}", hosts.stream()
+                .map(h -> h.getName() + (h.canBuild() ? "[build]" : "") + (h.canRun() ? "[run]" : ""))
+                .toList());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (memoryProbe != null) {
+            memoryProbe.shutdownNow();
+        }
+        for (DockerHost host : hosts) {
+            try {
+                host.close();
+            } catch (Exception e) {
+                log.debug("Failed to close Docker host {}", host.getName(), e);
+            }
+        }
+    }
+    
+    public List<DockerHost> getHosts() {
+        return Collections.unmodifiableList(hosts);
+    }
+    
+    public List<DockerHost> getBuildHosts() {
+        return hosts.stream().filter(DockerHost::canBuild).toList();
+    }
+    
+    public List<DockerHost> getRunHosts() {
+        return hosts.stream().filter(DockerHost::canRun).toList();
+    }
+    
+    /**
+     * Host running a container, asking the daemons only if no cached state knows it
+     * @param containerId Container ID or name
+     * @return Host, or null if no host has the container
+     */
+    public DockerHost find(String containerId) {
+        for (DockerHost host : hosts) {
+            if (host.containerStates().find(containerId) != null) {
+                return host;
+            }
+        }
+        for (DockerHost host : hosts) {
+            if (host.containerStates().get(containerId) != null) {
+                return host;
+            }
+        }
+        return null;
+    }
+    
+    private void probeUnknownHosts() {
+        for (DockerHost host : hosts) {
+            if (host.getMemoryBytes() == 0 && host.refreshMemory()) {
+                log.info("Docker host {} is reachable ({} MB)", host.getName(),
+                        host.getMemoryBytes() / (1024 * 1024));
+            }
+        }
+    }
+    
+    private DockerHost connect(DockerHostProperties.Host host) {
+        DefaultDockerClientConfig.Builder builder = DefaultDockerClientConfig.createDefaultConfigBuilder();
+        if (host.getUrl() != null) {
+            builder.withDockerHost(host.getUrl())
+                    .withDockerTlsVerify(host.isTlsVerify())
+                    .withDockerCertPath(host.getCertPath());
+        }
+        DockerClientConfig config = builder.build();
+        
+        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(100)
+                .connectionTimeout(Duration.ofSeconds(30))
+                .responseTimeout(Duration.ofSeconds(45))
+                .build();
+        DockerClient client = DockerClientImpl.getInstance(config, httpClient);
+        DockerHost dockerHost = new DockerHost(host.getName(), host.getAddress(),
+                host.getRoles().isEmpty() ? EnumSet.allOf(DockerHostProperties.Role.class) :
+                        EnumSet.copyOf(host.getRoles()),
+                host.getMaxContainers(), client, httpClient);
+        
+        if (!dockerHost.refreshMemory()) {
+            log.warn("Docker host {} is not reachable, no containers will be placed on it until it is",
+                    host.getName());
+        }
+        log.info("Docker client initialized for host {} ({}, {} MB)", host.getName(),
+                config.getDockerHost(), dockerHost.getMemoryBytes() / (1024 * 1024));
+        return dockerHost;
+    }
+}
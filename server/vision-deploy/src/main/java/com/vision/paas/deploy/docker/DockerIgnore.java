@@ -0,0 +1,123 @@
+package com.vision.paas.deploy.docker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * .dockerignore rules
+ * Follows Docker's semantics: patterns are relative to the context root, support
+ * {@code *}, {@code ?} and {@code **}, a leading {@code !} re-includes, and the last
+ * matching rule wins. A pattern that matches a directory also matches everything below it.
+ */
+public class DockerIgnore {
+    
+    private static final List<String> BUILT_IN_EXCLUDES = List.of(".git");
+    
+    private final List<Rule> rules;
+    private final boolean hasNegations;
+    
+    private DockerIgnore(List<Rule> rules) {
+        this.rules = rules;
+        this.hasNegations = rules.stream().anyMatch(rule -> rule.negated);
+    }
+    
+    /**
+     * Load rules from {@code .dockerignore} in the context root, if present,
+     * after the built-in excludes
+     */
+    public static DockerIgnore load(Path contextRoot) throws IOException {
+        List<String> lines = new ArrayList<>(BUILT_IN_EXCLUDES);
+        Path file = contextRoot.resolve(".dockerignore");
+        if (Files.isRegularFile(file)) {
+            lines.addAll(Files.readAllLines(file));
+        }
+        return parse(lines);
+    }
+    
+    static DockerIgnore parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            boolean negated = line.startsWith("!");
+            if (negated) {
+                line = line.substring(1).trim();
+            }
+            line = normalize(line);
+            if (!line.isEmpty()) {
+                rules.add(new Rule(toRegex(line), negated));
+            }
+        }
+        return new DockerIgnore(rules);
+    }
+    
+    /**
+     * Whether a path should be left out of the build context
+     * @param relativePath Path relative to the context root, using '/' separators
+     */
+    public boolean isExcluded(String relativePath) {
+        boolean excluded = false;
+        for (Rule rule : rules) {
+            if (rule.pattern.matcher(relativePath).matches()) {
+                excluded = !rule.negated;
+            }
+        }
+        return excluded;
+    }
+    
+    /**
+     * Whether the walk can skip an excluded directory entirely.
+     * Not safe when a later {@code !} rule might re-include something inside it.
+     */
+    public boolean canPrune(String relativeDirectory) {
+        return !hasNegations && isExcluded(relativeDirectory);
+    }
+    
+    private static String normalize(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder("^");
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        // "**/" matches zero or more directories
+                        boolean slash = i + 2 < glob.length() && glob.charAt(i + 2) == '/';
+                        regex.append(slash ? "(?:.*/)?" : ".*");
+                        i += slash ? 2 : 1;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                }
+                case '?' -> regex.append("[^/]");
+                case '[', ']' -> regex.append(c);
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        // A matching directory excludes everything below it
+        regex.append("(?:/.*)?$");
+        return Pattern.compile(regex.toString());
+    }
+    
+    private record Rule(Pattern pattern, boolean negated) {
+    }
+}
@@ -1,55 +1,48 @@
 package com.vision.paas.deploy.docker;
 
-import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.BuildImageResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientConfig;
-import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
-import com.github.dockerjava.transport.DockerHttpClient;
 import com.vision.paas.common.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.io.File;
-import java.io.FileWriter;
-import java.time.Duration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Docker Service
- * Manages Docker containers and images
+ * Manages Docker containers and images across the daemons of the {@link DockerHostPool}.
+ * Images are built on build hosts and copied to the run host chosen by the
+ * {@link PlacementScheduler} when a container starts there.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class DockerService {
     
-    private DockerClient dockerClient;
+    private final BuildContextStreamer buildContextStreamer;
+    private final BuildKitBuilder buildKitBuilder;
+    private final DockerHostPool hostPool;
+    private final PlacementScheduler placementScheduler;
     
-    @PostConstruct
-    public void init() {
-        try {
-            DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-                    .build();
-            
-            DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
-                    .dockerHost(config.getDockerHost())
-                    .sslConfig(config.getSSLConfig())
-                    .maxConnections(100)
-                    .connectionTimeout(Duration.ofSeconds(30))
-                    .responseTimeout(Duration.ofSeconds(45))
-                    .build();
-            
-            dockerClient = DockerClientImpl.getInstance(config, httpClient);
-            log.info("Docker client initialized successfully");
-        } catch (Exception e) {
-            log.error("Failed to initialize Docker client", e);
-        }
-    }
+    @Value("${deploy.images.retained:5}")
+    private int retainedImages;
+    
+    /**
+     * Build with BuildKit, which the cache mounts in generated Dockerfiles need
+     */
+    @Value("${deploy.build.buildkit:false}")
+    private boolean buildKitEnabled;
     
     /**
      * Build Docker image from Dockerfile
@@ -59,32 +52,183 @@ public class DockerService {
      * @return Image ID
      */
     public String buildImage(String projectId, String repoPath, String dockerfileContent) {
-        log.info("Building Docker image for project: {}", projectId);
+        return buildImage(projectId, repoPath, dockerfileContent, line -> { });
+    }
+    
+    /**
+     * Build Docker image from Dockerfile, forwarding build output as it arrives
+     * @param output Receives each line of daemon build output
+     * @return Image ID
+     */
+    public String buildImage(String projectId, String repoPath, String dockerfileContent,
+                             Consumer<String> output) {
+        return build(projectId, repoPath, dockerfileContent, null, output).imageId();
+    }
+    
+    /**
+     * Build Docker image, streaming the build context straight from the checkout.
+     * The context honours .dockerignore and never includes .git; the Dockerfile is
+     * sent as an in-memory entry rather than written into the repository.
+     * @param fingerprint Labels and tags the image so later deployments can reuse it, may be null
+     * @param output Receives each line of daemon build output
+     * @return Image ID with build context size and upload time
+     */
+    public BuildResult build(String projectId, String repoPath, String dockerfileContent,
+                             BuildFingerprint fingerprint, Consumer<String> output) {
+        DockerHost host = placementScheduler.pickBuildHost();
+        log.info("Building Docker image for project {} on {}", projectId, host.getName());
+        long started = System.nanoTime();
         
+        host.buildStarted();
+        BuildContextStreamer.BuildContext context = null;
+        BuildImageResultCallback callback = null;
         try {
-            // Write Dockerfile
-            File dockerfilePath = new File(repoPath + "/Dockerfile");
-            try (FileWriter writer = new FileWriter(dockerfilePath)) {
-                writer.write(dockerfileContent);
+            String imageName = imageName(projectId);
+            Set<String> tags = new HashSet<>();
+            tags.add(imageName + ":latest");
+            Map<String, String> labels = new HashMap<>();
+            labels.put(BuildFingerprint.LABEL_PROJECT, projectId);
+            if (fingerprint != null) {
+                tags.add(imageName + ":" + fingerprint.tag());
+                labels.putAll(fingerprint.labels(projectId));
             }
             
-            String imageName = "vision-paas/" + projectId.toLowerCase();
-            String imageTag = "latest";
+            context = buildContextStreamer.open(Paths.get(repoPath), dockerfileContent);
             
             // Build image
-            String imageId = dockerClient.buildImageCmd()
-                    .withDockerfile(dockerfilePath)
-                    .withBaseDirectory(new File(repoPath))
-                    .withTags(Collections.singleton(imageName + ":" + imageTag))
-                    .exec(new BuildImageResultCallback())
-                    .awaitImageId(10, TimeUnit.MINUTES);
+            String imageId;
+            if (buildKitEnabled) {
+                imageId = buildKitBuilder.build(host, context.getStream(), tags, labels, output,
+                        TimeUnit.MINUTES.toMillis(10));
+            } else {
+                callback = host.client().buildImageCmd()
+                        .withTarInputStream(context.getStream())
+                        .withTags(tags)
+                        .withLabels(labels)
+                        .exec(new BuildImageResultCallback() {
+                            @Override
+                            public void onNext(BuildResponseItem item) {
+                                forwardBuildOutput(item, output);
+                                super.onNext(item);
+                            }
+                        });
+                imageId = callback.awaitImageId(10, TimeUnit.MINUTES);
+            }
             
-            log.info("Successfully built image: {} with ID: {}", imageName, imageId);
-            return imageId;
+            BuildContextStreamer.Stats stats = context.getStats().get(30, TimeUnit.SECONDS);
+            long buildMs = (System.nanoTime() - started) / 1_000_000;
             
+            log.info("Successfully built image: {} with ID: {} (context {} files, {} bytes, uploaded in {} ms)",
+                    imageName, imageId, stats.files(), stats.bytes(), stats.uploadMs());
+            return new BuildResult(imageId, stats.files(), stats.bytes(), stats.uploadMs(), buildMs, host.getName());
+        
         } catch (Exception e) {
             log.error("Failed to build Docker image", e);
             throw new BusinessException("Failed to build image: " + e.getMessage());
+        } finally {
+            host.buildFinished();
+            // Dropping the connection makes the daemon abandon a build that was interrupted or timed out
+            closeQuietly(callback);
+            // Unblocks the context producer if the daemon stopped reading early
+            closeQuietly(context);
+        }
+    }
+    
+    /**
+     * Find an image of this project built from the same source and Dockerfile
+     * @return Image ID, or null if the project has no image with this fingerprint
+     */
+    public String findImage(String projectId, BuildFingerprint fingerprint) {
+        for (DockerHost host : hostPool.getHosts()) {
+            try {
+                List<Image> images = host.client().listImagesCmd()
+                        .withLabelFilter(Map.of(
+                                BuildFingerprint.LABEL_PROJECT, projectId,
+                                BuildFingerprint.LABEL_FINGERPRINT, fingerprint.value()))
+                        .exec();
+                if (!images.isEmpty()) {
+                    return images.get(0).getId();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to look up image for project {} on {}", projectId, host.getName(), e);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Remove all but the newest retained images of a project.
+     * Older images stay available for rollbacks without a rebuild.
+     * @param inUseImageId Image of the running deployment, never removed
+     */
+    public void pruneImages(String projectId, String inUseImageId) {
+        for (DockerHost host : hostPool.getHosts()) {
+            pruneImages(host, projectId, inUseImageId);
+        }
+    }
+    
+    private void pruneImages(DockerHost host, String projectId, String inUseImageId) {
+        try {
+            List<Image> images = new ArrayList<>(host.client().listImagesCmd()
+                    .withLabelFilter(Map.of(BuildFingerprint.LABEL_PROJECT, projectId))
+                    .exec());
+            images.sort(Comparator.comparing(Image::getCreated, Comparator.nullsLast(Comparator.reverseOrder())));
+            
+            for (Image image : images.subList(Math.min(retainedImages, images.size()), images.size())) {
+                if (image.getId().equals(inUseImageId)) {
+                    continue;
+                }
+                // Not forced: images still referenced by a container are kept
+                try {
+                    host.client().removeImageCmd(image.getId()).exec();
+                    log.info("Pruned image {} of project {} on {}", image.getId(), projectId, host.getName());
+                } catch (Exception e) {
+                    log.debug("Image {} still in use, keeping it", image.getId(), e);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to prune images of project {} on {}", projectId, host.getName(), e);
+        }
+    }
+    
+    private static String imageName(String projectId) {
+        return "vision-paas/" + projectId.toLowerCase();
+    }
+    
+    private void closeQuietly(BuildImageResultCallback callback) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            callback.close();
+        } catch (Exception e) {
+            log.debug("Failed to close build stream", e);
+        }
+    }
+    
+    private void closeQuietly(BuildContextStreamer.BuildContext context) {
+        if (context == null) {
+            return;
+        }
+        try {
+            context.getStream().close();
+        } catch (Exception e) {
+            log.debug("Failed to close build context stream", e);
+        }
+    }
+    
+    private void forwardBuildOutput(BuildResponseItem item, Consumer<String> output) {
+        String text = item.getStream();
+        if (text == null && item.getErrorDetail() != null) {
+            text = item.getErrorDetail().getMessage();
+        }
+        if (text == null) {
+            return;
+        }
+        for (String line : text.split("\\r?\\n")) {
+            if (!line.isBlank()) {
+                output.accept(line);
+            }
         }
     }
     
@@ -99,18 +243,32 @@ public class DockerService {
      */
     public String startContainer(String projectId, String imageId, int port, 
                                   Map<String, String> envVars, int memoryMB) {
-        log.info("Starting container for project: {}", projectId);
+        String containerName = "vision-" + projectId;
         
+        // Stop and remove existing container if exists
         try {
-            String containerName = "vision-" + projectId;
-            
-            // Stop and remove existing container if exists
-            try {
-                stopContainer(containerName);
-                removeContainer(containerName);
-            } catch (Exception e) {
-                // Container doesn't exist, continue
-            }
+            stopContainer(containerName);
+            removeContainer(containerName);
+        } catch (Exception e) {
+            // Container doesn't exist, continue
+        }
+        
+        return startContainer(containerName, projectId, imageId, port, envVars, memoryMB);
+    }
+    
+    /**
+     * Create and start a container under the given name, leaving other containers
+     * of the project running
+     * @param containerName Unique container name
+     * @return Container ID
+     */
+    public String startContainer(String containerName, String projectId, String imageId, int port,
+                                 Map<String, String> envVars, int memoryMB) {
+        log.info("Starting container {} for project: {}", containerName, projectId);
+        
+        try (PlacementScheduler.Placement placement = placementScheduler.place(memoryMB)) {
+            DockerHost host = placement.host();
+            ensureImage(host, imageId);
             
             // Prepare environment variables
             List<String> env = new ArrayList<>();
@@ -119,8 +277,9 @@ public class DockerService {
             }
             
             // Create container
-            CreateContainerResponse container = dockerClient.createContainerCmd(imageId)
+            CreateContainerResponse container = host.client().createContainerCmd(imageId)
                     .withName(containerName)
+                    .withLabels(Map.of(BuildFingerprint.LABEL_PROJECT, projectId))
                     .withEnv(env)
                     .withExposedPorts(ExposedPort.tcp(port))
                     .withHostConfig(HostConfig.newHostConfig()
@@ -137,23 +296,68 @@ public class DockerService {
             String containerId = container.getId();
             
             // Start container
-            dockerClient.startContainerCmd(containerId).exec();
+            host.client().startContainerCmd(containerId).exec();
+            host.containerStates().refresh(containerId);
             
-            log.info("Container started successfully: {}", containerId);
+            log.info("Container started successfully on {}: {}", host.getName(), containerId);
             return containerId;
-            
+        
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to start container", e);
             throw new BusinessException("Failed to start container: " + e.getMessage());
         }
     }
     
+    /**
+     * Copy an image to the host that will run it if it was built on another one
+     */
+    private void ensureImage(DockerHost target, String imageId) throws IOException {
+        if (hasImage(target, imageId)) {
+            return;
+        }
+        for (DockerHost source : hostPool.getHosts()) {
+            if (source == target || !hasImage(source, imageId)) {
+                continue;
+            }
+            long started = System.nanoTime();
+            try (InputStream image = source.client().saveImageCmd(imageId).exec()) {
+                target.client().loadImageCmd(image).exec();
+            }
+            log.info("Transferred image {} from {} to {} in {} ms", imageId, source.getName(), target.getName(),
+                    (System.nanoTime() - started) / 1_000_000);
+            return;
+        }
+        throw new BusinessException("Image " + imageId + " not found on any Docker host");
+    }
+    
+    private boolean hasImage(DockerHost host, String imageId) {
+        try {
+            host.client().inspectImageCmd(imageId).exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Host running a container
+     */
+    private DockerHost hostOf(String containerId) {
+        DockerHost host = hostPool.find(containerId);
+        if (host == null) {
+            throw new BusinessException(404, "Container not found: " + containerId);
+        }
+        return host;
+    }
+    
     /**
      * Stop container
      */
     public void stopContainer(String containerId) {
         try {
-            dockerClient.stopContainerCmd(containerId)
+            hostOf(containerId).client().stopContainerCmd(containerId)
                     .withTimeout(30)
                     .exec();
             log.info("Container stopped: {}", containerId);
@@ -168,7 +372,7 @@ public class DockerService {
      */
     public void removeContainer(String containerId) {
         try {
-            dockerClient.removeContainerCmd(containerId)
+            hostOf(containerId).client().removeContainerCmd(containerId)
                     .withForce(true)
                     .exec();
             log.info("Container removed: {}", containerId);
@@ -181,14 +385,23 @@ public class DockerService {
      * Get container logs
      */
     public String getContainerLogs(String containerId, int tail) {
+        StringBuffer logs = new StringBuffer();
         try {
-            return dockerClient.logContainerCmd(containerId)
+            hostOf(containerId).client().logContainerCmd(containerId)
                     .withStdOut(true)
                     .withStdErr(true)
                     .withTail(tail)
-                    .exec(new LogContainerResultCallback())
-                    .awaitCompletion()
-                    .toString();
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            logs.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                        }
+                    })
+                    .awaitCompletion(30, TimeUnit.SECONDS);
+            return logs.toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Failed to retrieve logs";
         } catch (Exception e) {
             log.error("Failed to get container logs", e);
             return "Failed to retrieve logs";
@@ -196,43 +409,155 @@ public class DockerService {
     }
     
     /**
-     * Check container health
+     * Stream timestamped container log frames
+     * @param follow Keep the stream open for new output
+     * @param sinceSeconds Only output after this Unix time, 0 for no limit
+     * @param untilSeconds Only output before this Unix time, 0 for no limit
+     * @param tail Number of lines from the end, or -1 for all
      */
-    public boolean isContainerHealthy(String containerId) {
-        try {
-            var inspect = dockerClient.inspectContainerCmd(containerId).exec();
-            String status = inspect.getState().getStatus();
-            return "running".equalsIgnoreCase(status);
-        } catch (Exception e) {
-            log.error("Failed to check container health", e);
-            return false;
+    public <T extends ResultCallback<Frame>> T streamLogs(String containerId, boolean follow,
+                                                         int sinceSeconds, int untilSeconds, int tail,
+                                                         T callback) {
+        var command = hostOf(containerId).client().logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withTimestamps(true)
+                .withFollowStream(follow);
+        if (sinceSeconds > 0) {
+            command.withSince(sinceSeconds);
+        }
+        if (untilSeconds > 0) {
+            command.withUntil(untilSeconds);
+        }
+        if (tail >= 0) {
+            command.withTail(tail);
+        } else {
+            command.withTailAll();
         }
+        return command.exec(callback);
     }
     
     /**
-     * Get container stats (CPU, Memory)
+     * State of a container from the event-driven cache
+     * @param containerId Container ID or name
+     * @return State, or null if the container does not exist
+     */
+    public ContainerState getContainerState(String containerId) {
+        DockerHost host = hostPool.find(containerId);
+        return host != null ? host.containerStates().get(containerId) : null;
+    }
+    
+    /**
+     * Address at which the ports published by a container are reachable
+     * @return Address of the container's host, or null if no host has the container
+     */
+    public String getContainerAddress(String containerId) {
+        DockerHost host = hostPool.find(containerId);
+        return host != null ? host.getAddress() : null;
+    }
+    
+    /**
+     * Check container health: running, and not reported unhealthy by its health check
+     */
+    public boolean isContainerHealthy(String containerId) {
+        ContainerState state = getContainerState(containerId);
+        return state != null && state.isRunning() && !"unhealthy".equalsIgnoreCase(state.health());
+    }
+    
+    /**
+     * Get container run state; resource usage is collected by
+     * {@link com.vision.paas.deploy.stats.ContainerStatsCollector}
      */
     public Map<String, Object> getContainerStats(String containerId) {
         Map<String, Object> stats = new HashMap<>();
-        try {
-            var inspect = dockerClient.inspectContainerCmd(containerId).exec();
-            stats.put("status", inspect.getState().getStatus());
-            stats.put("startedAt", inspect.getState().getStartedAt());
-            stats.put("running", inspect.getState().getRunning());
-        } catch (Exception e) {
-            log.error("Failed to get container stats", e);
+        ContainerState state = getContainerState(containerId);
+        if (state != null) {
+            stats.put("status", state.status());
+            stats.put("startedAt", state.startedAt());
+            stats.put("running", state.isRunning());
+            stats.put("health", state.health());
         }
         return stats;
     }
     
+    /**
+     * Running deployment containers, identified by the project label
+     * @return Container names keyed by container ID
+     */
+    public Map<String, String> listManagedContainers() {
+        Map<String, String> containers = new HashMap<>();
+        for (DockerHost host : hostPool.getHosts()) {
+            for (ContainerState state : host.containerStates().getAll()) {
+                if (state.isRunning()) {
+                    containers.put(state.containerId(), state.name() != null ? state.name() : state.containerId());
+                }
+            }
+        }
+        return containers;
+    }
+    
+    /**
+     * Deployment containers of one or all projects on every host, running or not, listed from
+     * the daemons rather than the event cache
+     * @param projectId Project ID, or null for all projects
+     */
+    public List<ManagedContainer> listProjectContainers(String projectId) {
+        List<ManagedContainer> containers = new ArrayList<>();
+        for (DockerHost host : hostPool.getHosts()) {
+            try {
+                var listCmd = host.client().listContainersCmd().withShowAll(true);
+                if (projectId != null) {
+                    listCmd.withLabelFilter(Map.of(BuildFingerprint.LABEL_PROJECT, projectId));
+                } else {
+                    listCmd.withLabelFilter(Collections.singleton(BuildFingerprint.LABEL_PROJECT));
+                }
+                for (Container container : listCmd.exec()) {
+                    containers.add(toManagedContainer(host, container));
+                }
+            } catch (Exception e) {
+                log.warn("Failed to list containers on {}", host.getName(), e);
+            }
+        }
+        return containers;
+    }
+    
+    private static ManagedContainer toManagedContainer(DockerHost host, Container container) {
+        String name = container.getNames() != null && container.getNames().length > 0 ?
+                container.getNames()[0] : container.getId();
+        Integer hostPort = null;
+        if (container.getPorts() != null) {
+            for (ContainerPort port : container.getPorts()) {
+                if (port.getPublicPort() != null) {
+                    hostPort = port.getPublicPort();
+                    break;
+                }
+            }
+        }
+        return new ManagedContainer(container.getId(),
+                name.startsWith("/") ? name.substring(1) : name,
+                container.getLabels() != null ? container.getLabels().get(BuildFingerprint.LABEL_PROJECT) : null,
+                "running".equalsIgnoreCase(container.getState()),
+                container.getCreated() != null ? container.getCreated() : 0,
+                host.getAddress(), container.getImageId(), hostPort);
+    }
+    
+    /**
+     * Open a stats stream; the daemon pushes a sample about once per second until the callback is closed
+     */
+    public <T extends ResultCallback<Statistics>> T streamStats(String containerId, T callback) {
+        return hostOf(containerId).client().statsCmd(containerId).exec(callback);
+    }
+    
     /**
      * Restart container
      */
     public void restartContainer(String containerId) {
         try {
-            dockerClient.restartContainerCmd(containerId)
+            DockerHost host = hostOf(containerId);
+            host.client().restartContainerCmd(containerId)
                     .withTimeout(30)
                     .exec();
+            host.containerStates().refresh(containerId);
             log.info("Container restarted: {}", containerId);
         } catch (Exception e) {
             log.error("Failed to restart container", e);
@@ -244,33 +569,27 @@ public class DockerService {
      * Get container port mapping
      */
     public Integer getContainerPort(String containerId) {
-        try {
-            var inspect = dockerClient.inspectContainerCmd(containerId).exec();
-            var ports = inspect.getNetworkSettings().getPorts();
-            for (var entry : ports.getBindings().entrySet()) {
-                var bindings = entry.getValue();
-                if (bindings != null && bindings.length > 0) {
-                    return Integer.parseInt(bindings[0].getHostPortSpec());
-                }
-            }
-        } catch (Exception e) {
-            log.error("Failed to get container port", e);
+        ContainerState state = getContainerState(containerId);
+        if (state == null || state.ports().isEmpty()) {
+            return null;
         }
-        return null;
+        return state.ports().values().iterator().next();
     }
     
     /**
      * Clean up old images
      */
     public void cleanupImages(String projectId) {
-        try {
-            String imageName = "vision-paas/" + projectId.toLowerCase();
-            dockerClient.removeImageCmd(imageName + ":latest")
-                    .withForce(true)
-                    .exec();
-            log.info("Cleaned up image: {}", imageName);
-        } catch (Exception e) {
-            log.debug("No image to cleanup or cleanup failed", e);
+        String imageName = imageName(projectId);
+        for (DockerHost host : hostPool.getHosts()) {
+            try {
+                host.client().removeImageCmd(imageName + ":latest")
+                        .withForce(true)
+                        .exec();
+                log.info("Cleaned up image {} on {}", imageName, host.getName());
+            } catch (Exception e) {
+                log.debug("No image to cleanup or cleanup failed", e);
+            }
         }
     }
 }
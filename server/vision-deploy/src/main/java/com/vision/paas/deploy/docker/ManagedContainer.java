@@ -0,0 +1,23 @@
+package com.vision.paas.deploy.docker;
+
+/**
+ * A deployment container as listed by a daemon, running or not
+ * @param containerId Container ID
+ * @param name Container name without the leading slash
+ * @param projectId Value of the project label
+ * @param running Whether the container is running
+ * @param createdAt Creation time in epoch seconds
+ * @param address Address of the Docker host running the container
+ * @param imageId Image the container runs
+ * @param hostPort First published host port, null if none
+ */
+public record ManagedContainer(
+        String containerId,
+        String name,
+        String projectId,
+        boolean running,
+        long createdAt,
+        String address,
+        String imageId,
+        Integer hostPort) {
+}
@@ -0,0 +1,81 @@
+package com.vision.paas.deploy.docker;
+
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.config.DockerHostProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Placement Scheduler
+ * Picks the daemon for each new container: among run hosts with enough uncommitted
+ * memory for the container's limit, the one with the fewest containers, then the most
+ * free memory. Builds go to the build host with the fewest builds in progress.
+ */
+@Component
+@RequiredArgsConstructor
+public class PlacementScheduler {
+    
+    private static final long MB = 1024 * 1024;
+    
+    private final DockerHostPool hostPool;
+    private final DockerHostProperties properties;
+    
+    /**
+     * Reserve room for a container; close the placement once the container is running
+     * or failed to start
+     * @param memoryMB Memory limit of the container
+     */
+    public synchronized Placement place(int memoryMB) {
+        long memory = memoryMB * MB;
+        long headroom = properties.getReservedMemoryMb() * MB;
+        
+        DockerHost best = null;
+        long bestFree = 0;
+        for (DockerHost host : hostPool.getRunHosts()) {
+            if (host.getMemoryBytes() == 0 || !host.hasContainerSlot()) {
+                continue;
+            }
+            long free = host.getMemoryBytes() - headroom - host.getCommittedMemoryBytes();
+            if (free < memory) {
+                continue;
+            }
+            if (best == null || host.getContainerCount() < best.getContainerCount()
+                    || host.getContainerCount() == best.getContainerCount() && free > bestFree) {
+                best = host;
+                bestFree = free;
+            }
+        }
+        if (best == null) {
+            throw new BusinessException(503, "No Docker host has " + memoryMB + " MB of memory free");
+        }
+        best.reserve(memory);
+        return new Placement(best, memory);
+    }
+    
+    /**
+     * Build host with the fewest builds in progress
+     */
+    public DockerHost pickBuildHost() {
+        List<DockerHost> buildHosts = hostPool.getBuildHosts();
+        if (buildHosts.isEmpty()) {
+            throw new BusinessException(503, "No Docker build host configured");
+        }
+        return buildHosts.stream()
+                .min(Comparator.comparingInt(DockerHost::getActiveBuilds))
+                .orElseThrow();
+    }
+    
+    /**
+     * Memory reserved on a host for a container that is being started
+     */
+    public record Placement(DockerHost host, long memoryBytes) implements AutoCloseable {
+        
+        @Override
+        public void close() {
+            host.release(memoryBytes);
+        }
+    }
+}
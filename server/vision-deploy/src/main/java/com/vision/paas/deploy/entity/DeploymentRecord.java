@@ -0,0 +1,164 @@
+package com.vision.paas.deploy.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.common.enums.ProjectType;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.pipeline.DeploymentStage;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Deployment Record
+ * Persistent history of a deployment job: its request, status, the last stage it
+ * completed with the outputs needed to resume from there, and per-stage timestamps.
+ */
+@Data
+@Entity
+@Table(name = "deployment_records", indexes = {
+        @Index(name = "idx_deployment_records_project_created", columnList = "projectId, createdAt, id"),
+        @Index(name = "idx_deployment_records_status_created", columnList = "status, createdAt, id"),
+        @Index(name = "idx_deployment_records_created", columnList = "createdAt, id")
+})
+public class DeploymentRecord {
+    
+    /**
+     * Deployment job ID
+     */
+    @Id
+    @Column(length = 64)
+    private String id;
+    
+    @Column(nullable = false, length = 64)
+    private String projectId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private DeploymentJob.Type jobType;
+    
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    @Setter(AccessLevel.NONE)
+    private DeploymentStatus status;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private DeploymentStage lastCompletedStage;
+    
+    // Request, kept so an interrupted job can be queued again
+    @Column(columnDefinition = "TEXT")
+    private String gitUrl;
+    private String requestedBranch;
+    private int priority;
+    private int memoryMb;
+    
+    /**
+     * Environment variables as JSON, encrypted by EnvVarsCipher; null when no key is configured
+     */
+    @JsonIgnore
+    @Column(name = "env_vars_json", columnDefinition = "TEXT")
+    private String encryptedEnvVars;
+    
+    /**
+     * Comma-separated names of the environment variables, never their values
+     */
+    @Column(columnDefinition = "TEXT")
+    private String envVarNames;
+    
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String configJson;
+    
+    // Stage outputs
+    private String branch;
+    
+    @Column(length = 64)
+    private String commitSha;
+    
+    private String repoPath;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private ProjectType projectType;
+    
+    private Integer port;
+    
+    /**
+     * Build context relative to the checkout, "" for the repository root
+     */
+    @Column(length = 500)
+    private String contextDirectory;
+    
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT")
+    private String dockerfile;
+    
+    @Column(length = 80)
+    private String imageId;
+    
+    private boolean imageReused;
+    
+    @Column(length = 64)
+    private String buildFingerprint;
+    
+    @Column(length = 80)
+    private String containerId;
+    
+    private String containerName;
+    private Integer hostPort;
+    
+    // Durations for percentile analysis
+    private Long cloneDurationMs;
+    private Long buildTimeMs;
+    private Long timeToReadyMs;
+    
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+    
+    // Per-stage timestamps
+    @Column(nullable = false)
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant clonedAt;
+    private Instant detectedAt;
+    private Instant builtAt;
+    private Instant containerStartedAt;
+    private Instant readyAt;
+    private Instant finishedAt;
+    private Instant updatedAt;
+    
+    /**
+     * Move to another status
+     * @throws IllegalStateException if the state machine does not allow the transition
+     */
+    public void transitionTo(DeploymentStatus next) {
+        if (status != null && !status.canTransitionTo(next)) {
+            throw new IllegalStateException("Deployment " + id + " cannot move from " + status + " to " + next);
+        }
+        status = next;
+    }
+    
+    /**
+     * Record that a stage finished successfully
+     */
+    public void completeStage(DeploymentStage stage, Instant at) {
+        lastCompletedStage = stage;
+        switch (stage) {
+            case CLONE -> clonedAt = at;
+            case DETECT -> detectedAt = at;
+            case BUILD -> builtAt = at;
+            case START -> containerStartedAt = at;
+            case HEALTH -> readyAt = status == DeploymentStatus.RUNNING ? at : null;
+        }
+    }
+    
+    @PreUpdate
+    @PrePersist
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -1,9 +1,16 @@
 package com.vision.paas.deploy.generator;
 
 import com.vision.paas.common.enums.ProjectType;
+import com.vision.paas.deploy.detector.PackageJson;
+import com.vision.paas.deploy.detector.RepoSnapshot;
+import com.vision.paas.deploy.detector.Workspace;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.StringJoiner;
+
 /**
  * Dockerfile Generator
  * Auto-generates optimized Dockerfiles based on project type
@@ -12,35 +19,295 @@ import org.springframework.stereotype.Service;
 @Service
 public class DockerfileGenerator {
     
+    /**
+     * Files besides package.json that Node package managers read while installing
+     */
+    private static final List<String> NODE_INSTALL_FILES = List.of(
+            "package-lock.json", "npm-shrinkwrap.json", "yarn.lock", ".yarnrc.yml",
+            "pnpm-lock.yaml", "pnpm-workspace.yaml", ".npmrc");
+    
+    private static final List<String> GRADLE_BUILD_FILES = List.of(
+            "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts", "gradle.properties");
+    
+    /**
+     * Emit BuildKit cache mounts for package manager caches.
+     * The same flag makes DockerService build with BuildKit, which they require.
+     */
+    @Value("${deploy.build.buildkit:false}")
+    private boolean buildKitEnabled;
+    
     public String generate(ProjectType projectType, String repoPath, int port) {
+        return generate(projectType, RepoSnapshot.scan(repoPath), port, null);
+    }
+    
+    public String generate(ProjectType projectType, String repoPath, int port, String projectId) {
+        return generate(projectType, RepoSnapshot.scan(repoPath), port, projectId);
+    }
+    
+    /**
+     * Generate a Dockerfile; in BuildKit mode package caches are mounted per project
+     * so warm rebuilds skip dependency downloads
+     * @param repo Snapshot the project type was detected from
+     * @param projectId Scopes the cache mounts, or null to disable them
+     */
+    public String generate(ProjectType projectType, RepoSnapshot repo, int port, String projectId) {
         log.info("Generating Dockerfile for {} on port {}", projectType, port);
         
-        return switch (projectType) {
-            case NEXTJS -> generateNextjsDockerfile(port);
-            case REACT -> generateReactDockerfile(port);
-            case VUE -> generateVueDockerfile(port);
-            case ANGULAR -> generateAngularDockerfile(port);
-            case SVELTE -> generateSvelteDockerfile(port);
-            case NUXT -> generateNuxtDockerfile(port);
-            case SPRING_BOOT, SPRING_CLOUD -> generateSpringBootDockerfile(port);
-            case MICRONAUT -> generateMicronautDockerfile(port);
-            case QUARKUS -> generateQuarkusDockerfile(port);
-            case DJANGO -> generateDjangoDockerfile(port);
-            case FLASK -> generateFlaskDockerfile(port);
-            case FASTAPI -> generateFastAPIDockerfile(port);
-            case EXPRESS, NESTJS, KOA -> generateNodeBackendDockerfile(port);
-            case GO, GIN -> generateGoDockerfile(port);
-            case RAILS -> generateRailsDockerfile(port);
-            case LARAVEL -> generateLaravelDockerfile(port);
+        CacheMounts cache = CacheMounts.of(buildKitEnabled && projectId != null, projectId);
+        String dockerfile = switch (projectType) {
+            case NEXTJS -> generateNextjsDockerfile(port, nodeDependencies(repo, cache, false));
+            case REACT -> generateReactDockerfile(port, nodeDependencies(repo, cache, false));
+            case VUE -> generateVueDockerfile(port, nodeDependencies(repo, cache, false));
+            case ANGULAR -> generateAngularDockerfile(port, nodeDependencies(repo, cache, false));
+            case SVELTE -> generateSvelteDockerfile(port, nodeDependencies(repo, cache, false));
+            case NUXT -> generateNuxtDockerfile(port, nodeDependencies(repo, cache, false));
+            case SPRING_BOOT, SPRING_CLOUD -> generateSpringBootDockerfile(port, cache);
+            case MICRONAUT -> generateMicronautDockerfile(port, gradleDependencies(repo, cache), cache);
+            case QUARKUS -> generateQuarkusDockerfile(port, cache);
+            case DJANGO -> generateDjangoDockerfile(port, pythonDependencies(repo, cache));
+            case FLASK -> generateFlaskDockerfile(port, pythonDependencies(repo, cache));
+            case FASTAPI -> generateFastAPIDockerfile(port, pythonDependencies(repo, cache));
+            case EXPRESS, NESTJS, KOA -> generateNodeBackendDockerfile(port, nodeDependencies(repo, cache, true));
+            case GO, GIN -> generateGoDockerfile(port, goDependencies(repo, cache), cache);
+            case RAILS -> generateRailsDockerfile(port, rubyDependencies(repo, cache));
+            case LARAVEL -> generateLaravelDockerfile(port, composerDependencies(repo, cache));
             case STATIC_HTML -> generateStaticDockerfile(port);
-            case GATSBY -> generateGatsbyDockerfile(port);
+            case GATSBY -> generateGatsbyDockerfile(port, nodeDependencies(repo, cache, false));
             case HUGO -> generateHugoDockerfile(port);
-            case JEKYLL -> generateJekyllDockerfile(port);
+            case JEKYLL -> generateJekyllDockerfile(port, cache);
             default -> generateGenericDockerfile(port);
         };
+        
+        return cache.enabled() ? "# syntax=docker/dockerfile:1\n" + dockerfile : dockerfile;
+    }
+    
+    /**
+     * Generate a Dockerfile for one member of a workspace, built from the repository root
+     * so sibling packages and modules it depends on are available. Only the member and
+     * what it depends on are installed and built.
+     * @param rootRepo Snapshot of the repository root
+     * @param member Member directory relative to the root
+     * @param memberRepo Snapshot of the member directory
+     * @return Dockerfile, or null if the project type has no workspace build and the member
+     *         should be built on its own
+     */
+    public String generateWorkspaceMember(ProjectType projectType, Workspace workspace, RepoSnapshot rootRepo,
+                                          String member, RepoSnapshot memberRepo, int port, String projectId) {
+        CacheMounts cache = CacheMounts.of(buildKitEnabled && projectId != null, projectId);
+        String dockerfile = null;
+        if (workspace.kind().isNode() && "node".equals(projectType.getRuntime())) {
+            PackageJson packageJson = memberRepo.manifest("package.json", PackageJson::parse);
+            if (packageJson != null) {
+                dockerfile = generateNodeWorkspaceDockerfile(projectType, workspace, rootRepo, member, packageJson,
+                        port, cache);
+            }
+        } else if (projectType == ProjectType.SPRING_BOOT || projectType == ProjectType.SPRING_CLOUD) {
+            dockerfile = generateMavenModuleDockerfile(member, port, cache);
+        }
+        
+        if (dockerfile == null) {
+            return null;
+        }
+        log.info("Generating {} workspace Dockerfile for {} member {} on port {}",
+                workspace.kind(), projectType, member, port);
+        return cache.enabled() ? "# syntax=docker/dockerfile:1\n" + dockerfile : dockerfile;
+    }
+    
+    /**
+     * The root manifests, lockfile and every member's package.json go into the dependency
+     * layer, which the package manager needs to resolve the workspace
+     */
+    private String generateNodeWorkspaceDockerfile(ProjectType projectType, Workspace workspace, RepoSnapshot rootRepo,
+                                                   String member, PackageJson packageJson, int port, CacheMounts cache) {
+        String name = packageJson.name();
+        String install;
+        String build;
+        switch (workspace.kind()) {
+            case PNPM -> {
+                // "<selector>..." also installs and builds the workspace packages the member depends on
+                String selector = name != null ? name : "./" + member;
+                install = cache.pnpm() + "corepack enable && pnpm install --frozen-lockfile --filter \"" + selector + "...\"";
+                build = "pnpm --filter \"" + selector + "...\" run build";
+            }
+            case YARN -> {
+                if (name == null) {
+                    return null;
+                }
+                install = NodePackageManager.of(rootRepo).install(rootRepo, cache, false);
+                build = "yarn workspace " + name + " run build";
+            }
+            default -> {
+                install = cache.npm() + (NodePackageManager.isNpmLocked(rootRepo) ? "npm ci" : "npm install")
+                        + " --workspace=" + member + " --include-workspace-root";
+                build = "npm run build --workspace=" + member;
+            }
+        }
+        String copy = copyNodeManifests(rootRepo, workspace.members());
+        String buildStep = packageJson.script("build") != null ? "RUN " + build + "\n" : "";
+        
+        String outputDir = switch (projectType) {
+            case REACT -> "build";
+            case VUE, ANGULAR -> "dist";
+            case SVELTE, GATSBY -> "public";
+            default -> null;
+        };
+        if (outputDir != null) {
+            return """
+                    # %s Workspace Package Dockerfile
+                    FROM node:18-alpine AS build
+                    WORKDIR /app
+                    
+                    %s
+                    RUN %s
+                    
+                    COPY . .
+                    %s
+                    # Production stage with Nginx
+                    FROM nginx:alpine
+                    COPY --from=build /app/%s/%s /usr/share/nginx/html
+                    
+                    RUN echo 'server { \\
+                        listen %d; \\
+                        location / { \\
+                            root /usr/share/nginx/html; \\
+                            index index.html; \\
+                            try_files $uri $uri/ /index.html; \\
+                        } \\
+                    }' > /etc/nginx/conf.d/default.conf
+                    
+                    EXPOSE %d
+                    CMD ["nginx", "-g", "daemon off;"]
+                    """.formatted(projectType.getDisplayName(), copy, install, buildStep, member, outputDir, port, port);
+        }
+        
+        return """
+                # %s Workspace Package Dockerfile
+                FROM node:18-alpine
+                WORKDIR /app
+                
+                %s
+                RUN %s
+                
+                COPY . .
+                %s
+                WORKDIR /app/%s
+                
+                ENV NODE_ENV=production
+                ENV PORT=%d
+                
+                EXPOSE %d
+                
+                CMD ["npm", "start"]
+                """.formatted(projectType.getDisplayName(), copy, install, buildStep, member, port, port);
+    }
+    
+    /**
+     * -pl/-am builds the module and the reactor modules it depends on, nothing else
+     */
+    private String generateMavenModuleDockerfile(String module, int port, CacheMounts cache) {
+        return """
+                # Spring Boot Module Dockerfile
+                FROM maven:3.9-eclipse-temurin-17 AS build
+                WORKDIR /app
+                
+                COPY . .
+                RUN %smvn -pl %s -am clean package -DskipTests
+                
+                # Production stage
+                FROM eclipse-temurin:17-jre-alpine
+                WORKDIR /app
+                
+                COPY --from=build /app/%s/target/*.jar app.jar
+                
+                EXPOSE %d
+                
+                ENTRYPOINT ["java", "-jar", "-Dserver.port=%d", "app.jar"]
+                """.formatted(cache.maven(), module, module, port, port);
+    }
+    
+    /**
+     * Node dependencies, installed by the package manager the lockfile belongs to
+     * @param production Install runtime dependencies only
+     */
+    private Dependencies nodeDependencies(RepoSnapshot repo, CacheMounts cache, boolean production) {
+        return new Dependencies(copyNodeManifests(repo, List.of()),
+                "RUN " + NodePackageManager.of(repo).install(repo, cache, production));
+    }
+    
+    /**
+     * COPY of package.json plus whichever lockfiles and package manager settings exist
+     * @param members Workspace members whose package.json is copied as well
+     */
+    private String copyNodeManifests(RepoSnapshot repo, List<String> members) {
+        StringJoiner files = new StringJoiner(" ", "COPY ", " ./");
+        files.add("package.json");
+        for (String file : NODE_INSTALL_FILES) {
+            if (repo.has(file)) {
+                files.add(file);
+            }
+        }
+        StringBuilder copy = new StringBuilder(files.toString());
+        // Yarn Berry keeps its release and plugins under .yarn
+        if (repo.has(".yarnrc.yml") && repo.has(".yarn")) {
+            copy.append("\nCOPY .yarn ./.yarn");
+        }
+        for (String member : members) {
+            copy.append("\nCOPY ").append(member).append("/package.json ").append(member).append("/");
+        }
+        return copy.toString();
+    }
+    
+    /**
+     * Python dependencies from the most precise source available: Poetry and Pipenv lockfiles,
+     * then requirements.txt. A pyproject.toml without a lockfile only declares its dependencies
+     * to the build backend, so those are installed together with the source.
+     */
+    private Dependencies pythonDependencies(RepoSnapshot repo, CacheMounts cache) {
+        String pip = cache.pip() + "pip install " + cache.pipNoCacheFlag();
+        if (repo.has("poetry.lock")) {
+            return new Dependencies("COPY pyproject.toml poetry.lock ./", "RUN " + pip
+                    + "poetry && poetry config virtualenvs.create false && poetry install --no-root --no-interaction --only main");
+        }
+        if (repo.has("Pipfile.lock")) {
+            return new Dependencies("COPY Pipfile Pipfile.lock ./",
+                    "RUN " + pip + "pipenv && pipenv install --system --deploy");
+        }
+        if (repo.has("requirements.txt") || !repo.hasAny("Pipfile", "pyproject.toml")) {
+            return new Dependencies("COPY requirements.txt ./", "RUN " + pip + "-r requirements.txt");
+        }
+        if (repo.has("Pipfile")) {
+            return new Dependencies("COPY Pipfile ./", "RUN " + pip + "pipenv && pipenv install --system --skip-lock");
+        }
+        return new Dependencies("COPY . .", "RUN " + pip + ".");
+    }
+    
+    private Dependencies goDependencies(RepoSnapshot repo, CacheMounts cache) {
+        String copy = repo.has("go.sum") ? "COPY go.mod go.sum ./" : "COPY go.mod ./";
+        // Vendored modules come with the source and the build uses them without downloading
+        String download = repo.has("vendor") ? "" : "RUN " + cache.goModules() + "go mod download";
+        return new Dependencies(copy, download);
+    }
+    
+    private Dependencies rubyDependencies(RepoSnapshot repo, CacheMounts cache) {
+        String copy = repo.has("Gemfile.lock") ? "COPY Gemfile Gemfile.lock ./" : "COPY Gemfile ./";
+        return new Dependencies(copy, "RUN " + cache.bundler() + "bundle install");
     }
     
-    private String generateNextjsDockerfile(int port) {
+    private Dependencies composerDependencies(RepoSnapshot repo, CacheMounts cache) {
+        String copy = repo.has("composer.lock") ? "COPY composer.json composer.lock ./" : "COPY composer.json ./";
+        return new Dependencies(copy, "RUN " + cache.composer() + "composer install --no-scripts --no-autoloader");
+    }
+    
+    private Dependencies gradleDependencies(RepoSnapshot repo, CacheMounts cache) {
+        List<String> files = GRADLE_BUILD_FILES.stream().filter(repo::has).toList();
+        String copy = "COPY " + String.join(" ", files.isEmpty() ? List.of("build.gradle") : files) + " ./";
+        if (repo.has("gradle")) {
+            copy += "\nCOPY gradle ./gradle";
+        }
+        return new Dependencies(copy, "RUN " + cache.gradle() + "gradle dependencies");
+    }
+    
+    private String generateNextjsDockerfile(int port, Dependencies deps) {
         return """
                 # Next.js Optimized Dockerfile
                 FROM node:18-alpine AS base
@@ -50,8 +317,8 @@ public class DockerfileGenerator {
                 RUN apk add --no-cache libc6-compat
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 # Build the app
                 FROM base AS builder
@@ -82,17 +349,17 @@ public class DockerfileGenerator {
                 ENV PORT %d
                 
                 CMD ["node", "server.js"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateReactDockerfile(int port) {
+    private String generateReactDockerfile(int port, Dependencies deps) {
         return """
                 # React Build Dockerfile
                 FROM node:18-alpine AS build
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build
@@ -113,17 +380,17 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateVueDockerfile(int port) {
+    private String generateVueDockerfile(int port, Dependencies deps) {
         return """
                 # Vue.js Build Dockerfile
                 FROM node:18-alpine AS build
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build
@@ -144,17 +411,17 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateAngularDockerfile(int port) {
+    private String generateAngularDockerfile(int port, Dependencies deps) {
         return """
                 # Angular Build Dockerfile
                 FROM node:18-alpine AS build
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build -- --configuration production
@@ -174,17 +441,17 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateSvelteDockerfile(int port) {
+    private String generateSvelteDockerfile(int port, Dependencies deps) {
         return """
                 # Svelte Build Dockerfile
                 FROM node:18-alpine AS build
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build
@@ -204,17 +471,17 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateNuxtDockerfile(int port) {
+    private String generateNuxtDockerfile(int port, Dependencies deps) {
         return """
                 # Nuxt.js Dockerfile
                 FROM node:18-alpine
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build
@@ -225,20 +492,20 @@ public class DockerfileGenerator {
                 ENV PORT %d
                 
                 CMD ["npm", "run", "start"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateSpringBootDockerfile(int port) {
+    private String generateSpringBootDockerfile(int port, CacheMounts cache) {
         return """
                 # Spring Boot Multi-stage Dockerfile
                 FROM maven:3.9-eclipse-temurin-17 AS build
                 WORKDIR /app
                 
                 COPY pom.xml .
-                RUN mvn dependency:go-offline
+                RUN %smvn dependency:go-offline
                 
                 COPY src ./src
-                RUN mvn clean package -DskipTests
+                RUN %smvn clean package -DskipTests
                 
                 # Production stage
                 FROM eclipse-temurin:17-jre-alpine
@@ -249,21 +516,20 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 ENTRYPOINT ["java", "-jar", "-Dserver.port=%d", "app.jar"]
-                """.formatted(port, port);
+                """.formatted(cache.maven(), cache.maven(), port, port);
     }
     
-    private String generateMicronautDockerfile(int port) {
+    private String generateMicronautDockerfile(int port, Dependencies deps, CacheMounts cache) {
         return """
                 # Micronaut Dockerfile
                 FROM gradle:8-jdk17 AS build
                 WORKDIR /app
                 
-                COPY build.gradle settings.gradle ./
-                COPY gradle ./gradle
-                RUN gradle dependencies
+                %s
+                %s
                 
                 COPY src ./src
-                RUN gradle build -x test
+                RUN %sgradle build -x test
                 
                 FROM eclipse-temurin:17-jre-alpine
                 WORKDIR /app
@@ -273,20 +539,20 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 ENTRYPOINT ["java", "-jar", "app.jar"]
-                """.formatted(port);
+                """.formatted(deps.copy(), deps.install(), cache.gradle(), port);
     }
     
-    private String generateQuarkusDockerfile(int port) {
+    private String generateQuarkusDockerfile(int port, CacheMounts cache) {
         return """
                 # Quarkus Native Dockerfile
                 FROM maven:3.9-eclipse-temurin-17 AS build
                 WORKDIR /app
                 
                 COPY pom.xml .
-                RUN mvn dependency:go-offline
+                RUN %smvn dependency:go-offline
                 
                 COPY src ./src
-                RUN mvn package -Pnative -DskipTests
+                RUN %smvn package -Pnative -DskipTests
                 
                 FROM registry.access.redhat.com/ubi8/ubi-minimal
                 WORKDIR /app
@@ -296,10 +562,10 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 CMD ["./application"]
-                """.formatted(port);
+                """.formatted(cache.maven(), cache.maven(), port);
     }
     
-    private String generateDjangoDockerfile(int port) {
+    private String generateDjangoDockerfile(int port, Dependencies deps) {
         return """
                 # Django Dockerfile
                 FROM python:3.11-slim
@@ -308,8 +574,8 @@ public class DockerfileGenerator {
                 ENV PYTHONUNBUFFERED=1
                 ENV PYTHONDONTWRITEBYTECODE=1
                 
-                COPY requirements.txt .
-                RUN pip install --no-cache-dir -r requirements.txt
+                %s
+                %s
                 
                 COPY . .
                 
@@ -319,10 +585,10 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 CMD ["gunicorn", "--bind", "0.0.0.0:%d", "wsgi:application"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateFlaskDockerfile(int port) {
+    private String generateFlaskDockerfile(int port, Dependencies deps) {
         return """
                 # Flask Dockerfile
                 FROM python:3.11-slim
@@ -330,8 +596,8 @@ public class DockerfileGenerator {
                 
                 ENV PYTHONUNBUFFERED=1
                 
-                COPY requirements.txt .
-                RUN pip install --no-cache-dir -r requirements.txt
+                %s
+                %s
                 
                 COPY . .
                 
@@ -339,10 +605,10 @@ public class DockerfileGenerator {
                 ENV FLASK_APP=app.py
                 
                 CMD ["gunicorn", "--bind", "0.0.0.0:%d", "--workers", "4", "app:app"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateFastAPIDockerfile(int port) {
+    private String generateFastAPIDockerfile(int port, Dependencies deps) {
         return """
                 # FastAPI Dockerfile
                 FROM python:3.11-slim
@@ -350,25 +616,25 @@ public class DockerfileGenerator {
                 
                 ENV PYTHONUNBUFFERED=1
                 
-                COPY requirements.txt .
-                RUN pip install --no-cache-dir -r requirements.txt
+                %s
+                %s
                 
                 COPY . .
                 
                 EXPOSE %d
                 
                 CMD ["uvicorn", "main:app", "--host", "0.0.0.0", "--port", "%d"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateNodeBackendDockerfile(int port) {
+    private String generateNodeBackendDockerfile(int port, Dependencies deps) {
         return """
                 # Node.js Backend Dockerfile
                 FROM node:18-alpine
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci --only=production
+                %s
+                %s
                 
                 COPY . .
                 
@@ -378,20 +644,20 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 CMD ["npm", "start"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateGoDockerfile(int port) {
+    private String generateGoDockerfile(int port, Dependencies deps, CacheMounts cache) {
         return """
                 # Go Multi-stage Dockerfile
                 FROM golang:1.21-alpine AS build
                 WORKDIR /app
                 
-                COPY go.mod go.sum ./
-                RUN go mod download
+                %s
+                %s
                 
                 COPY . .
-                RUN CGO_ENABLED=0 GOOS=linux go build -o main .
+                RUN %s%sCGO_ENABLED=0 GOOS=linux go build -o main .
                 
                 # Production stage
                 FROM alpine:latest
@@ -405,10 +671,10 @@ public class DockerfileGenerator {
                 ENV PORT=%d
                 
                 CMD ["./main"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), cache.goModules(), cache.goBuild(), port, port);
     }
     
-    private String generateRailsDockerfile(int port) {
+    private String generateRailsDockerfile(int port, Dependencies deps) {
         return """
                 # Ruby on Rails Dockerfile
                 FROM ruby:3.2-alpine
@@ -416,8 +682,8 @@ public class DockerfileGenerator {
                 
                 RUN apk add --no-cache build-base postgresql-dev nodejs yarn
                 
-                COPY Gemfile Gemfile.lock ./
-                RUN bundle install
+                %s
+                %s
                 
                 COPY . .
                 
@@ -426,10 +692,10 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 CMD ["rails", "server", "-b", "0.0.0.0", "-p", "%d"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
-    private String generateLaravelDockerfile(int port) {
+    private String generateLaravelDockerfile(int port, Dependencies deps) {
         return """
                 # Laravel Dockerfile
                 FROM php:8.2-fpm-alpine
@@ -437,8 +703,8 @@ public class DockerfileGenerator {
                 
                 RUN apk add --no-cache nginx composer
                 
-                COPY composer.json composer.lock ./
-                RUN composer install --no-scripts --no-autoloader
+                %s
+                %s
                 
                 COPY . .
                 RUN composer dump-autoload --optimize
@@ -446,7 +712,7 @@ public class DockerfileGenerator {
                 EXPOSE %d
                 
                 CMD ["php-fpm"]
-                """.formatted(port);
+                """.formatted(deps.copy(), deps.install(), port);
     }
     
     private String generateStaticDockerfile(int port) {
@@ -470,14 +736,14 @@ public class DockerfileGenerator {
                 """.formatted(port, port);
     }
     
-    private String generateGatsbyDockerfile(int port) {
+    private String generateGatsbyDockerfile(int port, Dependencies deps) {
         return """
                 # Gatsby Build Dockerfile
                 FROM node:18-alpine AS build
                 WORKDIR /app
                 
-                COPY package*.json ./
-                RUN npm ci
+                %s
+                %s
                 
                 COPY . .
                 RUN npm run build
@@ -496,7 +762,7 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(deps.copy(), deps.install(), port, port);
     }
     
     private String generateHugoDockerfile(int port) {
@@ -526,7 +792,7 @@ public class DockerfileGenerator {
                 """.formatted(port, port);
     }
     
-    private String generateJekyllDockerfile(int port) {
+    private String generateJekyllDockerfile(int port, CacheMounts cache) {
         return """
                 # Jekyll Build Dockerfile
                 FROM ruby:3.2-alpine AS build
@@ -536,7 +802,7 @@ public class DockerfileGenerator {
                 RUN gem install jekyll bundler
                 
                 COPY Gemfile* ./
-                RUN bundle install
+                RUN %sbundle install
                 
                 COPY . .
                 RUN jekyll build
@@ -554,7 +820,7 @@ public class DockerfileGenerator {
                 
                 EXPOSE %d
                 CMD ["nginx", "-g", "daemon off;"]
-                """.formatted(port, port);
+                """.formatted(cache.bundler(), port, port);
     }
     
     private String generateGenericDockerfile(int port) {
@@ -570,4 +836,125 @@ public class DockerfileGenerator {
                 CMD ["sh", "-c", "echo 'Application started on port %d'"]
                 """.formatted(port, port);
     }
+    
+    /**
+     * Dependency-only layer: the manifest and lockfile are copied before the source and
+     * installed on their own, so the install layer stays cached across source edits
+     * @param copy COPY instructions
+     * @param install RUN instruction, empty when nothing has to be fetched up front
+     */
+    private record Dependencies(String copy, String install) {
+    }
+    
+    /**
+     * Node package manager, chosen by lockfile
+     */
+    private enum NodePackageManager {
+        NPM,
+        YARN,
+        YARN_BERRY,
+        PNPM;
+        
+        static NodePackageManager of(RepoSnapshot repo) {
+            if (repo.has("pnpm-lock.yaml")) {
+                return PNPM;
+            }
+            if (repo.has("yarn.lock")) {
+                return repo.has(".yarnrc.yml") ? YARN_BERRY : YARN;
+            }
+            return NPM;
+        }
+        
+        /**
+         * npm ci refuses to run without a lockfile
+         */
+        static boolean isNpmLocked(RepoSnapshot repo) {
+            return repo.hasAny("package-lock.json", "npm-shrinkwrap.json");
+        }
+        
+        /**
+         * Install command; Yarn Berry has no production-only install without the focus plugin
+         */
+        String install(RepoSnapshot repo, CacheMounts cache, boolean production) {
+            return switch (this) {
+                case PNPM -> cache.pnpm() + "corepack enable && pnpm install --frozen-lockfile"
+                        + (production ? " --prod" : "");
+                case YARN -> cache.yarn() + "yarn install --frozen-lockfile" + (production ? " --production" : "");
+                case YARN_BERRY -> cache.yarnBerry() + "corepack enable && yarn install --immutable";
+                case NPM -> cache.npm() + (isNpmLocked(repo) ? "npm ci" : "npm install")
+                        + (production ? " --omit=dev" : "");
+            };
+        }
+    }
+    
+    /**
+     * RUN prefixes for BuildKit cache mounts, empty strings when BuildKit mode is off.
+     * Cache IDs are scoped per project so projects never share or evict each other's caches.
+     */
+    private record CacheMounts(boolean enabled, String scope) {
+        
+        static CacheMounts of(boolean enabled, String projectId) {
+            String scope = projectId == null ? "" : projectId.toLowerCase().replaceAll("[^a-z0-9_-]", "-");
+            return new CacheMounts(enabled, scope);
+        }
+        
+        String npm() {
+            return mount("npm", "/root/.npm");
+        }
+        
+        String pnpm() {
+            return mount("pnpm", "/root/.local/share/pnpm/store");
+        }
+        
+        String yarn() {
+            return mount("yarn", "/usr/local/share/.cache/yarn");
+        }
+        
+        String yarnBerry() {
+            return mount("yarn-berry", "/root/.yarn/berry/cache");
+        }
+        
+        String maven() {
+            return mount("maven", "/root/.m2");
+        }
+        
+        String gradle() {
+            return mount("gradle", "/home/gradle/.gradle");
+        }
+        
+        String pip() {
+            return mount("pip", "/root/.cache/pip");
+        }
+        
+        /**
+         * pip must keep its cache when the cache directory is mounted
+         */
+        String pipNoCacheFlag() {
+            return enabled ? "" : "--no-cache-dir ";
+        }
+        
+        String goModules() {
+            return mount("gomod", "/go/pkg/mod");
+        }
+        
+        String goBuild() {
+            return mount("gobuild", "/root/.cache/go-build");
+        }
+        
+        /**
+         * Gems are installed into the image; only downloaded .gem files go to the cache
+         */
+        String bundler() {
+            return enabled ? mount("bundler", "/root/.bundle/cache") + "BUNDLE_GLOBAL_GEM_CACHE=true " : "";
+        }
+        
+        String composer() {
+            return enabled ? mount("composer", "/root/.cache/composer")
+                    + "COMPOSER_CACHE_DIR=/root/.cache/composer " : "";
+        }
+        
+        private String mount(String ecosystem, String target) {
+            return enabled ? "--mount=type=cache,id=vision-" + scope + "-" + ecosystem + ",target=" + target + " " : "";
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package com.vision.paas.deploy.git;
+
+/**
+ * Outcome of cloning a repository for a deployment
+ * @param path Working tree path
+ * @param branch Branch that was checked out
+ * @param commitSha Commit at HEAD after the clone
+ * @param depth History depth fetched, 0 for full history
+ * @param bytesReceived Size of the pack data written by the clone or mirror fetch
+ * @param durationMs Wall-clock time of the clone including branch resolution
+ * @param fromMirror Whether the tree was materialized from the local mirror store
+ */
+public record CloneResult(
+        String path,
+        String branch,
+        String commitSha,
+        int depth,
+        long bytesReceived,
+        long durationMs,
+        boolean fromMirror) {
+}
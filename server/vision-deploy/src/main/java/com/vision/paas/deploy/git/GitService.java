@@ -1,15 +1,26 @@
 package com.vision.paas.deploy.git;
 
 import com.vision.paas.common.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Git Service
@@ -17,10 +28,28 @@ import java.nio.file.Paths;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class GitService {
     
     private static final String CLONE_BASE_PATH = "/tmp/vision-deploy";
     
+    private final MirrorStore mirrorStore;
+    
+    /**
+     * Serve clones from the local mirror store instead of the remote
+     */
+    @Value("${deploy.git.mirror.enabled:true}")
+    private boolean mirrorEnabled;
+    
+    /**
+     * History depth for deploy clones; 0 clones full history
+     */
+    @Value("${deploy.git.clone-depth:1}")
+    private int cloneDepth;
+    
+    @Value("${deploy.git.timeout-seconds:300}")
+    private int timeoutSeconds;
+    
     /**
      * Clone a Git repository
      * @param gitUrl Repository URL
@@ -28,7 +57,22 @@ public class GitService {
      * @return Path to cloned repository
      */
     public String cloneRepository(String gitUrl, String projectId) {
+        return cloneRepository(gitUrl, projectId, null).path();
+    }
+    
+    /**
+     * Clone a single branch of a Git repository.
+     * With the mirror store enabled the remote is only asked for new objects and the
+     * working tree is checked out from the local mirror; otherwise the branch is cloned
+     * directly, shallow unless deploy.git.clone-depth is 0.
+     * @param gitUrl Repository URL
+     * @param projectId Project ID for directory naming
+     * @param branch Branch to deploy, or null for the remote's default branch
+     * @return Clone location, commit and transfer statistics
+     */
+    public CloneResult cloneRepository(String gitUrl, String projectId, String branch) {
         log.info("Cloning repository: {} for project: {}", gitUrl, projectId);
+        long started = System.nanoTime();
         
         try {
             // Create base directory if not exists
@@ -46,44 +90,51 @@ public class GitService {
                 deleteDirectory(targetDir);
             }
             
-            // Clone repository
-            Git git = Git.cloneRepository()
+            String targetBranch = branch != null && !branch.isBlank() ? branch : resolveDefaultBranch(gitUrl);
+            
+            if (mirrorEnabled) {
+                MirrorStore.MirrorUpdate update = mirrorStore.update(gitUrl, targetBranch);
+                mirrorStore.materialize(update, targetDir);
+                long durationMs = (System.nanoTime() - started) / 1_000_000;
+                
+                log.info("Checked out {}@{} from mirror to {} ({} new bytes fetched in {} ms)",
+                        gitUrl, targetBranch, targetPath, update.bytesFetched(), durationMs);
+                return new CloneResult(targetPath, targetBranch, update.commitSha(), 0,
+                        update.bytesFetched(), durationMs, true);
+            }
+            
+            // Fetch only the target branch, without tags
+            CloneCommand clone = Git.cloneRepository()
                     .setURI(gitUrl)
                     .setDirectory(targetDir)
-                    .setBranch("main")
-                    .call();
+                    .setBranch(targetBranch)
+                    .setBranchesToClone(List.of(Constants.R_HEADS + targetBranch))
+                    .setCloneAllBranches(false)
+                    .setNoTags()
+                    .setTimeout(timeoutSeconds);
+            if (cloneDepth > 0) {
+                clone.setDepth(cloneDepth);
+            }
             
-            git.close();
+            String commitSha;
+            try (Git git = clone.call()) {
+                commitSha = git.getRepository().resolve(Constants.HEAD).getName();
+            }
             
-            log.info("Successfully cloned repository to: {}", targetPath);
-            return targetPath;
+            long bytesReceived = directorySize(new File(targetDir, ".git/objects").toPath());
+            long durationMs = (System.nanoTime() - started) / 1_000_000;
+            
+            log.info("Cloned {}@{} to {} (depth {}, {} bytes in {} ms)",
+                    gitUrl, targetBranch, targetPath, cloneDepth, bytesReceived, durationMs);
+            return new CloneResult(targetPath, targetBranch, commitSha, cloneDepth, bytesReceived, durationMs,
+                    false);
             
         } catch (GitAPIException e) {
             log.error("Failed to clone repository", e);
+            throw new BusinessException("Failed to clone repository: " + e.getMessage());
             
-            // Try with master branch if main fails
-            try {
-                String targetPath = CLONE_BASE_PATH + "/" + projectId;
-                File targetDir = new File(targetPath);
-                
-                if (targetDir.exists()) {
-                    deleteDirectory(targetDir);
-                }
-                
-                Git git = Git.cloneRepository()
-                        .setURI(gitUrl)
-                        .setDirectory(targetDir)
-                        .setBranch("master")
-                        .call();
-                
-                git.close();
-                
-                log.info("Successfully cloned repository (master branch) to: {}", targetPath);
-                return targetPath;
-                
-            } catch (Exception ex) {
-                throw new BusinessException("Failed to clone repository: " + ex.getMessage());
-            }
+        } catch (BusinessException e) {
+            throw e;
             
         } catch (Exception e) {
             log.error("Unexpected error while cloning", e);
@@ -91,6 +142,52 @@ public class GitService {
         }
     }
     
+    /**
+     * Resolve the remote's default branch with a single ls-remote round trip
+     * @param gitUrl Repository URL
+     * @return Short branch name, e.g. "main"
+     */
+    public String resolveDefaultBranch(String gitUrl) {
+        Map<String, Ref> refs;
+        try {
+            refs = Git.lsRemoteRepository()
+                    .setRemote(gitUrl)
+                    .setTimeout(timeoutSeconds)
+                    .callAsMap();
+        } catch (GitAPIException e) {
+            throw new BusinessException("Failed to list remote branches: " + e.getMessage());
+        }
+        
+        // Servers advertise HEAD as a symref to the default branch
+        Ref head = refs.get(Constants.HEAD);
+        if (head != null && head.isSymbolic()) {
+            return Repository.shortenRefName(head.getTarget().getName());
+        }
+        
+        // Otherwise pick the branch HEAD points at, preferring the usual names
+        ObjectId headId = head != null ? head.getObjectId() : null;
+        String fallback = null;
+        for (String candidate : List.of("main", "master")) {
+            Ref ref = refs.get(Constants.R_HEADS + candidate);
+            if (ref != null && (headId == null || headId.equals(ref.getObjectId()))) {
+                return candidate;
+            }
+            if (ref != null && fallback == null) {
+                fallback = candidate;
+            }
+        }
+        for (Ref ref : refs.values()) {
+            if (ref.getName().startsWith(Constants.R_HEADS)
+                    && (headId == null || headId.equals(ref.getObjectId()))) {
+                return Repository.shortenRefName(ref.getName());
+            }
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        throw new BusinessException("Repository has no branches: " + gitUrl);
+    }
+    
     /**
      * Pull latest changes from repository
      */
@@ -137,6 +234,20 @@ public class GitService {
         }
     }
     
+    /**
+     * Total size of regular files under a directory
+     */
+    private long directorySize(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+    
     /**
      * Recursively delete directory
      */
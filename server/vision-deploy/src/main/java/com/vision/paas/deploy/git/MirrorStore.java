@@ -0,0 +1,290 @@
+package com.vision.paas.deploy.git;
+
+import com.vision.paas.common.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Mirror Store
+ * Keeps one bare mirror per repository URL so repeated deploys only fetch new objects.
+ * Working trees are materialized from a mirror by sharing its object database
+ * (like {@code git clone --shared}) instead of copying or re-downloading objects.
+ * Concurrent deploys of the same repository share a single fetch, and mirrors are
+ * evicted least-recently-used first once the store exceeds its disk budget.
+ */
+@Slf4j
+@Component
+public class MirrorStore {
+    
+    /**
+     * Only branches are mirrored, so pull request refs do not use up the disk budget
+     */
+    private static final RefSpec BRANCHES = new RefSpec("+refs/heads/*:refs/heads/*");
+    
+    /**
+     * Kept outside the clone directory, which GitService cleans up per project
+     */
+    @Value("${deploy.git.mirror.path:/tmp/vision-mirrors}")
+    private String mirrorPath;
+    
+    @Value("${deploy.git.mirror.max-bytes:10737418240}")
+    private long maxBytes;
+    
+    /**
+     * Mirrors used more recently than this are never evicted, since a build may still read them
+     */
+    @Value("${deploy.git.mirror.eviction-grace-minutes:30}")
+    private long evictionGraceMinutes;
+    
+    @Value("${deploy.git.timeout-seconds:300}")
+    private int timeoutSeconds;
+    
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() throws IOException {
+        Path base = Paths.get(mirrorPath);
+        Files.createDirectories(base);
+        
+        // Pick up mirrors left by a previous run
+        try (Stream<Path> entries = Files.list(base)) {
+            entries.filter(Files::isDirectory).forEach(dir -> {
+                Mirror mirror = new Mirror(dir.toFile());
+                mirror.lastAccess = dir.toFile().lastModified();
+                mirror.sizeBytes = sizeOf(dir);
+                mirrors.put(dir.getFileName().toString(), mirror);
+            });
+        }
+        log.info("Mirror store at {}: {} mirrors, {} bytes (budget {})",
+                mirrorPath, mirrors.size(), totalBytes(), maxBytes);
+    }
+    
+    /**
+     * Bring the mirror for a repository up to date, creating it on first use
+     * @param gitUrl Repository URL
+     * @param branch Branch whose tip should be resolved
+     * @return Mirror location, resolved commit and bytes added to the mirror
+     */
+    public MirrorUpdate update(String gitUrl, String branch) {
+        String key = keyFor(gitUrl);
+        long requestedAt = System.nanoTime();
+        
+        Mirror mirror;
+        while (true) {
+            mirror = mirrors.computeIfAbsent(key, k -> new Mirror(Paths.get(mirrorPath, k).toFile()));
+            mirror.lock.writeLock().lock();
+            if (mirrors.get(key) == mirror) {
+                break;
+            }
+            // Evicted while we were waiting for the lock
+            mirror.lock.writeLock().unlock();
+        }
+        
+        try {
+            long sizeBefore = mirror.sizeBytes;
+            if (!new File(mirror.directory, "HEAD").exists()) {
+                log.info("Creating mirror for {} at {}", gitUrl, mirror.directory);
+                // A fetch only sees commits pushed before it started
+                long fetchStartedAt = System.nanoTime();
+                // Bare with all branches maps refs/heads/* onto itself; pull request refs and tags are skipped
+                try (Git ignored = Git.cloneRepository()
+                        .setURI(gitUrl)
+                        .setDirectory(mirror.directory)
+                        .setBare(true)
+                        .setCloneAllBranches(true)
+                        .setNoTags()
+                        .setTimeout(timeoutSeconds)
+                        .call()) {
+                    mirror.lastFetch = fetchStartedAt;
+                }
+            } else if (mirror.lastFetch < requestedAt) {
+                // A fetch that started before this deploy was requested may have missed its commit
+                long fetchStartedAt = System.nanoTime();
+                try (Git git = Git.open(mirror.directory)) {
+                    git.fetch()
+                            .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                            .setRefSpecs(BRANCHES)
+                            .setTagOpt(TagOpt.NO_TAGS)
+                            .setRemoveDeletedRefs(true)
+                            .setTimeout(timeoutSeconds)
+                            .call();
+                }
+                mirror.lastFetch = fetchStartedAt;
+            } else {
+                log.debug("Mirror for {} was fetched by a concurrent deploy", gitUrl);
+            }
+            mirror.sizeBytes = sizeOf(mirror.directory.toPath());
+            mirror.lastAccess = System.currentTimeMillis();
+            
+            ObjectId commit;
+            try (Git git = Git.open(mirror.directory)) {
+                commit = git.getRepository().resolve(Constants.R_HEADS + branch);
+            }
+            if (commit == null) {
+                throw new BusinessException("Branch not found in repository: " + branch);
+            }
+            return new MirrorUpdate(mirror.directory, commit.getName(),
+                    Math.max(0, mirror.sizeBytes - sizeBefore));
+        
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to update mirror for {}", gitUrl, e);
+            throw new BusinessException("Failed to fetch repository: " + e.getMessage());
+        } finally {
+            mirror.lock.writeLock().unlock();
+            evictIfOverBudget();
+        }
+    }
+    
+    /**
+     * Create a working tree at a commit that borrows objects from the mirror
+     * @param update Result of {@link #update}
+     * @param worktree Empty or missing target directory
+     */
+    public void materialize(MirrorUpdate update, File worktree) {
+        Mirror mirror = mirrors.get(update.mirrorDirectory().getName());
+        ReentrantReadWriteLock.ReadLock readLock = mirror != null ? mirror.lock.readLock() : null;
+        if (readLock != null) {
+            readLock.lock();
+        }
+        try {
+            try (Git ignored = Git.init().setDirectory(worktree).call()) {
+                Path alternates = worktree.toPath().resolve(".git/objects/info/alternates");
+                Files.createDirectories(alternates.getParent());
+                Files.writeString(alternates,
+                        new File(update.mirrorDirectory(), "objects").getAbsolutePath() + "\n");
+            }
+            
+            // Reopen so the alternates file is picked up
+            try (Git git = Git.open(worktree)) {
+                ObjectId commit = ObjectId.fromString(update.commitSha());
+                RefUpdate head = git.getRepository().updateRef(Constants.HEAD, true);
+                head.setNewObjectId(commit);
+                head.forceUpdate();
+                git.reset()
+                        .setMode(ResetCommand.ResetType.HARD)
+                        .setRef(update.commitSha())
+                        .call();
+            }
+        } catch (Exception e) {
+            log.error("Failed to materialize {} into {}", update.commitSha(), worktree, e);
+            throw new BusinessException("Failed to check out repository: " + e.getMessage());
+        } finally {
+            if (readLock != null) {
+                readLock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Total bytes held by all mirrors
+     */
+    public long totalBytes() {
+        return mirrors.values().stream().mapToLong(m -> m.sizeBytes).sum();
+    }
+    
+    private void evictIfOverBudget() {
+        long total = totalBytes();
+        if (total <= maxBytes) {
+            return;
+        }
+        
+        long graceCutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(evictionGraceMinutes);
+        List<Map.Entry<String, Mirror>> candidates = new ArrayList<>(mirrors.entrySet());
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        
+        for (Map.Entry<String, Mirror> entry : candidates) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Mirror mirror = entry.getValue();
+            if (mirror.lastAccess > graceCutoff || !mirror.lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                deleteDirectory(mirror.directory.toPath());
+                mirrors.remove(entry.getKey(), mirror);
+                total -= mirror.sizeBytes;
+                log.info("Evicted mirror {} ({} bytes)", mirror.directory, mirror.sizeBytes);
+            } catch (IOException e) {
+                log.warn("Failed to evict mirror {}", mirror.directory, e);
+            } finally {
+                mirror.lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    private static String keyFor(String gitUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(gitUrl.trim().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12) + ".git";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static long sizeOf(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+    
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+    
+    /**
+     * Mirror location and the commit a deploy should check out
+     */
+    public record MirrorUpdate(File mirrorDirectory, String commitSha, long bytesFetched) {
+    }
+    
+    private static class Mirror {
+        private final File directory;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long lastAccess;
+        private volatile long lastFetch = Long.MIN_VALUE;
+        private volatile long sizeBytes;
+        
+        Mirror(File directory) {
+            this.directory = directory;
+        }
+    }
+}
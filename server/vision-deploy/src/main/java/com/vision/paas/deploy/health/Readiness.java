@@ -0,0 +1,15 @@
+package com.vision.paas.deploy.health;
+
+/**
+ * Outcome of a readiness probe
+ * @param ready Whether the application accepted connections before the timeout
+ * @param timeToReadyMs Time from container start until the application was ready
+ * @param attempts Number of probe attempts
+ * @param detail Reason of the last failed attempt, null when ready
+ */
+public record Readiness(
+        boolean ready,
+        long timeToReadyMs,
+        int attempts,
+        String detail) {
+}
@@ -0,0 +1,244 @@
+package com.vision.paas.deploy.health;
+
+import com.vision.paas.common.enums.ProjectType;
+import com.vision.paas.deploy.docker.DockerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Readiness Prober
+ * Polls a container's mapped port on its Docker host until the application accepts connections,
+ * optionally followed by an HTTP GET. Attempts back off exponentially and run on a
+ * small shared scheduler, so waiting deployments do not hold a thread each.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReadinessProber {
+    
+    private static final String TIMEOUT_PREFIX = "deploy.health.timeout-seconds.";
+    
+    private final DockerService dockerService;
+    private final Environment environment;
+    
+    @Value("${deploy.health.scheduler-threads:2}")
+    private int schedulerThreads;
+    
+    @Value("${deploy.health.initial-backoff-ms:100}")
+    private long initialBackoffMs;
+    
+    @Value("${deploy.health.max-backoff-ms:2000}")
+    private long maxBackoffMs;
+    
+    @Value("${deploy.health.attempt-timeout-ms:1000}")
+    private int attemptTimeoutMs;
+    
+    @Value("${deploy.health.http-path:}")
+    private String defaultHttpPath;
+    
+    @Value("${deploy.health.timeout-seconds.default:60}")
+    private long defaultTimeoutSeconds;
+    
+    private ScheduledExecutorService scheduler;
+    
+    private final LongAdder ready = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalTimeToReadyMs = new LongAdder();
+    private final AtomicLong maxTimeToReadyMs = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(schedulerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "deploy-probe-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Readiness timeout of a project type: deploy.health.timeout-seconds.&lt;type&gt;,
+     * then .&lt;runtime&gt;, then .default
+     */
+    public Duration timeoutFor(ProjectType projectType) {
+        if (projectType == null) {
+            return Duration.ofSeconds(defaultTimeoutSeconds);
+        }
+        Long seconds = environment.getProperty(
+                TIMEOUT_PREFIX + projectType.name().toLowerCase(), Long.class);
+        if (seconds == null) {
+            seconds = environment.getProperty(
+                    TIMEOUT_PREFIX + projectType.getRuntime(), Long.class, defaultTimeoutSeconds);
+        }
+        return Duration.ofSeconds(seconds);
+    }
+    
+    /**
+     * Start probing a container
+     * @param containerId Container being probed
+     * @param hostPort Host port mapped to the application port
+     * @param httpPath Path to GET once the port accepts connections; null uses the configured default, blank skips HTTP
+     * @param timeout Give up after this long
+     * @param startedAtNanos {@link System#nanoTime()} when the container was started
+     * @return Completes on the prober's scheduler once the application is ready or the timeout expired
+     */
+    public CompletableFuture<Readiness> probe(String containerId, int hostPort, String httpPath,
+                                              Duration timeout, long startedAtNanos) {
+        String path = httpPath != null ? httpPath : defaultHttpPath;
+        Probe probe = new Probe(containerId, hostPort, path.isBlank() ? null : path,
+                System.nanoTime() + timeout.toNanos(), startedAtNanos);
+        scheduler.execute(probe);
+        return probe.future;
+    }
+    
+    /**
+     * Ready/failed counts and time-to-ready across all probes
+     */
+    public Snapshot getMetrics() {
+        long readyCount = ready.sum();
+        return new Snapshot(
+                readyCount,
+                failed.sum(),
+                readyCount > 0 ? totalTimeToReadyMs.sum() / readyCount : 0,
+                maxTimeToReadyMs.get());
+    }
+    
+    public record Snapshot(
+            long ready,
+            long failed,
+            long avgTimeToReadyMs,
+            long maxTimeToReadyMs) {
+    }
+    
+    /**
+     * One container's probe; reschedules itself until ready or out of time
+     */
+    private class Probe implements Runnable {
+        private final String containerId;
+        private final String address;
+        private final int hostPort;
+        private final String httpPath;
+        private final long deadlineNanos;
+        private final long startedAtNanos;
+        private final CompletableFuture<Readiness> future = new CompletableFuture<>();
+        private long backoffMs = initialBackoffMs;
+        private int attempts;
+        
+        Probe(String containerId, int hostPort, String httpPath, long deadlineNanos, long startedAtNanos) {
+            this.containerId = containerId;
+            this.address = Objects.requireNonNullElse(dockerService.getContainerAddress(containerId), "localhost");
+            this.hostPort = hostPort;
+            this.httpPath = httpPath;
+            this.deadlineNanos = deadlineNanos;
+            this.startedAtNanos = startedAtNanos;
+        }
+        
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            attempts++;
+            String detail;
+            try {
+                detail = attempt();
+            } catch (Exception e) {
+                detail = e.getMessage();
+            }
+            
+            long now = System.nanoTime();
+            if (detail == null) {
+                long timeToReadyMs = (now - startedAtNanos) / 1_000_000;
+                ready.increment();
+                totalTimeToReadyMs.add(timeToReadyMs);
+                maxTimeToReadyMs.accumulateAndGet(timeToReadyMs, Math::max);
+                future.complete(new Readiness(true, timeToReadyMs, attempts, null));
+            } else if (now + TimeUnit.MILLISECONDS.toNanos(backoffMs) > deadlineNanos) {
+                failed.increment();
+                future.complete(new Readiness(false, (now - startedAtNanos) / 1_000_000, attempts,
+                        "Not ready after " + attempts + " attempts: " + detail));
+            } else {
+                scheduler.schedule(this, backoffMs, TimeUnit.MILLISECONDS);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+        
+        /**
+         * @return null when ready, otherwise why not
+         */
+        private String attempt() throws IOException {
+            // Docker may still restart a crashing container, so keep probing until the deadline
+            if (!dockerService.isContainerHealthy(containerId)) {
+                return "container is not running";
+            }
+            if (!acceptsConnections()) {
+                return "port " + hostPort + " not accepting connections";
+            }
+            if (httpPath == null) {
+                return null;
+            }
+            int status = httpGet();
+            return status < 400 ? null : "GET " + httpPath + " returned " + status;
+        }
+        
+        /**
+         * The Docker userland proxy accepts connections on the host port even before the
+         * application listens and then closes them, so an immediate EOF counts as not ready
+         */
+        private boolean acceptsConnections() {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(address, hostPort), attemptTimeoutMs);
+                socket.setSoTimeout(200);
+                try (InputStream in = socket.getInputStream()) {
+                    return in.read() != -1;
+                } catch (SocketTimeoutException e) {
+                    // Connection held open: something is listening behind the proxy
+                    return true;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        
+        private int httpGet() throws IOException {
+            String path = httpPath.startsWith("/") ? httpPath : "/" + httpPath;
+            HttpURLConnection connection = (HttpURLConnection) URI.create(
+                    "http://" + address + ":" + hostPort + path).toURL().openConnection();
+            try {
+                connection.setConnectTimeout(attemptTimeoutMs);
+                connection.setReadTimeout(attemptTimeoutMs);
+                connection.setInstanceFollowRedirects(false);
+                return connection.getResponseCode();
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.vision.paas.deploy.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.common.util.IdGenerator;
+import com.vision.paas.deploy.pipeline.DeploymentStage;
+import com.vision.paas.deploy.service.AutoDeployService;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deployment Job
+ * A queued deployment request and its live result
+ */
+public class DeploymentJob {
+    
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    
+    public enum Type {
+        AUTO,
+        CUSTOM,
+        REDEPLOY
+    }
+    
+    private final String id;
+    private final long sequence;
+    private final Type type;
+    private final String projectId;
+    private final String gitUrl;
+    private final String branch;
+    private final Map<String, String> envVars;
+    private final int memoryMB;
+    private final AutoDeployService.DeploymentConfig config;
+    private final int priority;
+    private final Instant submittedAt;
+    private final AutoDeployService.DeploymentResult result;
+    private final DeploymentStage resumeStage;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile boolean cancelled;
+    private volatile String cancelReason;
+    
+    // Guarded by this
+    private boolean rollingOut;
+    private Thread worker;
+    
+    private DeploymentJob(Type type, String projectId, String gitUrl, String branch, Map<String, String> envVars,
+                          int memoryMB, AutoDeployService.DeploymentConfig config, int priority) {
+        this(IdGenerator.generateId(), type, projectId, gitUrl, branch, envVars, memoryMB, config, priority,
+                Instant.now(), new AutoDeployService.DeploymentResult(), DeploymentStage.CLONE);
+        this.result.setProjectId(projectId);
+        this.result.setStatus(DeploymentStatus.PENDING);
+    }
+    
+    private DeploymentJob(String id, Type type, String projectId, String gitUrl, String branch,
+                          Map<String, String> envVars, int memoryMB, AutoDeployService.DeploymentConfig config,
+                          int priority, Instant submittedAt, AutoDeployService.DeploymentResult result,
+                          DeploymentStage resumeStage) {
+        this.id = id;
+        this.sequence = SEQUENCE.incrementAndGet();
+        this.type = type;
+        this.projectId = projectId;
+        this.gitUrl = gitUrl;
+        this.branch = branch;
+        this.envVars = envVars;
+        this.memoryMB = memoryMB;
+        this.config = config;
+        this.priority = priority;
+        this.submittedAt = submittedAt;
+        this.result = result;
+        this.resumeStage = resumeStage;
+    }
+    
+    public static DeploymentJob auto(String projectId, String gitUrl, String branch,
+                                     Map<String, String> envVars, int memoryMB, int priority) {
+        return new DeploymentJob(Type.AUTO, projectId, gitUrl, branch, envVars, memoryMB, null, priority);
+    }
+    
+    public static DeploymentJob custom(String projectId, String gitUrl, String branch,
+                                       AutoDeployService.DeploymentConfig config, int priority) {
+        int memoryMB = config.getMemoryMB() != null ? config.getMemoryMB() : 512;
+        return new DeploymentJob(Type.CUSTOM, projectId, gitUrl, branch, config.getEnvVars(), memoryMB,
+                config, priority);
+    }
+    
+    public static DeploymentJob redeploy(String projectId, String gitUrl, String branch,
+                                         Map<String, String> envVars, int memoryMB, int priority) {
+        return new DeploymentJob(Type.REDEPLOY, projectId, gitUrl, branch, envVars, memoryMB, null, priority);
+    }
+    
+    /**
+     * Recreate a job interrupted by a restart, continuing at the given stage
+     * @param result Outputs of the stages the job already completed
+     */
+    public static DeploymentJob restore(String id, Type type, String projectId, String gitUrl, String branch,
+                                        Map<String, String> envVars, int memoryMB,
+                                        AutoDeployService.DeploymentConfig config, int priority,
+                                        Instant submittedAt, AutoDeployService.DeploymentResult result,
+                                        DeploymentStage resumeStage) {
+        return new DeploymentJob(id, type, projectId, gitUrl, branch, envVars, memoryMB, config, priority,
+                submittedAt, result, resumeStage);
+    }
+    
+    /**
+     * Whether the job has left the queue and finished running
+     */
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+    
+    public void markStarted() {
+        this.startedAt = Instant.now();
+    }
+    
+    public void markFinished() {
+        this.finishedAt = Instant.now();
+    }
+    
+    /**
+     * Ask the job to stop. A queued job never starts; inside the pipeline the worker
+     * running its stage is interrupted, which aborts a clone or build in progress.
+     * @return false once the job has started rolling out containers or has finished
+     */
+    public synchronized boolean cancel(String reason) {
+        if (isFinished() || rollingOut) {
+            return false;
+        }
+        if (!cancelled) {
+            cancelled = true;
+            cancelReason = reason;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Enter the stages that start containers and switch traffic; the job can no longer be cancelled
+     * @return false if the job was cancelled first
+     */
+    public synchronized boolean beginRollout() {
+        if (cancelled) {
+            return false;
+        }
+        rollingOut = true;
+        return true;
+    }
+    
+    public synchronized boolean isRollingOut() {
+        return rollingOut;
+    }
+    
+    /**
+     * Register the thread running the job's current stage, so {@link #cancel} can interrupt it
+     */
+    public synchronized void attachWorker(Thread thread) {
+        this.worker = thread;
+    }
+    
+    /**
+     * Unregister the calling worker thread. An interrupt from a cancel that raced with the end of
+     * the stage is cleared, so it does not hit the next job the worker picks up.
+     */
+    public void detachWorker() {
+        synchronized (this) {
+            worker = null;
+        }
+        if (cancelled) {
+            Thread.interrupted();
+        }
+    }
+    
+    // Getters
+    public String getId() { return id; }
+    
+    @JsonIgnore
+    public long getSequence() { return sequence; }
+    
+    public Type getType() { return type; }
+    
+    public String getProjectId() { return projectId; }
+    
+    public String getGitUrl() { return gitUrl; }
+    
+    public String getBranch() { return branch; }
+    
+    @JsonIgnore
+    public Map<String, String> getEnvVars() { return envVars; }
+    
+    public int getMemoryMB() { return memoryMB; }
+    
+    @JsonIgnore
+    public AutoDeployService.DeploymentConfig getConfig() { return config; }
+    
+    public int getPriority() { return priority; }
+    
+    public DeploymentStatus getStatus() { return result.getStatus(); }
+    
+    public boolean isCancelled() { return cancelled; }
+    
+    public String getCancelReason() { return cancelReason; }
+    
+    public Instant getSubmittedAt() { return submittedAt; }
+    
+    /**
+     * First stage to run; later than CLONE for jobs resumed after a restart
+     */
+    @JsonIgnore
+    public DeploymentStage getResumeStage() { return resumeStage; }
+    
+    public Instant getStartedAt() { return startedAt; }
+    
+    public Instant getFinishedAt() { return finishedAt; }
+    
+    public AutoDeployService.DeploymentResult getResult() { return result; }
+}
@@ -0,0 +1,261 @@
+package com.vision.paas.deploy.job;
+
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.pipeline.DeploymentPipeline;
+import com.vision.paas.deploy.service.DeploymentHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deployment Job Service
+ * Accepts deployment requests into a bounded priority queue and
+ * feeds them into the {@link DeploymentPipeline}, so HTTP threads return immediately.
+ * A project has at most one job in the queue or pipeline at a time. A newer request
+ * replaces a job still waiting in the queue, cancels a clone or build in progress and
+ * waits behind it, so a burst of pushes results in a single build of the latest one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeploymentJobService {
+    
+    private final DeploymentPipeline pipeline;
+    private final DeploymentHistoryService historyService;
+    
+    @Value("${deploy.jobs.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${deploy.jobs.retry-after-seconds:30}")
+    private int retryAfterSeconds;
+    
+    @Value("${deploy.jobs.retained-finished:500}")
+    private int retainedFinished;
+    
+    @Value("${deploy.jobs.cancel-superseded:true}")
+    private boolean cancelSuperseded;
+    
+    // Higher priority first, FIFO within the same priority
+    private final PriorityBlockingQueue<DeploymentJob> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparingInt(DeploymentJob::getPriority).reversed()
+                    .thenComparingLong(DeploymentJob::getSequence));
+    
+    private final Map<String, DeploymentJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> finishedJobIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningJobs = new AtomicInteger();
+    
+    // Guarded by itself
+    private final Map<String, ProjectJobs> projects = new HashMap<>();
+    
+    private Semaphore queueSlots;
+    private Thread dispatcher;
+    
+    @PostConstruct
+    public void init() {
+        queueSlots = new Semaphore(queueCapacity);
+        dispatcher = new Thread(this::dispatchLoop, "deploy-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Deployment job queue started: capacity={}", queueCapacity);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+    }
+    
+    /**
+     * Queue a deployment job, superseding the project's job that has not started yet
+     * @param job Job to queue
+     * @return The queued job
+     * @throws DeploymentQueueFullException when no queue slot is free
+     */
+    public DeploymentJob submit(DeploymentJob job) {
+        if (!queueSlots.tryAcquire()) {
+            log.warn("Deployment queue full, rejecting job for project: {}", job.getProjectId());
+            throw new DeploymentQueueFullException(retryAfterSeconds);
+        }
+        
+        jobs.put(job.getId(), job);
+        historyService.queued(job);
+        DeploymentJob superseded;
+        synchronized (projects) {
+            ProjectJobs project = projects.computeIfAbsent(job.getProjectId(), id -> new ProjectJobs());
+            if (project.current == null) {
+                superseded = null;
+                project.current = job;
+                queue.offer(job);
+            } else if (!project.current.isRollingOut() && queue.remove(project.current)) {
+                // Still waiting for a worker: take its place in the queue
+                superseded = project.current;
+                project.current = job;
+                queue.offer(job);
+            } else {
+                // In the pipeline: wait behind it, replacing whatever was waiting there
+                superseded = project.next;
+                project.next = job;
+                if (cancelSuperseded && project.current.cancel("Superseded by job " + job.getId())) {
+                    log.info("Cancelling job {} of project {}, superseded by job {}",
+                            project.current.getId(), job.getProjectId(), job.getId());
+                }
+            }
+        }
+        if (superseded != null) {
+            queueSlots.release();
+            finishCancelled(superseded, "Superseded by job " + job.getId());
+        }
+        
+        log.info("Queued {} deployment job {} for project: {} (priority {})",
+                job.getType(), job.getId(), job.getProjectId(), job.getPriority());
+        return job;
+    }
+    
+    /**
+     * Cancel a job. A waiting job is dropped right away; a running one stops at its
+     * next stage boundary, or immediately when it is cloning or building.
+     * @throws BusinessException 409 once the job has started rolling out or has finished
+     */
+    public DeploymentJob cancel(String jobId) {
+        DeploymentJob job = getJob(jobId);
+        boolean dropped = false;
+        synchronized (projects) {
+            ProjectJobs project = projects.get(job.getProjectId());
+            if (project != null && project.next == job) {
+                project.next = null;
+                dropped = true;
+            } else if (project != null && project.current == job && !job.isRollingOut() && queue.remove(job)) {
+                promoteNext(job.getProjectId(), project);
+                dropped = true;
+            }
+        }
+        if (dropped) {
+            queueSlots.release();
+            finishCancelled(job, "Cancelled by request");
+        } else if (!job.cancel("Cancelled by request")) {
+            throw new BusinessException(409, "Deployment job can no longer be cancelled: " + jobId);
+        }
+        log.info("Cancelled deployment job {} of project {}", jobId, job.getProjectId());
+        return job;
+    }
+    
+    /**
+     * Look up a job by ID
+     */
+    public DeploymentJob getJob(String jobId) {
+        DeploymentJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new BusinessException(404, "Deployment job not found: " + jobId);
+        }
+        return job;
+    }
+    
+    /**
+     * Number of jobs waiting for a worker
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    /**
+     * Number of jobs currently inside the pipeline
+     */
+    public int getRunningCount() {
+        return runningJobs.get();
+    }
+    
+    /**
+     * Move jobs from the priority queue into the pipeline in priority order.
+     * Blocks while the pipeline's first stage is full, so waiting jobs stay reorderable here.
+     */
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                DeploymentJob job = queue.take();
+                queueSlots.release();
+                runningJobs.incrementAndGet();
+                pipeline.submit(job, this::onFinished);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void onFinished(DeploymentJob job) {
+        job.markFinished();
+        job.getResult().getDeploymentLog().close();
+        runningJobs.decrementAndGet();
+        historyService.finished(job);
+        retire(job);
+        
+        synchronized (projects) {
+            ProjectJobs project = projects.get(job.getProjectId());
+            if (project != null && project.current == job) {
+                promoteNext(job.getProjectId(), project);
+            }
+        }
+    }
+    
+    /**
+     * Queue the job waiting behind a project's finished or dropped job; caller holds the projects lock
+     */
+    private void promoteNext(String projectId, ProjectJobs project) {
+        project.current = project.next;
+        project.next = null;
+        if (project.current == null) {
+            projects.remove(projectId);
+        } else {
+            queue.offer(project.current);
+        }
+    }
+    
+    /**
+     * Finish a job that never reached the pipeline
+     */
+    private void finishCancelled(DeploymentJob job, String reason) {
+        job.cancel(reason);
+        job.getResult().setStatus(DeploymentStatus.CANCELLED);
+        job.getResult().addLog("✗ Deployment cancelled: " + reason);
+        job.markFinished();
+        job.getResult().getDeploymentLog().close();
+        historyService.finished(job);
+        retire(job);
+        log.info("Deployment job {} of project {} cancelled before starting: {}",
+                job.getId(), job.getProjectId(), reason);
+    }
+    
+    /**
+     * Keep finished jobs around for status polling, dropping the oldest beyond the retention limit
+     */
+    private void retire(DeploymentJob job) {
+        finishedJobIds.add(job.getId());
+        while (finishedJobIds.size() > retainedFinished) {
+            String oldest = finishedJobIds.poll();
+            if (oldest != null) {
+                jobs.remove(oldest);
+            }
+        }
+    }
+    
+    /**
+     * A project's job in the queue or pipeline and the newest request waiting behind it
+     */
+    private static class ProjectJobs {
+        private DeploymentJob current;
+        private DeploymentJob next;
+    }
+}
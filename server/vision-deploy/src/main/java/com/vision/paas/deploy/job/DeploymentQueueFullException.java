@@ -0,0 +1,20 @@
+package com.vision.paas.deploy.job;
+
+import com.vision.paas.common.exception.BusinessException;
+
+/**
+ * Thrown when the deployment queue has no free slot for a new job
+ */
+public class DeploymentQueueFullException extends BusinessException {
+    
+    private final int retryAfterSeconds;
+    
+    public DeploymentQueueFullException(int retryAfterSeconds) {
+        super(429, "Deployment queue is full, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,53 @@
+package com.vision.paas.deploy.job;
+
+import com.vision.paas.deploy.entity.DeploymentRecord;
+import com.vision.paas.deploy.service.DeploymentHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Deployment Recovery
+ * Queues the deployments that were still in the pipeline when the service stopped,
+ * continuing each one after the last stage it completed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeploymentRecovery {
+    
+    private final DeploymentHistoryService historyService;
+    private final DeploymentJobService jobService;
+    
+    @Value("${deploy.history.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (!resumeOnStartup) {
+            return;
+        }
+        List<DeploymentRecord> interrupted;
+        try {
+            interrupted = historyService.findInterrupted();
+        } catch (Exception e) {
+            log.error("Failed to load interrupted deployments", e);
+            return;
+        }
+        for (DeploymentRecord record : interrupted) {
+            try {
+                DeploymentJob job = jobService.submit(historyService.restore(record));
+                log.info("Resumed deployment {} of project {} at stage {}",
+                        job.getId(), job.getProjectId(), job.getResumeStage());
+            } catch (Exception e) {
+                log.warn("Cannot resume deployment {} of project {}", record.getId(), record.getProjectId(), e);
+                historyService.abandon(record, "Interrupted by a restart and could not be resumed: " + e.getMessage());
+            }
+        }
+    }
+}
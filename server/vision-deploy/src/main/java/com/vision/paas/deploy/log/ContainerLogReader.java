@@ -0,0 +1,78 @@
+package com.vision.paas.deploy.log;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Container Log Reader
+ * Turns timestamped Docker log frames into lines. Frames may split or join lines,
+ * so partial output is held per stream until its newline arrives.
+ */
+public abstract class ContainerLogReader extends ResultCallback.Adapter<Frame> {
+    
+    private final StringBuilder stdout = new StringBuilder();
+    private final StringBuilder stderr = new StringBuilder();
+    private volatile Instant lastTimestamp;
+    private final Instant after;
+    
+    /**
+     * @param after Skip lines stamped at or before this instant, null to keep all
+     */
+    protected ContainerLogReader(Instant after) {
+        this.after = after;
+        this.lastTimestamp = after;
+    }
+    
+    /**
+     * Called for every complete line, in order
+     */
+    protected abstract void onLine(Instant timestamp, LogLine.Type type, String text);
+    
+    /**
+     * Timestamp of the newest line read, or the skip boundary if none yet
+     */
+    public Instant getLastTimestamp() {
+        return lastTimestamp;
+    }
+    
+    @Override
+    public void onNext(Frame frame) {
+        boolean isErr = frame.getStreamType() == StreamType.STDERR;
+        StringBuilder pending = isErr ? stderr : stdout;
+        pending.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+        
+        int newline;
+        while ((newline = pending.indexOf("\n")) >= 0) {
+            String raw = pending.substring(0, newline);
+            pending.delete(0, newline + 1);
+            emit(raw, isErr ? LogLine.Type.STDERR : LogLine.Type.STDOUT);
+        }
+    }
+    
+    private void emit(String raw, LogLine.Type type) {
+        // With timestamps enabled every line starts with an RFC 3339 timestamp and a space
+        int space = raw.indexOf(' ');
+        Instant timestamp;
+        String text;
+        try {
+            timestamp = Instant.parse(space > 0 ? raw.substring(0, space) : raw);
+            text = space > 0 ? raw.substring(space + 1) : "";
+        } catch (DateTimeParseException e) {
+            timestamp = Instant.now();
+            text = raw;
+        }
+        if (after != null && !timestamp.isAfter(after)) {
+            return;
+        }
+        if (text.endsWith("\r")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        lastTimestamp = timestamp;
+        onLine(timestamp, type, text);
+    }
+}
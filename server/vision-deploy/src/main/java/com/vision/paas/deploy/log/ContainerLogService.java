@@ -0,0 +1,265 @@
+package com.vision.paas.deploy.log;
+
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.docker.ContainerState;
+import com.vision.paas.deploy.docker.DockerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container Log Service
+ * Keeps the recent output of each container that is being read in a bounded
+ * {@link DeploymentLog}, fed by one follow stream from the daemon. Polls and live
+ * followers are served from that buffer; only ranges older than it go back to Docker.
+ * Buffers nobody has read for a while are dropped along with their streams.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContainerLogService {
+    
+    private final DockerService dockerService;
+    private final LogStreamService logStreamService;
+    
+    @Value("${deploy.container-logs.buffer-lines:5000}")
+    private int bufferLines;
+    
+    @Value("${deploy.container-logs.idle-minutes:10}")
+    private long idleMinutes;
+    
+    private final Map<String, ContainerLog> logs = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+    
+    @PostConstruct
+    public void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deploy-container-logs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.MINUTES);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        logs.values().forEach(ContainerLog::close);
+    }
+    
+    /**
+     * Log lines of a container, oldest first
+     * @param container Container ID or name
+     * @param since Only lines at or after this time, null for no limit
+     * @param until Only lines before this time, null for no limit
+     * @param tail Keep only the last lines, 0 or less for all
+     */
+    public List<LogLine> getLines(String container, Instant since, Instant until, int tail) {
+        ContainerLog containerLog = open(container);
+        long from = since != null ? since.toEpochMilli() : Long.MIN_VALUE;
+        long to = until != null ? until.toEpochMilli() : Long.MAX_VALUE;
+        
+        List<LogLine> lines;
+        if (containerLog.covers(from, tail)) {
+            lines = containerLog.lines.between(from, to);
+        } else {
+            lines = readFromDaemon(containerLog.containerId, since, until, tail);
+        }
+        return tail > 0 && lines.size() > tail ? lines.subList(lines.size() - tail, lines.size()) : lines;
+    }
+    
+    /**
+     * Follow a container's output as Server-Sent Events, replaying buffered lines first
+     * @param since Replay from this time, null for the whole buffer
+     * @param afterSeq Resume after this sequence (Last-Event-ID), takes precedence over since
+     */
+    public SseEmitter follow(String container, Instant since, Long afterSeq) {
+        ContainerLog containerLog = open(container);
+        long resumeAfter = afterSeq != null ? afterSeq :
+                since != null ? containerLog.lines.lastSeqBefore(since.toEpochMilli()) : 0;
+        return logStreamService.streamSse(containerLog.lines, resumeAfter);
+    }
+    
+    private ContainerLog open(String container) {
+        ContainerState state = dockerService.getContainerState(container);
+        if (state == null) {
+            throw new BusinessException(404, "Container not found: " + container);
+        }
+        ContainerLog containerLog = logs.computeIfAbsent(state.containerId(),
+                id -> new ContainerLog(id, new DeploymentLog(bufferLines)));
+        containerLog.ensureLoaded();
+        return containerLog;
+    }
+    
+    private List<LogLine> readFromDaemon(String containerId, Instant since, Instant until, int tail) {
+        List<LogLine> lines = new ArrayList<>();
+        try {
+            dockerService.streamLogs(containerId, false,
+                    since != null ? (int) since.getEpochSecond() : 0,
+                    until != null ? (int) until.getEpochSecond() + 1 : 0,
+                    tail > 0 ? tail : -1,
+                    new ContainerLogReader(null) {
+                        @Override
+                        protected void onLine(Instant timestamp, LogLine.Type type, String text) {
+                            long millis = timestamp.toEpochMilli();
+                            if ((since == null || !timestamp.isBefore(since))
+                                    && (until == null || timestamp.isBefore(until))) {
+                                lines.add(new LogLine(lines.size() + 1, millis, type, text));
+                            }
+                        }
+                    })
+                    .awaitCompletion(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrupted while reading container logs");
+        }
+        return lines;
+    }
+    
+    /**
+     * Drop buffers of stopped containers and buffers nobody has read recently
+     */
+    private void sweep() {
+        long idleBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        logs.entrySet().removeIf(entry -> {
+            ContainerLog containerLog = entry.getValue();
+            boolean idle = containerLog.lastAccess < idleBefore && !containerLog.lines.hasSubscribers();
+            if (!idle && containerLog.streamEnded()) {
+                ContainerState state = dockerService.getContainerState(containerLog.containerId);
+                if (state != null && state.isRunning()) {
+                    // Restarted since the stream ended: continue after the last line we have
+                    containerLog.follow();
+                    return false;
+                }
+            }
+            if (idle || containerLog.streamEnded()) {
+                containerLog.close();
+                return true;
+            }
+            return false;
+        });
+    }
+    
+    /**
+     * Buffer and follow stream of one container
+     */
+    private class ContainerLog {
+        private final String containerId;
+        private final DeploymentLog lines;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile ContainerLogReader stream;
+        private volatile boolean streamEnded;
+        private Instant lastTimestamp;
+        private volatile boolean loaded;
+        
+        ContainerLog(String containerId, DeploymentLog lines) {
+            this.containerId = containerId;
+            this.lines = lines;
+        }
+        
+        /**
+         * Load the backlog before the buffer is first read, then follow from its end.
+         * The daemon is read outside the monitor so the sweeper and other readers are not
+         * held up; concurrent first reads each fetch it and only the first is kept.
+         */
+        void ensureLoaded() {
+            lastAccess = System.currentTimeMillis();
+            if (loaded) {
+                return;
+            }
+            // One line more than fits, so a longer history shows up as an evicted line
+            List<LogLine> backlogLines = new ArrayList<>();
+            ContainerLogReader backlog = new ContainerLogReader(null) {
+                @Override
+                protected void onLine(Instant timestamp, LogLine.Type type, String text) {
+                    backlogLines.add(new LogLine(0, timestamp.toEpochMilli(), type, text));
+                }
+            };
+            try {
+                dockerService.streamLogs(containerId, false, 0, 0, bufferLines + 1, backlog)
+                        .awaitCompletion(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("Interrupted while reading container logs");
+            }
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+                backlogLines.forEach(line -> lines.append(line.timestamp(), line.type(), line.text()));
+                lastTimestamp = backlog.getLastTimestamp();
+                loaded = true;
+                follow();
+            }
+        }
+        
+        synchronized void follow() {
+            if (stream != null) {
+                lastTimestamp = stream.getLastTimestamp();
+            }
+            streamEnded = false;
+            stream = dockerService.streamLogs(containerId, true,
+                    lastTimestamp != null ? (int) lastTimestamp.getEpochSecond() : 0, 0, -1,
+                    new ContainerLogReader(lastTimestamp) {
+                        @Override
+                        protected void onLine(Instant timestamp, LogLine.Type type, String text) {
+                            lines.append(timestamp.toEpochMilli(), type, text);
+                        }
+                        
+                        @Override
+                        public void onError(Throwable throwable) {
+                            streamEnded = true;
+                            super.onError(throwable);
+                        }
+                        
+                        @Override
+                        public void onComplete() {
+                            streamEnded = true;
+                            super.onComplete();
+                        }
+                    });
+        }
+        
+        boolean streamEnded() {
+            return streamEnded;
+        }
+        
+        /**
+         * Whether the buffer alone holds every line from the given time on
+         */
+        boolean covers(long fromMillis, int tail) {
+            LogLine oldest = lines.oldest();
+            if (oldest == null || oldest.seq() == 1) {
+                return true;
+            }
+            if (fromMillis == Long.MIN_VALUE) {
+                return tail > 0 && tail <= bufferLines;
+            }
+            return oldest.timestamp() <= fromMillis;
+        }
+        
+        synchronized void close() {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (Exception e) {
+                log.debug("Failed to close log stream of {}", containerId, e);
+            }
+            lines.close();
+        }
+    }
+}
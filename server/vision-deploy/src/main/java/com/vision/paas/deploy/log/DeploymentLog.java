@@ -0,0 +1,125 @@
+package com.vision.paas.deploy.log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Deployment Log
+ * Bounded per-job log with live subscribers. A new subscriber first receives
+ * the retained lines after its resume point, then every new line, with no gaps or duplicates.
+ */
+public class DeploymentLog {
+    
+    public static final int DEFAULT_CAPACITY = 2000;
+    
+    private final LogRingBuffer buffer;
+    private final List<LogListener> listeners = new CopyOnWriteArrayList<>();
+    private boolean closed;
+    
+    public DeploymentLog() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public DeploymentLog(int capacity) {
+        this.buffer = new LogRingBuffer(capacity);
+    }
+    
+    public synchronized void append(LogLine.Type type, String text) {
+        append(System.currentTimeMillis(), type, text);
+    }
+    
+    /**
+     * Append a line with the time it was produced rather than received
+     */
+    public synchronized void append(long timestamp, LogLine.Type type, String text) {
+        if (closed) {
+            return;
+        }
+        LogLine line = buffer.append(timestamp, type, text);
+        for (LogListener listener : listeners) {
+            listener.onLine(line);
+        }
+    }
+    
+    /**
+     * Replay retained lines after {@code afterSeq} and register for new ones
+     * @param afterSeq Last sequence number the subscriber has seen, 0 for everything
+     */
+    public synchronized void subscribe(long afterSeq, LogListener listener) {
+        for (LogLine line : buffer.since(afterSeq)) {
+            listener.onLine(line);
+        }
+        if (closed) {
+            listener.onClose();
+        } else {
+            listeners.add(listener);
+        }
+    }
+    
+    public void unsubscribe(LogListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Mark the log complete and release all subscribers
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (LogListener listener : listeners) {
+            listener.onClose();
+        }
+        listeners.clear();
+    }
+    
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Most lines retained, and so the longest replay a subscriber can receive
+     */
+    public int getCapacity() {
+        return buffer.getCapacity();
+    }
+    
+    public boolean hasSubscribers() {
+        return !listeners.isEmpty();
+    }
+    
+    /**
+     * Retained lines recorded within [fromMillis, untilMillis)
+     */
+    public List<LogLine> between(long fromMillis, long untilMillis) {
+        return buffer.since(0).stream()
+                .filter(line -> line.timestamp() >= fromMillis && line.timestamp() < untilMillis)
+                .toList();
+    }
+    
+    /**
+     * Oldest retained line, null when empty
+     */
+    public LogLine oldest() {
+        return buffer.oldest();
+    }
+    
+    /**
+     * Resume point for subscribers that want lines from the given time on
+     */
+    public long lastSeqBefore(long timestamp) {
+        return buffer.lastSeqBefore(timestamp);
+    }
+    
+    /**
+     * Retained progress and build lines as newline-separated text
+     */
+    public String toText() {
+        return buffer.since(0).stream()
+                .filter(line -> line.type() != LogLine.Type.STATUS)
+                .map(line -> line.text() + "\n")
+                .collect(Collectors.joining());
+    }
+}
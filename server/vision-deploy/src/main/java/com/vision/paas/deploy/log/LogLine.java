@@ -0,0 +1,19 @@
+package com.vision.paas.deploy.log;
+
+/**
+ * A single buffered log line
+ * @param seq Monotonic sequence number within its buffer, starting at 1
+ * @param timestamp Epoch millis when the line was recorded
+ * @param type Where the line came from
+ * @param text Line content without trailing newline
+ */
+public record LogLine(long seq, long timestamp, Type type, String text) {
+    
+    public enum Type {
+        LOG,
+        BUILD,
+        STATUS,
+        STDOUT,
+        STDERR
+    }
+}
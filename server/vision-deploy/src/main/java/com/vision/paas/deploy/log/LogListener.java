@@ -0,0 +1,15 @@
+package com.vision.paas.deploy.log;
+
+/**
+ * Receives lines appended to a {@link DeploymentLog}.
+ * Called while the log is locked, so implementations must not block.
+ */
+public interface LogListener {
+    
+    void onLine(LogLine line);
+    
+    /**
+     * No more lines will follow
+     */
+    void onClose();
+}
@@ -0,0 +1,91 @@
+package com.vision.paas.deploy.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log Ring Buffer
+ * Keeps the most recent lines in a fixed-size array; older lines are overwritten.
+ * Sequence numbers keep increasing, so readers can ask for everything after the last line they saw.
+ */
+public class LogRingBuffer {
+    
+    private final LogLine[] lines;
+    private long nextSeq = 1;
+    private int size;
+    
+    public LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.lines = new LogLine[capacity];
+    }
+    
+    /**
+     * Append a line, evicting the oldest one when full
+     * @return The stored line with its sequence number
+     */
+    public synchronized LogLine append(LogLine.Type type, String text) {
+        return append(System.currentTimeMillis(), type, text);
+    }
+    
+    /**
+     * Append a line with an explicit timestamp
+     */
+    public synchronized LogLine append(long timestamp, LogLine.Type type, String text) {
+        LogLine line = new LogLine(nextSeq, timestamp, type, text);
+        lines[(int) ((nextSeq - 1) % lines.length)] = line;
+        nextSeq++;
+        if (size < lines.length) {
+            size++;
+        }
+        return line;
+    }
+    
+    /**
+     * Lines with a sequence number greater than the given one that are still retained
+     * @param afterSeq Last sequence number already seen, 0 for everything
+     */
+    public synchronized List<LogLine> since(long afterSeq) {
+        long first = Math.max(afterSeq + 1, nextSeq - size);
+        List<LogLine> result = new ArrayList<>((int) Math.max(0, nextSeq - first));
+        for (long seq = first; seq < nextSeq; seq++) {
+            result.add(lines[(int) ((seq - 1) % lines.length)]);
+        }
+        return result;
+    }
+    
+    /**
+     * Oldest retained line, null when empty
+     */
+    public synchronized LogLine oldest() {
+        return size == 0 ? null : lines[(int) ((nextSeq - size - 1) % lines.length)];
+    }
+    
+    /**
+     * Sequence number to resume after so that replay starts at the first retained line
+     * recorded at or after the given time
+     * @param timestamp Epoch millis
+     */
+    public synchronized long lastSeqBefore(long timestamp) {
+        long seq = nextSeq - size - 1;
+        for (long candidate = nextSeq - size; candidate < nextSeq; candidate++) {
+            if (lines[(int) ((candidate - 1) % lines.length)].timestamp() >= timestamp) {
+                break;
+            }
+            seq = candidate;
+        }
+        return seq;
+    }
+    
+    /**
+     * Sequence number of the newest line, 0 when empty
+     */
+    public synchronized long getLastSeq() {
+        return nextSeq - 1;
+    }
+    
+    public int getCapacity() {
+        return lines.length;
+    }
+}
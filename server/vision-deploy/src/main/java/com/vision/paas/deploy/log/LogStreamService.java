@@ -0,0 +1,108 @@
+package com.vision.paas.deploy.log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Log Stream Service
+ * Attaches SSE and WebSocket clients to a {@link DeploymentLog}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LogStreamService {
+    
+    private final ObjectMapper objectMapper;
+    
+    @Value("${deploy.logs.sender-threads:4}")
+    private int senderThreads;
+    
+    @Value("${deploy.logs.subscriber-buffer:2000}")
+    private int subscriberBuffer;
+    
+    @Value("${deploy.logs.sse-timeout-minutes:30}")
+    private long sseTimeoutMinutes;
+    
+    private ExecutorService sender;
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "deploy-log-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+    
+    /**
+     * Stream a log as Server-Sent Events.
+     * Each event carries the line sequence as its ID and the line type as its name;
+     * a final "end" event is sent when the log closes.
+     * @param afterSeq Last sequence the client has seen (e.g. from Last-Event-ID)
+     */
+    public SseEmitter streamSse(DeploymentLog deploymentLog, long afterSeq) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(sseTimeoutMinutes));
+        LogSubscription subscription = new LogSubscription(deploymentLog, sender, subscriberBuffer) {
+            @Override
+            protected void deliver(LogLine line) throws Exception {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(line.seq()))
+                        .name(line.type().name().toLowerCase())
+                        .data(line.text()));
+            }
+            
+            @Override
+            protected void deliverEnd() throws Exception {
+                emitter.send(SseEmitter.event().name("end").data(""));
+                emitter.complete();
+            }
+        };
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        subscription.start(afterSeq);
+        return emitter;
+    }
+    
+    /**
+     * Stream a log over a WebSocket session as JSON {@link LogLine} messages.
+     * The session is closed normally once the log completes.
+     * @return The subscription, to be cancelled when the session closes
+     */
+    public LogSubscription streamWebSocket(DeploymentLog deploymentLog, long afterSeq,
+                                           WebSocketSession session) {
+        LogSubscription subscription = new LogSubscription(deploymentLog, sender, subscriberBuffer) {
+            @Override
+            protected void deliver(LogLine line) throws Exception {
+                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(line)));
+            }
+            
+            @Override
+            protected void deliverEnd() throws Exception {
+                session.close(CloseStatus.NORMAL);
+            }
+        };
+        subscription.start(afterSeq);
+        return subscription;
+    }
+}
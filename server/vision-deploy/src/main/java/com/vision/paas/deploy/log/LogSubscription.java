@@ -0,0 +1,100 @@
+package com.vision.paas.deploy.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Log Subscription
+ * Decouples a slow client from the thread that appends log lines: lines are queued
+ * per subscriber and written out on a shared sender pool. The queue holds a full
+ * replay of the log plus {@code bufferSize} live lines; when it overflows the oldest
+ * pending line is dropped, and clients can tell from the sequence gap.
+ */
+@Slf4j
+public abstract class LogSubscription implements LogListener {
+    
+    private final DeploymentLog deploymentLog;
+    private final Executor sender;
+    private final ArrayBlockingQueue<LogLine> pending;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile boolean finished;
+    
+    protected LogSubscription(DeploymentLog deploymentLog, Executor sender, int bufferSize) {
+        this.deploymentLog = deploymentLog;
+        this.sender = sender;
+        this.pending = new ArrayBlockingQueue<>(deploymentLog.getCapacity() + bufferSize);
+    }
+    
+    /**
+     * Write one line to the client
+     */
+    protected abstract void deliver(LogLine line) throws Exception;
+    
+    /**
+     * Tell the client the log is complete and close the connection
+     */
+    protected abstract void deliverEnd() throws Exception;
+    
+    /**
+     * Replay from {@code afterSeq} and start following the log
+     */
+    public void start(long afterSeq) {
+        deploymentLog.subscribe(afterSeq, this);
+    }
+    
+    @Override
+    public void onLine(LogLine line) {
+        if (!pending.offer(line)) {
+            pending.poll();
+            pending.offer(line);
+        }
+        schedule();
+    }
+    
+    @Override
+    public void onClose() {
+        closed = true;
+        schedule();
+    }
+    
+    /**
+     * Stop following, e.g. because the client went away
+     */
+    public void cancel() {
+        finished = true;
+        pending.clear();
+        deploymentLog.unsubscribe(this);
+    }
+    
+    private void schedule() {
+        if (!finished && draining.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+    }
+    
+    private void drain() {
+        try {
+            LogLine line;
+            while (!finished && (line = pending.poll()) != null) {
+                deliver(line);
+            }
+            if (closed && !finished && pending.isEmpty()) {
+                finished = true;
+                deliverEnd();
+            }
+        } catch (Exception e) {
+            log.debug("Log subscriber went away: {}", e.getMessage());
+            cancel();
+        } finally {
+            draining.set(false);
+        }
+        // Lines that arrived while draining was still flagged
+        if (!finished && (!pending.isEmpty() || closed)) {
+            schedule();
+        }
+    }
+}
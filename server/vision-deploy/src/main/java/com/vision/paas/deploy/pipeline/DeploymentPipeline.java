@@ -0,0 +1,235 @@
+package com.vision.paas.deploy.pipeline;
+
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.service.AutoDeployService;
+import com.vision.paas.deploy.service.DeploymentHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Deployment Pipeline
+ * Runs each {@link DeploymentStage} on its own worker pool, connected by bounded queues.
+ * A job moves to the next stage as soon as it finishes the current one, so clones,
+ * builds and container starts of different projects overlap instead of running back to back.
+ * A full downstream queue blocks the upstream worker, which pushes backpressure to the job queue.
+ * Health workers only start readiness probes, so they are not held while an application boots.
+ * Cancelled jobs are dropped at the next stage boundary, or interrupted inside clone and build.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeploymentPipeline {
+    
+    private final AutoDeployService autoDeployService;
+    private final DeploymentHistoryService historyService;
+    private final Environment environment;
+    
+    private final Map<DeploymentStage, Stage> stages = new EnumMap<>(DeploymentStage.class);
+    private final List<ExecutorService> executors = new ArrayList<>();
+    
+    @PostConstruct
+    public void init() {
+        for (DeploymentStage stage : DeploymentStage.values()) {
+            String prefix = "deploy.pipeline." + stage.getConfigKey();
+            int workers = environment.getProperty(prefix + ".workers", Integer.class,
+                    stage.getDefaultWorkers());
+            int capacity = environment.getProperty(prefix + ".queue-capacity", Integer.class,
+                    stage.getDefaultQueueCapacity());
+            stages.put(stage, new Stage(stage, workers, capacity));
+        }
+        stages.values().forEach(this::startWorkers);
+        log.info("Deployment pipeline started: {}", stages.values().stream()
+                .map(s -> s.stage + "=" + s.workers + "/" + s.capacity)
+                .toList());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+    
+    /**
+     * Hand a job to its first stage, blocking while that stage's queue is full
+     * @param job Job to run; resumed jobs enter at the stage they were interrupted in
+     * @param onComplete Called once the job has left the pipeline, successfully or not
+     */
+    public void submit(DeploymentJob job, Consumer<DeploymentJob> onComplete) throws InterruptedException {
+        Item item = new Item(job, onComplete);
+        DeploymentStage first = next(-1, job);
+        if (first == null) {
+            complete(item);
+            return;
+        }
+        stages.get(first).queue.put(item);
+    }
+    
+    /**
+     * Per-stage queue depth, throughput and latency
+     */
+    public Map<DeploymentStage, StageMetrics.Snapshot> getMetrics() {
+        Map<DeploymentStage, StageMetrics.Snapshot> snapshot = new LinkedHashMap<>();
+        stages.forEach((stage, s) -> snapshot.put(stage, s.metrics.snapshot(
+                s.queue.size(), s.capacity, s.workers)));
+        return snapshot;
+    }
+    
+    private void startWorkers(Stage stage) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(stage.workers, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "deploy-" + stage.stage.getConfigKey() + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < stage.workers; i++) {
+            executor.submit(() -> workLoop(stage));
+        }
+        executors.add(executor);
+    }
+    
+    private void workLoop(Stage stage) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Item item = stage.queue.take();
+                process(stage, item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void process(Stage stage, Item item) {
+        DeploymentJob job = item.job;
+        if (job.isCancelled()
+                || stage.stage.ordinal() >= DeploymentStage.START.ordinal() && !job.beginRollout()) {
+            autoDeployService.handleFailure(job, new CancellationException(job.getCancelReason()));
+            complete(item);
+            return;
+        }
+        long started = System.nanoTime();
+        stage.metrics.recordStart(started - item.enqueuedAt);
+        if (job.getStartedAt() == null) {
+            job.markStarted();
+        }
+        
+        // Synchronous stages complete inline; the health stage completes on the readiness prober
+        CompletableFuture<Void> outcome;
+        job.attachWorker(Thread.currentThread());
+        try {
+            outcome = autoDeployService.runStageAsync(stage.stage, job);
+        } finally {
+            job.detachWorker();
+        }
+        outcome.whenComplete((ignored, error) -> {
+            long elapsed = System.nanoTime() - started;
+            if (error != null) {
+                stage.metrics.recordFinish(elapsed, false);
+                autoDeployService.handleFailure(job, unwrap(error));
+                complete(item);
+                return;
+            }
+            // A failed readiness probe completes normally but fails the job
+            DeploymentStatus status = job.getResult().getStatus();
+            if (status == DeploymentStatus.FAILED || status == DeploymentStatus.CANCELLED) {
+                stage.metrics.recordFinish(elapsed, false);
+                complete(item);
+                return;
+            }
+            stage.metrics.recordFinish(elapsed, true);
+            historyService.stageCompleted(job, stage.stage);
+            advance(stage, item);
+        });
+    }
+    
+    private void advance(Stage stage, Item item) {
+        DeploymentStage next = next(stage.stage.ordinal(), item.job);
+        if (next == null) {
+            complete(item);
+            return;
+        }
+        item.enqueuedAt = System.nanoTime();
+        try {
+            stages.get(next).queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            autoDeployService.handleFailure(item.job, e);
+            complete(item);
+        }
+    }
+    
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ?
+                error.getCause() : error;
+        return cause instanceof Exception e ? e : new IllegalStateException(cause);
+    }
+    
+    private void complete(Item item) {
+        try {
+            item.onComplete.accept(item.job);
+        } catch (Exception e) {
+            log.error("Completion callback failed for job {}", item.job.getId(), e);
+        }
+    }
+    
+    private DeploymentStage next(int afterOrdinal, DeploymentJob job) {
+        DeploymentStage[] all = DeploymentStage.values();
+        for (int index = afterOrdinal + 1; index < all.length; index++) {
+            if (autoDeployService.isRequired(all[index], job)) {
+                return all[index];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * One stage: its inbound queue, worker count and metrics
+     */
+    private static class Stage {
+        private final DeploymentStage stage;
+        private final int workers;
+        private final int capacity;
+        private final BlockingQueue<Item> queue;
+        private final StageMetrics metrics = new StageMetrics();
+        
+        Stage(DeploymentStage stage, int workers, int capacity) {
+            this.stage = stage;
+            this.workers = workers;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+    
+    /**
+     * A job travelling through the pipeline
+     */
+    private static class Item {
+        private final DeploymentJob job;
+        private final Consumer<DeploymentJob> onComplete;
+        private long enqueuedAt = System.nanoTime();
+        
+        Item(DeploymentJob job, Consumer<DeploymentJob> onComplete) {
+            this.job = job;
+            this.onComplete = onComplete;
+        }
+    }
+}
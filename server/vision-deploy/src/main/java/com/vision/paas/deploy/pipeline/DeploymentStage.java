@@ -0,0 +1,42 @@
+package com.vision.paas.deploy.pipeline;
+
+/**
+ * Deployment Stage
+ * Steps of the deployment pipeline, in execution order
+ */
+public enum DeploymentStage {
+    CLONE("Clone", 4, 8),
+    DETECT("Detect & Generate", 2, 8),
+    BUILD("Build", 2, 8),
+    START("Start", 4, 8),
+    HEALTH("Health Check", 2, 16);
+    
+    private final String displayName;
+    private final int defaultWorkers;
+    private final int defaultQueueCapacity;
+    
+    DeploymentStage(String displayName, int defaultWorkers, int defaultQueueCapacity) {
+        this.displayName = displayName;
+        this.defaultWorkers = defaultWorkers;
+        this.defaultQueueCapacity = defaultQueueCapacity;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    public int getDefaultWorkers() {
+        return defaultWorkers;
+    }
+    
+    public int getDefaultQueueCapacity() {
+        return defaultQueueCapacity;
+    }
+    
+    /**
+     * Key used under deploy.pipeline.* in application.yml
+     */
+    public String getConfigKey() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,61 @@
+package com.vision.paas.deploy.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stage Metrics
+ * Lock-free counters for one pipeline stage
+ */
+public class StageMetrics {
+    
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+    
+    void recordStart(long waitNanos) {
+        active.incrementAndGet();
+        totalWaitNanos.add(waitNanos);
+    }
+    
+    void recordFinish(long runNanos, boolean success) {
+        active.decrementAndGet();
+        (success ? completed : failed).increment();
+        totalRunNanos.add(runNanos);
+        maxRunNanos.accumulateAndGet(runNanos, Math::max);
+    }
+    
+    /**
+     * Point-in-time view of the counters
+     */
+    public Snapshot snapshot(int queueDepth, int queueCapacity, int workers) {
+        long processed = completed.sum() + failed.sum();
+        return new Snapshot(
+                queueDepth,
+                queueCapacity,
+                workers,
+                active.get(),
+                completed.sum(),
+                failed.sum(),
+                processed > 0 ? totalWaitNanos.sum() / processed / 1_000_000 : 0,
+                processed > 0 ? totalRunNanos.sum() / processed / 1_000_000 : 0,
+                maxRunNanos.get() / 1_000_000
+        );
+    }
+    
+    public record Snapshot(
+            int queueDepth,
+            int queueCapacity,
+            int workers,
+            int active,
+            long completed,
+            long failed,
+            long avgQueueWaitMs,
+            long avgLatencyMs,
+            long maxLatencyMs) {
+    }
+}
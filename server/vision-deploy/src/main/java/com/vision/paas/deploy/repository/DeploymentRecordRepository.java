@@ -0,0 +1,70 @@
+package com.vision.paas.deploy.repository;
+
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.deploy.entity.DeploymentRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DeploymentRecordRepository extends JpaRepository<DeploymentRecord, String> {
+    
+    /**
+     * Newest first, continuing below the (createdAt, id) cursor of the previous page
+     */
+    @Query("SELECT r FROM DeploymentRecord r"
+            + " WHERE (:projectId IS NULL OR r.projectId = :projectId)"
+            + " AND (:status IS NULL OR r.status = :status)"
+            + " AND r.createdAt >= :from"
+            + " AND (r.createdAt < :beforeAt OR (r.createdAt = :beforeAt AND r.id < :beforeId))"
+            + " ORDER BY r.createdAt DESC, r.id DESC")
+    List<DeploymentRecord> findPage(@Param("projectId") String projectId,
+                                    @Param("status") DeploymentStatus status,
+                                    @Param("from") Instant from,
+                                    @Param("beforeAt") Instant beforeAt,
+                                    @Param("beforeId") String beforeId,
+                                    Pageable limit);
+    
+    List<DeploymentRecord> findByStatusInOrderByCreatedAtAsc(Collection<DeploymentStatus> statuses);
+    
+    /**
+     * Drop environment variables stored before they were encrypted
+     * @return Records scrubbed
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE DeploymentRecord r SET r.encryptedEnvVars = NULL"
+            + " WHERE r.encryptedEnvVars IS NOT NULL AND r.encryptedEnvVars NOT LIKE 'v1:%'")
+    int clearUnencryptedEnvVars();
+    
+    Optional<DeploymentRecord> findFirstByProjectIdAndStatusOrderByCreatedAtDesc(String projectId,
+                                                                               DeploymentStatus status);
+    
+    @Query(value = "SELECT count(build_time_ms) AS builds,"
+            + " percentile_cont(0.5) WITHIN GROUP (ORDER BY build_time_ms) AS p50,"
+            + " percentile_cont(0.9) WITHIN GROUP (ORDER BY build_time_ms) AS p90,"
+            + " percentile_cont(0.99) WITHIN GROUP (ORDER BY build_time_ms) AS p99,"
+            + " max(build_time_ms) AS max"
+            + " FROM deployment_records"
+            + " WHERE project_id = :projectId AND created_at >= :from AND created_at < :until"
+            + " AND build_time_ms IS NOT NULL AND image_reused = false",
+            nativeQuery = true)
+    BuildTimePercentiles findBuildTimePercentiles(@Param("projectId") String projectId,
+                                                  @Param("from") Instant from,
+                                                  @Param("until") Instant until);
+    
+    interface BuildTimePercentiles {
+        long getBuilds();
+        Double getP50();
+        Double getP90();
+        Double getP99();
+        Long getMax();
+    }
+}
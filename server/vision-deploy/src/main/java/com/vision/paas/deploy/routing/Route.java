@@ -0,0 +1,19 @@
+package com.vision.paas.deploy.routing;
+
+import java.time.Instant;
+
+/**
+ * Routing state of a project
+ * @param projectId Project ID
+ * @param active Container currently receiving traffic
+ * @param previous Container that served before the last switch, kept for rollback; may be null
+ * @param version Incremented on every switch
+ * @param switchedAt Time of the last switch
+ */
+public record Route(
+        String projectId,
+        RouteTarget active,
+        RouteTarget previous,
+        long version,
+        Instant switchedAt) {
+}
@@ -0,0 +1,27 @@
+package com.vision.paas.deploy.routing;
+
+import com.vision.paas.common.enums.ProjectType;
+
+/**
+ * A container that can receive a project's traffic
+ * @param containerId Docker container ID
+ * @param containerName Versioned container name
+ * @param address Address of the Docker host running the container
+ * @param hostPort Host port published for the application
+ * @param imageId Image the container runs
+ * @param commitSha Commit the image was built from
+ * @param projectType Detected project type, used for readiness timeouts
+ */
+public record RouteTarget(
+        String containerId,
+        String containerName,
+        String address,
+        Integer hostPort,
+        String imageId,
+        String commitSha,
+        ProjectType projectType) {
+    
+    public RouteTarget withHostPort(Integer hostPort) {
+        return new RouteTarget(containerId, containerName, address, hostPort, imageId, commitSha, projectType);
+    }
+}
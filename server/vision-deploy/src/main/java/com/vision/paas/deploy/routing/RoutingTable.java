@@ -0,0 +1,244 @@
+package com.vision.paas.deploy.routing;
+
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.deploy.docker.DockerService;
+import com.vision.paas.deploy.docker.ManagedContainer;
+import com.vision.paas.deploy.entity.DeploymentRecord;
+import com.vision.paas.deploy.repository.DeploymentRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Routing Table
+ * Maps each project to the container that receives its traffic. Switching replaces
+ * the project's {@link Route} in one atomic step, so readers always see either the old
+ * or the new target. The container that lost traffic is stopped after a drain period but
+ * kept, so a rollback is a flip back to it; every other container of the project is removed.
+ * <p>
+ * Routes are rebuilt at startup from the deployment containers on the Docker hosts and the
+ * latest successful deployment of each project, so a restart does not lose track of them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoutingTable {
+    
+    private final DockerService dockerService;
+    private final DeploymentRecordRepository recordRepository;
+    
+    @Value("${deploy.blue-green.drain-seconds:30}")
+    private long drainSeconds;
+    
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> pendingDrains = new ConcurrentHashMap<>();
+    private ScheduledExecutorService drainScheduler;
+    
+    @PostConstruct
+    public void init() {
+        drainScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deploy-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuild();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        drainScheduler.shutdownNow();
+    }
+    
+    /**
+     * Current route of a project
+     */
+    public Route getRoute(String projectId) {
+        Route route = routes.get(projectId);
+        if (route == null) {
+            throw new BusinessException(404, "No route for project: " + projectId);
+        }
+        return route;
+    }
+    
+    /**
+     * Send a project's traffic to a new container. The old target is drained and
+     * stopped after the grace period; every other container of the project is removed.
+     * @return The new route
+     */
+    public Route switchTo(String projectId, RouteTarget target) {
+        Route[] replaced = new Route[1];
+        Route route = routes.compute(projectId, (id, current) -> {
+            replaced[0] = current;
+            return new Route(id, target, current != null ? current.active() : null,
+                    current != null ? current.version() + 1 : 1, Instant.now());
+        });
+        
+        Route old = replaced[0];
+        if (old != null) {
+            scheduleDrain(old.active());
+        }
+        // Also catches containers the table never knew of, e.g. from before blue/green or a restart
+        RouteTarget kept = old != null ? old.active() : null;
+        drainScheduler.execute(() -> retireOthers(projectId, target, kept));
+        log.info("[{}] Traffic switched to {} (route v{})", projectId, target.containerName(), route.version());
+        return route;
+    }
+    
+    /**
+     * Point a project at its only container, without keeping a previous one
+     */
+    public Route replace(String projectId, RouteTarget target) {
+        return routes.compute(projectId, (id, current) -> new Route(id, target, null,
+                current != null ? current.version() + 1 : 1, Instant.now()));
+    }
+    
+    /**
+     * Flip traffic back to the previous container
+     * @param revived The previous target, with its current host port
+     * @return The new route, with the rolled back container as previous
+     */
+    public Route flipBack(String projectId, RouteTarget revived) {
+        Route[] replaced = new Route[1];
+        Route route = routes.computeIfPresent(projectId, (id, current) -> {
+            if (current.previous() == null || !sameContainer(current.previous(), revived)) {
+                return current;
+            }
+            replaced[0] = current;
+            return new Route(id, revived, current.active(), current.version() + 1, Instant.now());
+        });
+        if (replaced[0] == null) {
+            throw new BusinessException("Route of project " + projectId + " changed during rollback");
+        }
+        
+        cancelDrain(revived.containerId());
+        scheduleDrain(replaced[0].active());
+        log.info("[{}] Rolled back to {} (route v{})", projectId, revived.containerName(), route.version());
+        return route;
+    }
+    
+    private void scheduleDrain(RouteTarget target) {
+        ScheduledFuture<?> drain = drainScheduler.schedule(() -> {
+            pendingDrains.remove(target.containerId());
+            log.info("Draining finished, stopping {}", target.containerName());
+            try {
+                dockerService.stopContainer(target.containerId());
+            } catch (Exception e) {
+                log.warn("Failed to stop drained container {}", target.containerName(), e);
+            }
+        }, drainSeconds, TimeUnit.SECONDS);
+        ScheduledFuture<?> earlier = pendingDrains.put(target.containerId(), drain);
+        if (earlier != null) {
+            earlier.cancel(false);
+        }
+    }
+    
+    private void cancelDrain(String containerId) {
+        ScheduledFuture<?> drain = pendingDrains.remove(containerId);
+        if (drain != null) {
+            drain.cancel(false);
+        }
+    }
+    
+    /**
+     * Remove every container of a project except the new target and the one kept for rollback.
+     * Running ones may still be serving, so they are drained first.
+     */
+    private void retireOthers(String projectId, RouteTarget target, RouteTarget kept) {
+        for (ManagedContainer container : dockerService.listProjectContainers(projectId)) {
+            String id = container.containerId();
+            if (id.equals(target.containerId()) || (kept != null && id.equals(kept.containerId()))) {
+                continue;
+            }
+            cancelDrain(id);
+            if (container.running()) {
+                log.info("[{}] Draining {} before removing it", projectId, container.name());
+                drainScheduler.schedule(() -> remove(container), drainSeconds, TimeUnit.SECONDS);
+            } else {
+                remove(container);
+            }
+        }
+    }
+    
+    private void remove(ManagedContainer container) {
+        log.info("Removing retired container {}", container.name());
+        dockerService.removeContainer(container.containerId());
+    }
+    
+    /**
+     * Restore the route of every project with a running deployment container. The active
+     * container is the one of the latest successful deployment if it still runs, otherwise the
+     * newest running one; the newest other container becomes the rollback target. Containers of
+     * deployments still in progress are left to their jobs.
+     */
+    private void rebuild() {
+        try {
+            Set<String> inProgress = recordRepository.findByStatusInOrderByCreatedAtAsc(
+                            Arrays.stream(DeploymentStatus.values()).filter(DeploymentStatus::isInProgress).toList())
+                    .stream()
+                    .map(DeploymentRecord::getContainerId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<String, List<ManagedContainer>> byProject = dockerService.listProjectContainers(null).stream()
+                    .filter(container -> container.projectId() != null && !inProgress.contains(container.containerId()))
+                    .sorted(Comparator.comparingLong(ManagedContainer::createdAt).reversed())
+                    .collect(Collectors.groupingBy(ManagedContainer::projectId));
+            
+            byProject.forEach((projectId, containers) -> {
+                DeploymentRecord latest = recordRepository
+                        .findFirstByProjectIdAndStatusOrderByCreatedAtDesc(projectId, DeploymentStatus.RUNNING)
+                        .orElse(null);
+                ManagedContainer active = containers.stream()
+                        .filter(ManagedContainer::running)
+                        .filter(container -> latest != null && container.containerId().equals(latest.getContainerId()))
+                        .findFirst()
+                        .or(() -> containers.stream().filter(ManagedContainer::running).findFirst())
+                        .orElse(null);
+                if (active == null) {
+                    return;
+                }
+                ManagedContainer previous = containers.stream()
+                        .filter(container -> container != active)
+                        .findFirst()
+                        .orElse(null);
+                routes.put(projectId, new Route(projectId, toTarget(active, latest),
+                        previous != null ? toTarget(previous, latest) : null, 1, Instant.now()));
+            });
+            log.info("Routing table rebuilt: {} projects", routes.size());
+        } catch (Exception e) {
+            log.warn("Failed to rebuild routing table", e);
+        }
+    }
+    
+    /**
+     * @param record Latest successful deployment, supplies commit and type if it ran this container
+     */
+    private static RouteTarget toTarget(ManagedContainer container, DeploymentRecord record) {
+        boolean fromRecord = record != null && container.containerId().equals(record.getContainerId());
+        return new RouteTarget(container.containerId(), container.name(), container.address(),
+                container.hostPort(), container.imageId(),
+                fromRecord ? record.getCommitSha() : null, fromRecord ? record.getProjectType() : null);
+    }
+    
+    private static boolean sameContainer(RouteTarget a, RouteTarget b) {
+        return a.containerId().equals(b.containerId());
+    }
+}
@@ -1,29 +1,49 @@
 package com.vision.paas.deploy.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vision.paas.common.enums.DeploymentStatus;
 import com.vision.paas.common.enums.ProjectType;
 import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.detector.DetectionCache;
 import com.vision.paas.deploy.detector.ProjectDetector;
+import com.vision.paas.deploy.detector.RepoSnapshot;
+import com.vision.paas.deploy.detector.Workspace;
+import com.vision.paas.deploy.docker.BuildFingerprint;
+import com.vision.paas.deploy.docker.BuildResult;
 import com.vision.paas.deploy.docker.DockerService;
 import com.vision.paas.deploy.generator.DockerfileGenerator;
+import com.vision.paas.deploy.git.CloneResult;
 import com.vision.paas.deploy.git.GitService;
+import com.vision.paas.deploy.health.Readiness;
+import com.vision.paas.deploy.health.ReadinessProber;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.log.DeploymentLog;
+import com.vision.paas.deploy.log.LogLine;
+import com.vision.paas.deploy.pipeline.DeploymentStage;
+import com.vision.paas.deploy.routing.Route;
+import com.vision.paas.deploy.routing.RouteTarget;
+import com.vision.paas.deploy.routing.RoutingTable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Auto Deploy Service
- * Orchestrates the complete deployment process:
+ * Implements the deployment stages:
  * 1. Clone repository
- * 2. Detect project type
- * 3. Generate Dockerfile
- * 4. Build Docker image
- * 5. Start container
- * 6. Health check
+ * 2. Detect project type and generate Dockerfile
+ * 3. Build Docker image
+ * 4. Start container
+ * 5. Readiness probe
+ * Queued jobs run the stages through {@link com.vision.paas.deploy.pipeline.DeploymentPipeline};
+ * the deploy methods here run them back to back on the calling thread.
  */
 @Slf4j
 @Service
@@ -32,8 +52,17 @@ public class AutoDeployService {
     
     private final GitService gitService;
     private final ProjectDetector projectDetector;
+    private final DetectionCache detectionCache;
     private final DockerfileGenerator dockerfileGenerator;
     private final DockerService dockerService;
+    private final ReadinessProber readinessProber;
+    private final RoutingTable routingTable;
+    
+    /**
+     * Start new versions next to the running one and switch traffic once they are ready
+     */
+    @Value("${deploy.blue-green.enabled:true}")
+    private boolean blueGreen;
     
     /**
      * Deploy project automatically (zero-config)
@@ -45,207 +74,409 @@ public class AutoDeployService {
      */
     public DeploymentResult deploy(String projectId, String gitUrl, 
                                     Map<String, String> envVars, int memoryMB) {
-        log.info("Starting auto-deployment for project: {}", projectId);
-        
-        DeploymentResult result = new DeploymentResult();
-        result.setProjectId(projectId);
-        result.setStatus(DeploymentStatus.PENDING);
-        
+        return runInline(DeploymentJob.auto(projectId, gitUrl, null, envVars, memoryMB, 0));
+    }
+    
+    /**
+     * Deploy with custom configuration (advanced mode)
+     */
+    public DeploymentResult deployWithConfig(String projectId, String gitUrl,
+                                              DeploymentConfig config) {
+        return runInline(DeploymentJob.custom(projectId, gitUrl, null, config, 0));
+    }
+    
+    /**
+     * Redeploy existing project
+     */
+    public DeploymentResult redeploy(String projectId, String gitUrl, 
+                                      Map<String, String> envVars, int memoryMB) {
+        return runInline(DeploymentJob.redeploy(projectId, gitUrl, null, envVars, memoryMB, 0));
+    }
+    
+    private DeploymentResult runInline(DeploymentJob job) {
+        job.markStarted();
         try {
-            // Step 1: Clone repository
-            result.setStatus(DeploymentStatus.CLONING);
-            log.info("[{}] Cloning repository...", projectId);
-            String repoPath = gitService.cloneRepository(gitUrl, projectId);
-            result.setRepoPath(repoPath);
-            result.addLog("✓ Repository cloned successfully");
-            
-            // Step 2: Detect project type
-            result.setStatus(DeploymentStatus.DETECTING);
-            log.info("[{}] Detecting project type...", projectId);
-            ProjectType projectType = projectDetector.detect(repoPath);
-            result.setProjectType(projectType);
-            result.addLog("✓ Detected project type: " + projectType.getDisplayName());
-            
-            // Step 3: Detect port
-            int port = projectDetector.detectPort(repoPath, projectType);
-            result.setPort(port);
-            result.addLog("✓ Detected port: " + port);
-            
-            // Step 4: Generate Dockerfile
-            log.info("[{}] Generating Dockerfile...", projectId);
-            String dockerfile = dockerfileGenerator.generate(projectType, repoPath, port);
-            result.setDockerfile(dockerfile);
-            result.addLog("✓ Dockerfile generated");
-            
-            // Step 5: Build Docker image
-            result.setStatus(DeploymentStatus.BUILDING);
-            log.info("[{}] Building Docker image...", projectId);
-            String imageId = dockerService.buildImage(projectId, repoPath, dockerfile);
-            result.setImageId(imageId);
-            result.addLog("✓ Image built successfully: " + imageId.substring(0, 12));
-            
-            // Step 6: Start container
-            result.setStatus(DeploymentStatus.DEPLOYING);
-            log.info("[{}] Starting container...", projectId);
-            String containerId = dockerService.startContainer(
-                    projectId, imageId, port, envVars, memoryMB);
-            result.setContainerId(containerId);
-            result.addLog("✓ Container started: " + containerId.substring(0, 12));
-            
-            // Step 7: Get container port
-            Integer hostPort = dockerService.getContainerPort(containerId);
-            result.setHostPort(hostPort);
-            result.addLog("✓ Container accessible on port: " + hostPort);
-            
-            // Step 8: Health check
-            Thread.sleep(3000); // Wait for container to start
-            boolean healthy = dockerService.isContainerHealthy(containerId);
-            if (healthy) {
-                result.setStatus(DeploymentStatus.RUNNING);
-                result.addLog("✓ Deployment successful! Application is running");
-                log.info("[{}] Deployment completed successfully", projectId);
-            } else {
-                result.setStatus(DeploymentStatus.FAILED);
-                result.addLog("✗ Health check failed");
-                log.error("[{}] Container health check failed", projectId);
+            for (DeploymentStage stage : DeploymentStage.values()) {
+                if (isRequired(stage, job)) {
+                    runStage(stage, job);
+                }
             }
-            
         } catch (Exception e) {
+            handleFailure(job, e);
+        }
+        job.markFinished();
+        job.getResult().getDeploymentLog().close();
+        return job.getResult();
+    }
+    
+    /**
+     * Run a single stage of a deployment job
+     * @param stage Stage to run
+     * @param job Job whose result carries the state of earlier stages
+     */
+    public void runStage(DeploymentStage stage, DeploymentJob job) throws Exception {
+        switch (stage) {
+            case CLONE -> cloneRepository(job);
+            case DETECT -> detectAndGenerate(job);
+            case BUILD -> buildImage(job);
+            case START -> startContainer(job);
+            case HEALTH -> awaitHealth(job);
+        }
+    }
+    
+    /**
+     * Run a single stage without blocking on readiness probing
+     * @return Completes when the stage is done; the health stage completes on the prober's scheduler
+     */
+    public CompletableFuture<Void> runStageAsync(DeploymentStage stage, DeploymentJob job) {
+        try {
+            if (stage == DeploymentStage.HEALTH) {
+                return checkHealth(job);
+            }
+            runStage(stage, job);
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Whether a stage still has work to do for a job; the build is skipped
+     * once an existing image with the same fingerprint has been picked up,
+     * and a resumed job skips the stages it completed before the restart
+     */
+    public boolean isRequired(DeploymentStage stage, DeploymentJob job) {
+        if (stage.ordinal() < job.getResumeStage().ordinal()) {
+            return false;
+        }
+        return stage != DeploymentStage.BUILD || job.getResult().getImageId() == null;
+    }
+    
+    /**
+     * Mark a job as failed, or cancelled if it was stopped on request, and release whatever it created so far
+     */
+    public void handleFailure(DeploymentJob job, Exception e) {
+        DeploymentResult result = job.getResult();
+        String projectId = job.getProjectId();
+        if (job.isCancelled()) {
+            log.info("[{}] Deployment {} cancelled: {}", projectId, job.getId(), job.getCancelReason());
+            result.setStatus(DeploymentStatus.CANCELLED);
+            result.addLog("✗ Deployment cancelled: " + job.getCancelReason());
+        } else {
             log.error("[{}] Deployment failed", projectId, e);
+            result.setErrorMessage(e.getMessage());
             result.setStatus(DeploymentStatus.FAILED);
             result.addLog("✗ Deployment failed: " + e.getMessage());
-            
-            // Cleanup on failure
-            try {
-                if (result.getContainerId() != null) {
-                    dockerService.stopContainer(result.getContainerId());
-                    dockerService.removeContainer(result.getContainerId());
+        }
+        
+        // Cleanup on failure
+        try {
+            if (result.getContainerId() != null) {
+                dockerService.stopContainer(result.getContainerId());
+                dockerService.removeContainer(result.getContainerId());
+            }
+            gitService.cleanup(projectId);
+        } catch (Exception cleanupEx) {
+            log.error("Cleanup failed", cleanupEx);
+        }
+    }
+    
+    private void cloneRepository(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        String projectId = job.getProjectId();
+        
+        if (job.getType() == DeploymentJob.Type.REDEPLOY && !blueGreen) {
+            removeExistingDeployment(projectId);
+        }
+        
+        result.setStatus(DeploymentStatus.CLONING);
+        log.info("[{}] Cloning repository...", projectId);
+        CloneResult clone = gitService.cloneRepository(job.getGitUrl(), projectId, job.getBranch());
+        result.setRepoPath(clone.path());
+        result.setBranch(clone.branch());
+        result.setCommitSha(clone.commitSha());
+        result.setCloneBytes(clone.bytesReceived());
+        result.setCloneDurationMs(clone.durationMs());
+        result.addLog(String.format("✓ Repository cloned: %s@%s (%s, %d KB in %d ms)",
+                clone.branch(), clone.commitSha().substring(0, 7),
+                clone.fromMirror() ? "cached mirror" :
+                        clone.depth() > 0 ? "depth " + clone.depth() : "full history",
+                clone.bytesReceived() / 1024, clone.durationMs()));
+    }
+    
+    private void detectAndGenerate(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        DeploymentConfig config = job.getConfig();
+        String projectId = job.getProjectId();
+        String repoPath = result.getRepoPath();
+        
+        // The project may live in a subdirectory of the repository
+        String rootDirectory = ProjectDetector.normalizeDirectory(config != null ? config.getRootDirectory() : null);
+        if (rootDirectory == null) {
+            throw new BusinessException(400, "Root directory must stay inside the repository: "
+                    + config.getRootDirectory());
+        }
+        result.setContextDirectory(rootDirectory);
+        
+        // Use custom Dockerfile if provided
+        if (config != null && config.getCustomDockerfile() != null) {
+            result.setDockerfile(config.getCustomDockerfile());
+            result.setPort(config.getPort() != null ? config.getPort() : ProjectType.UNKNOWN.getDefaultPort());
+            result.addLog("✓ Using custom Dockerfile");
+            reuseImage(job);
+            return;
+        }
+        
+        // An unchanged commit detects and generates the same as last time
+        DetectionCache.Key cacheKey = result.getCommitSha() == null ? null : new DetectionCache.Key(
+                job.getGitUrl(), result.getCommitSha(), projectId, rootDirectory,
+                config != null ? config.getProjectType() : null, config != null ? config.getPort() : null);
+        DetectionCache.Detection cached = cacheKey == null ? null : detectionCache.get(cacheKey);
+        if (cached != null) {
+            result.setProjectType(cached.projectType());
+            result.setPort(cached.port());
+            result.setContextDirectory(cached.contextDirectory());
+            result.setDockerfile(cached.dockerfile());
+            result.addLog("✓ Commit " + shortId(result.getCommitSha()) + " seen before, reusing detection: "
+                    + cached.projectType().getDisplayName() + " on port " + cached.port());
+            reuseImage(job);
+            return;
+        }
+        
+        // One listing of the checkout serves detection and generation
+        RepoSnapshot repo = RepoSnapshot.scan(rootDirectory.isEmpty() ? repoPath : repoPath + "/" + rootDirectory);
+        if (!repo.isDirectory()) {
+            throw new BusinessException(400, "Root directory not found in repository: " + rootDirectory);
+        }
+        
+        // Detect project type
+        result.setStatus(DeploymentStatus.DETECTING);
+        log.info("[{}] Detecting project type...", projectId);
+        ProjectType projectType = config != null && config.getProjectType() != null ?
+                config.getProjectType() : projectDetector.detect(repo);
+        result.setProjectType(projectType);
+        result.addLog("✓ Detected project type: " + projectType.getDisplayName());
+        
+        // Detect port
+        int port = config != null && config.getPort() != null ?
+                config.getPort() : projectDetector.detectPort(repo, projectType);
+        result.setPort(port);
+        result.addLog("✓ Detected port: " + port);
+        
+        // Generate Dockerfile
+        log.info("[{}] Generating Dockerfile...", projectId);
+        String dockerfile = null;
+        if (!rootDirectory.isEmpty()) {
+            // A workspace member is built from the root so it can use its sibling packages
+            RepoSnapshot rootRepo = RepoSnapshot.scan(repoPath);
+            Workspace workspace = projectDetector.detectWorkspace(rootRepo);
+            if (workspace != null && workspace.contains(rootDirectory)) {
+                dockerfile = dockerfileGenerator.generateWorkspaceMember(projectType, workspace, rootRepo,
+                        rootDirectory, repo, port, projectId);
+                if (dockerfile != null) {
+                    result.setContextDirectory("");
+                    result.addLog("✓ Building " + rootDirectory + " as a member of the "
+                            + workspace.kind() + " workspace");
                 }
-                gitService.cleanup(projectId);
-            } catch (Exception cleanupEx) {
-                log.error("Cleanup failed", cleanupEx);
             }
         }
+        if (dockerfile == null) {
+            dockerfile = dockerfileGenerator.generate(projectType, repo, port, projectId);
+        }
+        result.setDockerfile(dockerfile);
+        result.addLog("✓ Dockerfile generated");
         
-        return result;
+        if (cacheKey != null) {
+            detectionCache.put(cacheKey, new DetectionCache.Detection(
+                    projectType, port, result.getContextDirectory(), dockerfile));
+        }
+        reuseImage(job);
     }
     
     /**
-     * Deploy with custom configuration (advanced mode)
+     * Pick up an image built earlier from the same commit and Dockerfile
      */
-    public DeploymentResult deployWithConfig(String projectId, String gitUrl,
-                                              DeploymentConfig config) {
-        log.info("Starting custom deployment for project: {}", projectId);
+    private void reuseImage(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        if (result.getCommitSha() == null) {
+            return;
+        }
+        BuildFingerprint fingerprint = BuildFingerprint.of(result.getCommitSha(), result.getContextDirectory(),
+                result.getDockerfile());
+        result.setBuildFingerprint(fingerprint.value());
+        
+        String imageId = dockerService.findImage(job.getProjectId(), fingerprint);
+        if (imageId != null) {
+            result.setImageId(imageId);
+            result.setImageReused(true);
+            result.addLog("✓ Source and Dockerfile unchanged, reusing image " + shortId(imageId));
+        }
+    }
+    
+    private void buildImage(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        String projectId = job.getProjectId();
+        
+        result.setStatus(DeploymentStatus.BUILDING);
+        log.info("[{}] Building Docker image...", projectId);
+        BuildFingerprint fingerprint = result.getCommitSha() == null ? null :
+                BuildFingerprint.of(result.getCommitSha(), result.getContextDirectory(), result.getDockerfile());
+        String contextPath = result.getContextDirectory() == null ? result.getRepoPath() :
+                Paths.get(result.getRepoPath()).resolve(result.getContextDirectory()).toString();
+        BuildResult build = dockerService.build(projectId, contextPath, result.getDockerfile(),
+                fingerprint, result::addBuildOutput);
+        String imageId = build.imageId();
+        result.setImageId(imageId);
+        result.setBuildContextBytes(build.contextBytes());
+        result.setBuildTimeMs(build.buildMs());
+        result.addLog(String.format("✓ Build context: %d files, %d KB uploaded to %s in %d ms",
+                build.contextFiles(), build.contextBytes() / 1024, build.host(), build.uploadMs()));
+        result.addLog("✓ Image built successfully: " + shortId(imageId));
+    }
+    
+    private void startContainer(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        String projectId = job.getProjectId();
         
-        DeploymentResult result = new DeploymentResult();
-        result.setProjectId(projectId);
-        result.setStatus(DeploymentStatus.PENDING);
+        result.setStatus(DeploymentStatus.DEPLOYING);
+        log.info("[{}] Starting container...", projectId);
+        String containerName = blueGreen ?
+                "vision-" + projectId + "-" + job.getId().substring(0, 8) : "vision-" + projectId;
+        String containerId = blueGreen ?
+                dockerService.startContainer(containerName, projectId, result.getImageId(), result.getPort(),
+                        job.getEnvVars(), job.getMemoryMB()) :
+                dockerService.startContainer(projectId, result.getImageId(), result.getPort(),
+                        job.getEnvVars(), job.getMemoryMB());
+        result.setContainerId(containerId);
+        result.setContainerName(containerName);
+        result.setContainerStartedNanos(System.nanoTime());
+        result.addLog("✓ Container started: " + containerId.substring(0, 12));
         
+        // Get container port
+        Integer hostPort = dockerService.getContainerPort(containerId);
+        result.setHostPort(hostPort);
+        result.addLog("✓ Container accessible at: " + dockerService.getContainerAddress(containerId) + ":" + hostPort);
+    }
+    
+    private void awaitHealth(DeploymentJob job) throws Exception {
         try {
-            // Clone repository
-            result.setStatus(DeploymentStatus.CLONING);
-            String repoPath = gitService.cloneRepository(gitUrl, projectId);
-            result.setRepoPath(repoPath);
-            result.addLog("✓ Repository cloned");
-            
-            // Use custom Dockerfile if provided
-            String dockerfile;
-            if (config.getCustomDockerfile() != null) {
-                dockerfile = config.getCustomDockerfile();
-                result.addLog("✓ Using custom Dockerfile");
+            checkHealth(job).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+    
+    /**
+     * Probe the application until it accepts connections, within the timeout of its project type
+     */
+    private CompletableFuture<Void> checkHealth(DeploymentJob job) {
+        DeploymentResult result = job.getResult();
+        DeploymentConfig config = job.getConfig();
+        
+        if (result.getHostPort() == null) {
+            throw new BusinessException("Container has no published port to probe");
+        }
+        Duration timeout = readinessProber.timeoutFor(result.getProjectType());
+        result.addLog(String.format("Waiting for application on port %d (timeout %ds)",
+                result.getHostPort(), timeout.toSeconds()));
+        
+        return readinessProber.probe(result.getContainerId(), result.getHostPort(),
+                config != null ? config.getHealthCheckPath() : null, timeout, result.getContainerStartedNanos())
+                .thenAccept(readiness -> onProbed(job, readiness));
+    }
+    
+    private void onProbed(DeploymentJob job, Readiness readiness) {
+        DeploymentResult result = job.getResult();
+        String projectId = job.getProjectId();
+        
+        result.setTimeToReadyMs(readiness.timeToReadyMs());
+        if (readiness.ready()) {
+            result.addLog(String.format("✓ Application ready after %d ms", readiness.timeToReadyMs()));
+            RouteTarget target = new RouteTarget(result.getContainerId(), result.getContainerName(),
+                    dockerService.getContainerAddress(result.getContainerId()), result.getHostPort(), result.getImageId(), result.getCommitSha(), result.getProjectType());
+            if (blueGreen) {
+                Route route = routingTable.switchTo(projectId, target);
+                result.addLog("✓ Traffic switched to " + result.getContainerName() +
+                        (route.previous() != null ? ", draining " + route.previous().containerName() : ""));
             } else {
-                // Auto-detect and generate
-                result.setStatus(DeploymentStatus.DETECTING);
-                ProjectType projectType = config.getProjectType() != null ?
-                        config.getProjectType() : projectDetector.detect(repoPath);
-                result.setProjectType(projectType);
-                
-                int port = config.getPort() != null ?
-                        config.getPort() : projectDetector.detectPort(repoPath, projectType);
-                result.setPort(port);
-                
-                dockerfile = dockerfileGenerator.generate(projectType, repoPath, port);
-                result.addLog("✓ Auto-generated Dockerfile");
+                routingTable.replace(projectId, target);
             }
-            
-            result.setDockerfile(dockerfile);
-            
-            // Build image
-            result.setStatus(DeploymentStatus.BUILDING);
-            String imageId = dockerService.buildImage(projectId, repoPath, dockerfile);
-            result.setImageId(imageId);
-            result.addLog("✓ Image built");
-            
-            // Start container with custom config
-            result.setStatus(DeploymentStatus.DEPLOYING);
-            String containerId = dockerService.startContainer(
-                    projectId, imageId, 
-                    config.getPort() != null ? config.getPort() : result.getPort(),
-                    config.getEnvVars(), 
-                    config.getMemoryMB() != null ? config.getMemoryMB() : 512);
-            result.setContainerId(containerId);
-            result.addLog("✓ Container started");
-            
-            // Get container port
-            Integer hostPort = dockerService.getContainerPort(containerId);
-            result.setHostPort(hostPort);
-            
-            // Health check
-            Thread.sleep(3000);
-            boolean healthy = dockerService.isContainerHealthy(containerId);
-            result.setStatus(healthy ? DeploymentStatus.RUNNING : DeploymentStatus.FAILED);
-            result.addLog(healthy ? "✓ Deployment successful" : "✗ Health check failed");
-            
-        } catch (Exception e) {
-            log.error("[{}] Custom deployment failed", projectId, e);
+            result.setStatus(DeploymentStatus.RUNNING);
+            result.addLog("✓ Deployment successful! Application is running");
+            log.info("[{}] Deployment completed successfully, ready after {} ms",
+                    projectId, readiness.timeToReadyMs());
+            dockerService.pruneImages(projectId, result.getImageId());
+        } else {
+            result.setErrorMessage("Health check failed: " + readiness.detail());
             result.setStatus(DeploymentStatus.FAILED);
-            result.addLog("✗ Deployment failed: " + e.getMessage());
+            result.addLog("✗ Health check failed: " + readiness.detail());
+            log.error("[{}] Container health check failed: {}", projectId, readiness.detail());
+            if (blueGreen) {
+                // Never received traffic; the current version keeps serving
+                dockerService.removeContainer(result.getContainerId());
+            }
         }
-        
-        return result;
     }
     
     /**
-     * Redeploy existing project
+     * Stop and remove the container of a previous deployment
      */
-    public DeploymentResult redeploy(String projectId, String gitUrl, 
-                                      Map<String, String> envVars, int memoryMB) {
-        log.info("Redeploying project: {}", projectId);
-        
-        // Stop and remove old container
+    private void removeExistingDeployment(String projectId) {
         try {
             String oldContainerId = "vision-" + projectId;
             dockerService.stopContainer(oldContainerId);
             dockerService.removeContainer(oldContainerId);
-            dockerService.cleanupImages(projectId);
         } catch (Exception e) {
             log.debug("No existing container to stop", e);
         }
-        
-        // Deploy fresh
-        return deploy(projectId, gitUrl, envVars, memoryMB);
     }
     
     /**
-     * Rollback to previous deployment
+     * Image IDs come as "sha256:<hex>"; log the first 12 hex digits like the Docker CLI
      */
-    public void rollback(String projectId, String previousContainerId) {
+    private static String shortId(String imageId) {
+        String hex = imageId.startsWith("sha256:") ? imageId.substring(7) : imageId;
+        return hex.substring(0, Math.min(12, hex.length()));
+    }
+    
+    /**
+     * Rollback to previous deployment by flipping traffic back to its container.
+     * The container is started again if it was already drained and stopped.
+     * @return The new route
+     */
+    public Route rollback(String projectId) {
         log.info("Rolling back project: {}", projectId);
         
-        try {
-            // Stop current container
-            String currentContainerId = "vision-" + projectId;
-            dockerService.stopContainer(currentContainerId);
-            dockerService.removeContainer(currentContainerId);
-            
-            // Start previous container
-            dockerService.restartContainer(previousContainerId);
+        RouteTarget previous = routingTable.getRoute(projectId).previous();
+        if (previous == null) {
+            throw new BusinessException(404, "No previous deployment to roll back to: " + projectId);
+        }
+        
+        if (!dockerService.isContainerHealthy(previous.containerId())) {
+            dockerService.restartContainer(previous.containerId());
+            previous = previous.withHostPort(dockerService.getContainerPort(previous.containerId()));
+            if (previous.hostPort() == null) {
+                throw new BusinessException("Rollback failed: previous container has no published port");
+            }
             
-            log.info("Rollback completed for project: {}", projectId);
-        } catch (Exception e) {
-            log.error("Rollback failed", e);
-            throw new BusinessException("Rollback failed: " + e.getMessage());
+            Readiness readiness;
+            try {
+                readiness = readinessProber.probe(previous.containerId(), previous.hostPort(), null,
+                        readinessProber.timeoutFor(previous.projectType()), System.nanoTime()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("Rollback interrupted");
+            } catch (ExecutionException e) {
+                throw new BusinessException("Rollback failed: " + e.getCause().getMessage());
+            }
+            if (!readiness.ready()) {
+                throw new BusinessException("Rollback failed: " + readiness.detail());
+            }
         }
+        
+        Route route = routingTable.flipBack(projectId, previous);
+        log.info("Rollback completed for project: {}", projectId);
+        return route;
     }
     
     /**
@@ -253,18 +484,38 @@ public class AutoDeployService {
      */
     public static class DeploymentResult {
         private String projectId;
-        private DeploymentStatus status;
+        private volatile DeploymentStatus status;
         private ProjectType projectType;
         private String repoPath;
+        private String branch;
+        private String commitSha;
+        private Long cloneBytes;
+        private Long cloneDurationMs;
+        private String contextDirectory;
         private String dockerfile;
         private String imageId;
+        private String buildFingerprint;
+        private boolean imageReused;
+        private Long buildContextBytes;
+        private Long buildTimeMs;
         private String containerId;
+        private String containerName;
         private Integer port;
         private Integer hostPort;
-        private StringBuilder logs = new StringBuilder();
+        private long containerStartedNanos;
+        private Long timeToReadyMs;
+        private String errorMessage;
+        private final DeploymentLog deploymentLog = new DeploymentLog();
         
         public void addLog(String message) {
-            logs.append(message).append("\n");
+            deploymentLog.append(LogLine.Type.LOG, message);
+        }
+        
+        /**
+         * Record a raw line of Docker build output
+         */
+        public void addBuildOutput(String line) {
+            deploymentLog.append(LogLine.Type.BUILD, line);
         }
         
         // Getters and Setters
@@ -272,7 +523,12 @@ public class AutoDeployService {
         public void setProjectId(String projectId) { this.projectId = projectId; }
         
         public DeploymentStatus getStatus() { return status; }
-        public void setStatus(DeploymentStatus status) { this.status = status; }
+        public void setStatus(DeploymentStatus status) {
+            if (status != this.status) {
+                this.status = status;
+                deploymentLog.append(LogLine.Type.STATUS, status.name());
+            }
+        }
         
         public ProjectType getProjectType() { return projectType; }
         public void setProjectType(ProjectType projectType) { this.projectType = projectType; }
@@ -280,22 +536,70 @@ public class AutoDeployService {
         public String getRepoPath() { return repoPath; }
         public void setRepoPath(String repoPath) { this.repoPath = repoPath; }
         
+        public String getBranch() { return branch; }
+        public void setBranch(String branch) { this.branch = branch; }
+        
+        public String getCommitSha() { return commitSha; }
+        public void setCommitSha(String commitSha) { this.commitSha = commitSha; }
+        
+        public Long getCloneBytes() { return cloneBytes; }
+        public void setCloneBytes(Long cloneBytes) { this.cloneBytes = cloneBytes; }
+        
+        public Long getCloneDurationMs() { return cloneDurationMs; }
+        public void setCloneDurationMs(Long cloneDurationMs) { this.cloneDurationMs = cloneDurationMs; }
+        
+        /**
+         * Build context relative to the checkout, "" for the repository root
+         */
+        public String getContextDirectory() { return contextDirectory; }
+        public void setContextDirectory(String contextDirectory) { this.contextDirectory = contextDirectory; }
+        
         public String getDockerfile() { return dockerfile; }
         public void setDockerfile(String dockerfile) { this.dockerfile = dockerfile; }
         
         public String getImageId() { return imageId; }
         public void setImageId(String imageId) { this.imageId = imageId; }
         
+        public String getBuildFingerprint() { return buildFingerprint; }
+        public void setBuildFingerprint(String buildFingerprint) { this.buildFingerprint = buildFingerprint; }
+        
+        public boolean isImageReused() { return imageReused; }
+        public void setImageReused(boolean imageReused) { this.imageReused = imageReused; }
+        
+        public Long getBuildContextBytes() { return buildContextBytes; }
+        public void setBuildContextBytes(Long buildContextBytes) { this.buildContextBytes = buildContextBytes; }
+        
+        public Long getBuildTimeMs() { return buildTimeMs; }
+        public void setBuildTimeMs(Long buildTimeMs) { this.buildTimeMs = buildTimeMs; }
+        
         public String getContainerId() { return containerId; }
         public void setContainerId(String containerId) { this.containerId = containerId; }
         
+        public String getContainerName() { return containerName; }
+        public void setContainerName(String containerName) { this.containerName = containerName; }
+        
         public Integer getPort() { return port; }
         public void setPort(Integer port) { this.port = port; }
         
         public Integer getHostPort() { return hostPort; }
         public void setHostPort(Integer hostPort) { this.hostPort = hostPort; }
         
-        public String getLogs() { return logs.toString(); }
+        @JsonIgnore
+        public long getContainerStartedNanos() { return containerStartedNanos; }
+        public void setContainerStartedNanos(long containerStartedNanos) {
+            this.containerStartedNanos = containerStartedNanos;
+        }
+        
+        public Long getTimeToReadyMs() { return timeToReadyMs; }
+        public void setTimeToReadyMs(Long timeToReadyMs) { this.timeToReadyMs = timeToReadyMs; }
+        
+        public String getErrorMessage() { return errorMessage; }
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+        
+        public String getLogs() { return deploymentLog.toText(); }
+        
+        @JsonIgnore
+        public DeploymentLog getDeploymentLog() { return deploymentLog; }
     }
     
     /**
@@ -310,6 +614,7 @@ public class AutoDeployService {
         private Map<String, String> envVars;
         private Integer memoryMB;
         private String rootDirectory;
+        private String healthCheckPath;
         
         // Getters and Setters
         public ProjectType getProjectType() { return projectType; }
@@ -335,5 +640,8 @@ public class AutoDeployService {
         
         public String getRootDirectory() { return rootDirectory; }
         public void setRootDirectory(String rootDirectory) { this.rootDirectory = rootDirectory; }
+        
+        public String getHealthCheckPath() { return healthCheckPath; }
+        public void setHealthCheckPath(String healthCheckPath) { this.healthCheckPath = healthCheckPath; }
     }
 }
@@ -0,0 +1,392 @@
+package com.vision.paas.deploy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vision.paas.common.enums.DeploymentStatus;
+import com.vision.paas.common.enums.ProjectType;
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.entity.DeploymentRecord;
+import com.vision.paas.deploy.job.DeploymentJob;
+import com.vision.paas.deploy.pipeline.DeploymentStage;
+import com.vision.paas.deploy.repository.DeploymentRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Deployment History Service
+ * Persists every deployment job as a {@link DeploymentRecord}. Writes are applied in order on a
+ * single background thread, so pipeline workers and the readiness prober never wait for the
+ * database and a database outage only costs history, not deployments.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeploymentHistoryService {
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final DeploymentRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final EnvVarsCipher envVarsCipher;
+    
+    private ExecutorService writer;
+    
+    @PostConstruct
+    public void init() {
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deploy-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.execute(() -> {
+            try {
+                int scrubbed = repository.clearUnencryptedEnvVars();
+                if (scrubbed > 0) {
+                    log.info("Removed unencrypted environment variables from {} deployment records", scrubbed);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to remove unencrypted environment variables", e);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Record a job entering the queue; a resumed job keeps its existing record
+     */
+    public void queued(DeploymentJob job) {
+        Snapshot snapshot = Snapshot.of(job.getResult());
+        DeploymentRecord request = newRecord(job);
+        write(job.getId(), record -> {
+            if (record.getId() == null) {
+                copyRequest(request, record);
+            }
+            record.transitionTo(snapshot.status());
+        });
+    }
+    
+    /**
+     * Record a stage that finished successfully along with its outputs
+     */
+    public void stageCompleted(DeploymentJob job, DeploymentStage stage) {
+        Snapshot snapshot = Snapshot.of(job.getResult());
+        Instant at = Instant.now();
+        Instant startedAt = job.getStartedAt();
+        write(job.getId(), record -> {
+            snapshot.applyTo(record);
+            if (record.getStartedAt() == null) {
+                record.setStartedAt(startedAt);
+            }
+            record.completeStage(stage, at);
+        });
+    }
+    
+    /**
+     * Record a job leaving the pipeline, successfully or not
+     */
+    public void finished(DeploymentJob job) {
+        Snapshot snapshot = Snapshot.of(job.getResult());
+        Instant finishedAt = job.getFinishedAt();
+        write(job.getId(), record -> {
+            snapshot.applyTo(record);
+            record.setFinishedAt(finishedAt);
+        });
+    }
+    
+    /**
+     * Deployments newest first, keyset-paginated on (createdAt, id)
+     * @param projectId Only this project, or null for all
+     * @param status Only this status, or null for all
+     * @param from Created at or after, or null for no lower bound
+     * @param until Created before, or null for now
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public HistoryPage find(String projectId, DeploymentStatus status, Instant from, Instant until,
+                            String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Instant beforeAt = until != null ? until : Instant.now().plusSeconds(1);
+        String beforeId = "";
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeCursor(cursor);
+            beforeAt = Instant.parse(parts[0]);
+            beforeId = parts[1];
+        }
+        
+        List<DeploymentRecord> records = repository.findPage(projectId, status,
+                from != null ? from : Instant.EPOCH, beforeAt, beforeId, PageRequest.of(0, size));
+        String nextCursor = null;
+        if (records.size() == size) {
+            DeploymentRecord last = records.get(records.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        return new HistoryPage(records, nextCursor);
+    }
+    
+    public DeploymentRecord get(String jobId) {
+        return repository.findById(jobId)
+                .orElseThrow(() -> new BusinessException(404, "Deployment not found: " + jobId));
+    }
+    
+    /**
+     * Build time percentiles of a project's deployments that actually built an image
+     */
+    public DeploymentRecordRepository.BuildTimePercentiles buildTimePercentiles(String projectId,
+                                                                                Instant from, Instant until) {
+        return repository.findBuildTimePercentiles(projectId,
+                from != null ? from : Instant.EPOCH, until != null ? until : Instant.now());
+    }
+    
+    /**
+     * Deployments that were still in the pipeline when the service stopped, oldest first
+     */
+    public List<DeploymentRecord> findInterrupted() {
+        return repository.findByStatusInOrderByCreatedAtAsc(Arrays.stream(DeploymentStatus.values())
+                .filter(DeploymentStatus::isInProgress)
+                .toList());
+    }
+    
+    /**
+     * Recreate the job of an interrupted deployment, continuing after the last stage whose
+     * outputs are still usable: a clone is only reused if the checkout is still on disk,
+     * and a started container is probed again rather than recreated.
+     */
+    public DeploymentJob restore(DeploymentRecord record) throws JsonProcessingException {
+        DeploymentStage resumeStage = resumeStage(record);
+        
+        AutoDeployService.DeploymentResult result = new AutoDeployService.DeploymentResult();
+        result.setProjectId(record.getProjectId());
+        if (resumeStage.ordinal() > DeploymentStage.CLONE.ordinal()) {
+            result.setRepoPath(record.getRepoPath());
+            result.setBranch(record.getBranch());
+            result.setCommitSha(record.getCommitSha());
+            result.setCloneDurationMs(record.getCloneDurationMs());
+        }
+        if (resumeStage.ordinal() > DeploymentStage.DETECT.ordinal()) {
+            result.setProjectType(record.getProjectType());
+            result.setPort(record.getPort());
+            result.setContextDirectory(record.getContextDirectory());
+            result.setDockerfile(record.getDockerfile());
+            result.setBuildFingerprint(record.getBuildFingerprint());
+            result.setImageId(record.getImageId());
+            result.setImageReused(record.isImageReused());
+            result.setBuildTimeMs(record.getBuildTimeMs());
+        }
+        if (resumeStage == DeploymentStage.HEALTH) {
+            result.setContainerId(record.getContainerId());
+            result.setContainerName(record.getContainerName());
+            result.setHostPort(record.getHostPort());
+            result.setContainerStartedNanos(System.nanoTime());
+            result.setStatus(DeploymentStatus.DEPLOYING);
+        } else {
+            result.setStatus(DeploymentStatus.PENDING);
+        }
+        result.addLog("↻ Resuming after restart at stage: " + resumeStage.getDisplayName());
+        
+        Map<String, String> envVars = null;
+        if (record.getEncryptedEnvVars() != null) {
+            envVars = objectMapper.readValue(envVarsCipher.decrypt(record.getEncryptedEnvVars(), record.getId()),
+                    new TypeReference<Map<String, String>>() { });
+        } else if (record.getEnvVarNames() != null && resumeStage != DeploymentStage.HEALTH) {
+            // Only a started container no longer needs them
+            throw new IllegalStateException("its environment variables were not stored");
+        }
+        AutoDeployService.DeploymentConfig config = record.getConfigJson() == null ? null :
+                objectMapper.readValue(record.getConfigJson(), AutoDeployService.DeploymentConfig.class);
+        DeploymentJob job = DeploymentJob.restore(record.getId(), record.getJobType(), record.getProjectId(),
+                record.getGitUrl(), record.getRequestedBranch(), envVars, record.getMemoryMb(), config,
+                record.getPriority(), record.getCreatedAt(), result, resumeStage);
+        if (resumeStage == DeploymentStage.HEALTH) {
+            // Its container already exists, so it is past the point where it could be cancelled
+            job.beginRollout();
+        }
+        return job;
+    }
+    
+    /**
+     * Give up on an interrupted deployment that cannot be resumed
+     */
+    public void abandon(DeploymentRecord record, String reason) {
+        Instant now = Instant.now();
+        write(record.getId(), stored -> {
+            stored.transitionTo(DeploymentStatus.FAILED);
+            stored.setErrorMessage(reason);
+            stored.setFinishedAt(now);
+        });
+    }
+    
+    private static DeploymentStage resumeStage(DeploymentRecord record) {
+        DeploymentStage completed = record.getLastCompletedStage();
+        if (completed == null) {
+            return DeploymentStage.CLONE;
+        }
+        return switch (completed) {
+            // Building needs the checkout, which lives in a temporary directory
+            case CLONE, DETECT -> record.getRepoPath() != null && Files.isDirectory(Paths.get(record.getRepoPath())) ?
+                    DeploymentStage.values()[completed.ordinal() + 1] : DeploymentStage.CLONE;
+            case BUILD -> DeploymentStage.START;
+            case START, HEALTH -> DeploymentStage.HEALTH;
+        };
+    }
+    
+    private DeploymentRecord newRecord(DeploymentJob job) {
+        DeploymentRecord record = new DeploymentRecord();
+        record.setId(job.getId());
+        record.setProjectId(job.getProjectId());
+        record.setJobType(job.getType());
+        record.setGitUrl(job.getGitUrl());
+        record.setRequestedBranch(job.getBranch());
+        record.setPriority(job.getPriority());
+        record.setMemoryMb(job.getMemoryMB());
+        // Postgres keeps microseconds; truncating keeps keyset cursors exact
+        record.setCreatedAt(job.getSubmittedAt().truncatedTo(ChronoUnit.MICROS));
+        try {
+            if (job.getEnvVars() != null && !job.getEnvVars().isEmpty()) {
+                record.setEnvVarNames(String.join(",", new TreeSet<>(job.getEnvVars().keySet())));
+                if (envVarsCipher.isEnabled()) {
+                    record.setEncryptedEnvVars(envVarsCipher.encrypt(
+                            objectMapper.writeValueAsString(job.getEnvVars()), job.getId()));
+                }
+            }
+            record.setConfigJson(job.getConfig() == null ? null : objectMapper.writeValueAsString(job.getConfig()));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize request of deployment {}, it cannot be resumed", job.getId(), e);
+        }
+        return record;
+    }
+    
+    private static void copyRequest(DeploymentRecord from, DeploymentRecord to) {
+        to.setId(from.getId());
+        to.setProjectId(from.getProjectId());
+        to.setJobType(from.getJobType());
+        to.setGitUrl(from.getGitUrl());
+        to.setRequestedBranch(from.getRequestedBranch());
+        to.setPriority(from.getPriority());
+        to.setMemoryMb(from.getMemoryMb());
+        to.setCreatedAt(from.getCreatedAt());
+        to.setEncryptedEnvVars(from.getEncryptedEnvVars());
+        to.setEnvVarNames(from.getEnvVarNames());
+        to.setConfigJson(from.getConfigJson());
+    }
+    
+    /**
+     * Load (or start) a record, apply an update and save it on the writer thread
+     */
+    private void write(String jobId, Consumer<DeploymentRecord> update) {
+        writer.execute(() -> {
+            try {
+                DeploymentRecord record = repository.findById(jobId).orElseGet(DeploymentRecord::new);
+                update.accept(record);
+                if (record.getId() == null) {
+                    log.warn("No history record for deployment {}, update dropped", jobId);
+                    return;
+                }
+                repository.save(record);
+            } catch (IllegalStateException e) {
+                log.warn("Rejected history update: {}", e.getMessage());
+            } catch (Exception e) {
+                log.error("Failed to write history of deployment {}", jobId, e);
+            }
+        });
+    }
+    
+    private static String encodeCursor(Instant createdAt, String id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            Instant.parse(parts[0]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new BusinessException(400, "Invalid cursor");
+        }
+    }
+    
+    public record HistoryPage(
+            List<DeploymentRecord> items,
+            String nextCursor) {
+    }
+    
+    /**
+     * Stage outputs and status captured on the calling thread
+     */
+    private record Snapshot(
+            DeploymentStatus status,
+            ProjectType projectType,
+            String repoPath,
+            String branch,
+            String commitSha,
+            Long cloneDurationMs,
+            String contextDirectory,
+            String dockerfile,
+            Integer port,
+            String imageId,
+            boolean imageReused,
+            String buildFingerprint,
+            Long buildTimeMs,
+            String containerId,
+            String containerName,
+            Integer hostPort,
+            Long timeToReadyMs,
+            String errorMessage) {
+        
+        static Snapshot of(AutoDeployService.DeploymentResult result) {
+            return new Snapshot(result.getStatus(), result.getProjectType(), result.getRepoPath(),
+                    result.getBranch(), result.getCommitSha(), result.getCloneDurationMs(),
+                    result.getContextDirectory(), result.getDockerfile(), result.getPort(), result.getImageId(),
+                    result.isImageReused(), result.getBuildFingerprint(), result.getBuildTimeMs(),
+                    result.getContainerId(), result.getContainerName(), result.getHostPort(), result.getTimeToReadyMs(), result.getErrorMessage());
+        }
+        
+        void applyTo(DeploymentRecord record) {
+            record.transitionTo(status);
+            record.setProjectType(projectType);
+            record.setRepoPath(repoPath);
+            record.setBranch(branch);
+            record.setCommitSha(commitSha);
+            record.setCloneDurationMs(cloneDurationMs);
+            record.setContextDirectory(contextDirectory);
+            record.setDockerfile(dockerfile);
+            record.setPort(port);
+            record.setImageId(imageId);
+            record.setImageReused(imageReused);
+            record.setBuildFingerprint(buildFingerprint);
+            record.setBuildTimeMs(buildTimeMs);
+            record.setContainerId(containerId);
+            record.setContainerName(containerName);
+            record.setHostPort(hostPort);
+            record.setTimeToReadyMs(timeToReadyMs);
+            record.setErrorMessage(errorMessage);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.vision.paas.deploy.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Env Vars Cipher
+ * Encrypts deployment environment variables, which hold customer secrets, before they are
+ * persisted. AES-GCM with a random IV per value; the deployment ID is bound as associated
+ * data so a ciphertext cannot be moved to another record. Without a configured key nothing
+ * can be encrypted and callers must not store the values.
+ */
+@Slf4j
+@Component
+public class EnvVarsCipher {
+    
+    /**
+     * Prefix of values written by this version
+     */
+    static final String PREFIX = "v1:";
+    
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final SecretKeySpec key;
+    
+    /**
+     * @param base64Key Base64 of a 16, 24 or 32 byte AES key; empty disables encryption
+     */
+    public EnvVarsCipher(@Value("${deploy.history.env-encryption-key:}") String base64Key) {
+        if (base64Key == null || base64Key.isBlank()) {
+            this.key = null;
+            log.warn("deploy.history.env-encryption-key is not set: environment variables are not persisted, "
+                    + "so interrupted deployments that still need them cannot be resumed");
+            return;
+        }
+        byte[] bytes = Base64.getDecoder().decode(base64Key.trim());
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalStateException("deploy.history.env-encryption-key must be 16, 24 or 32 bytes, got "
+                    + bytes.length);
+        }
+        this.key = new SecretKeySpec(bytes, "AES");
+    }
+    
+    public boolean isEnabled() {
+        return key != null;
+    }
+    
+    /**
+     * @param deploymentId Bound to the ciphertext
+     */
+    public String encrypt(String plaintext, String deploymentId) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, requireKey(), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(deploymentId.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            byte[] out = ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array();
+            return PREFIX + Base64.getEncoder().encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt environment variables", e);
+        }
+    }
+    
+    /**
+     * @throws IllegalStateException if the value was not written by {@link #encrypt} with this key
+     */
+    public String decrypt(String value, String deploymentId) {
+        if (!value.startsWith(PREFIX)) {
+            throw new IllegalStateException("Environment variables are not encrypted");
+        }
+        try {
+            byte[] in = Base64.getDecoder().decode(value.substring(PREFIX.length()));
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, requireKey(), new GCMParameterSpec(TAG_BITS, in, 0, IV_BYTES));
+            cipher.updateAAD(deploymentId.getBytes(StandardCharsets.UTF_8));
+            byte[] plaintext = cipher.doFinal(in, IV_BYTES, in.length - IV_BYTES);
+            return new String(plaintext, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to decrypt environment variables", e);
+        }
+    }
+    
+    private SecretKeySpec requireKey() {
+        if (key == null) {
+            throw new IllegalStateException("No environment variable encryption key configured");
+        }
+        return key;
+    }
+}
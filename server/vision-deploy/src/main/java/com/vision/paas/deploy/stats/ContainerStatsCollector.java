@@ -0,0 +1,249 @@
+package com.vision.paas.deploy.stats;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.BlkioStatEntry;
+import com.github.dockerjava.api.model.BlkioStatsConfig;
+import com.github.dockerjava.api.model.CpuStatsConfig;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.StatisticNetworksConfig;
+import com.github.dockerjava.api.model.Statistics;
+import com.vision.paas.common.exception.BusinessException;
+import com.vision.paas.deploy.docker.DockerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container Stats Collector
+ * Keeps one long-lived stats stream open per running deployment container and turns the
+ * daemon's cumulative counters into per-second rates as samples arrive. Reads are served
+ * from the per-container ring buffers and never touch the Docker API.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContainerStatsCollector {
+    
+    private final DockerService dockerService;
+    
+    @Value("${deploy.stats.retention-seconds:3600}")
+    private int retentionSeconds;
+    
+    @Value("${deploy.stats.discovery-seconds:5}")
+    private long discoverySeconds;
+    
+    private final Map<String, ContainerStats> containers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService discovery;
+    
+    @PostConstruct
+    public void init() {
+        discovery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deploy-stats-discovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        discovery.scheduleWithFixedDelay(this::reconcile, 0, discoverySeconds, TimeUnit.SECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        discovery.shutdownNow();
+        containers.values().forEach(ContainerStats::closeStream);
+    }
+    
+    /**
+     * Samples of a container within the window, oldest first
+     * @param container Container ID, ID prefix or name
+     */
+    public List<StatsSample> getSamples(String container, Duration window) {
+        long from = System.currentTimeMillis() - window.toMillis();
+        return find(container).buffer.since(from);
+    }
+    
+    private ContainerStats find(String container) {
+        ContainerStats stats = containers.get(container);
+        if (stats != null) {
+            return stats;
+        }
+        for (ContainerStats candidate : containers.values()) {
+            if (candidate.name.equals(container) || candidate.containerId.startsWith(container)) {
+                return candidate;
+            }
+        }
+        throw new BusinessException(404, "No stats for container: " + container);
+    }
+    
+    /**
+     * Open streams for new containers and drop containers that are gone
+     */
+    private void reconcile() {
+        try {
+            Map<String, String> running = dockerService.listManagedContainers();
+            running.forEach((id, name) -> containers
+                    .computeIfAbsent(id, key -> new ContainerStats(key, name, retentionSeconds))
+                    .ensureStream());
+            containers.entrySet().removeIf(entry -> {
+                if (running.containsKey(entry.getKey())) {
+                    return false;
+                }
+                entry.getValue().closeStream();
+                return true;
+            });
+        } catch (Exception e) {
+            log.warn("Container stats discovery failed", e);
+        }
+    }
+    
+    /**
+     * Ring buffer and stats stream of one container
+     */
+    private class ContainerStats {
+        private final String containerId;
+        private final String name;
+        private final StatsRingBuffer buffer;
+        private volatile StatsStream stream;
+        
+        ContainerStats(String containerId, String name, int capacity) {
+            this.containerId = containerId;
+            this.name = name;
+            this.buffer = new StatsRingBuffer(capacity);
+        }
+        
+        synchronized void ensureStream() {
+            if (stream == null || stream.ended) {
+                stream = dockerService.streamStats(containerId, new StatsStream(this));
+                log.debug("Opened stats stream for {}", name);
+            }
+        }
+        
+        synchronized void closeStream() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (Exception e) {
+                    log.debug("Failed to close stats stream of {}", name, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Receives the daemon's samples for one container; keeps the previous cumulative
+     * counters to turn network and block I/O into rates
+     */
+    private static class StatsStream extends ResultCallback.Adapter<Statistics> {
+        private final ContainerStats target;
+        private volatile boolean ended;
+        private long lastMillis;
+        private long lastRx;
+        private long lastTx;
+        private long lastRead;
+        private long lastWrite;
+        
+        StatsStream(ContainerStats target) {
+            this.target = target;
+        }
+        
+        @Override
+        public void onNext(Statistics statistics) {
+            long now = System.currentTimeMillis();
+            long rx = 0;
+            long tx = 0;
+            Map<String, StatisticNetworksConfig> networks = statistics.getNetworks();
+            if (networks != null) {
+                for (StatisticNetworksConfig network : networks.values()) {
+                    rx += orZero(network.getRxBytes());
+                    tx += orZero(network.getTxBytes());
+                }
+            }
+            long read = 0;
+            long write = 0;
+            BlkioStatsConfig blkio = statistics.getBlkioStats();
+            if (blkio != null && blkio.getIoServiceBytesRecursive() != null) {
+                for (BlkioStatEntry entry : blkio.getIoServiceBytesRecursive()) {
+                    if ("read".equalsIgnoreCase(entry.getOp())) {
+                        read += orZero(entry.getValue());
+                    } else if ("write".equalsIgnoreCase(entry.getOp())) {
+                        write += orZero(entry.getValue());
+                    }
+                }
+            }
+            
+            MemoryStatsConfig memory = statistics.getMemoryStats();
+            long memoryUsage = 0;
+            long memoryLimit = 0;
+            if (memory != null) {
+                long cache = memory.getStats() != null ? orZero(memory.getStats().getCache()) : 0;
+                memoryUsage = Math.max(0, orZero(memory.getUsage()) - cache);
+                memoryLimit = orZero(memory.getLimit());
+            }
+            
+            long elapsedMs = now - lastMillis;
+            boolean first = lastMillis == 0 || elapsedMs <= 0;
+            target.buffer.append(now, cpuPercent(statistics), memoryUsage, memoryLimit,
+                    first ? 0 : rate(rx - lastRx, elapsedMs),
+                    first ? 0 : rate(tx - lastTx, elapsedMs),
+                    first ? 0 : rate(read - lastRead, elapsedMs),
+                    first ? 0 : rate(write - lastWrite, elapsedMs));
+            lastMillis = now;
+            lastRx = rx;
+            lastTx = tx;
+            lastRead = read;
+            lastWrite = write;
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            ended = true;
+            log.debug("Stats stream of {} failed", target.name, throwable);
+            super.onError(throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            ended = true;
+            super.onComplete();
+        }
+        
+        /**
+         * Same formula as docker stats: share of host CPU time since the previous sample
+         */
+        private static double cpuPercent(Statistics statistics) {
+            CpuStatsConfig cpu = statistics.getCpuStats();
+            CpuStatsConfig previous = statistics.getPreCpuStats();
+            if (cpu == null || previous == null || cpu.getCpuUsage() == null || previous.getCpuUsage() == null) {
+                return 0;
+            }
+            long cpuDelta = orZero(cpu.getCpuUsage().getTotalUsage()) - orZero(previous.getCpuUsage().getTotalUsage());
+            long systemDelta = orZero(cpu.getSystemCpuUsage()) - orZero(previous.getSystemCpuUsage());
+            if (cpuDelta <= 0 || systemDelta <= 0) {
+                return 0;
+            }
+            long cpus = orZero(cpu.getOnlineCpus());
+            if (cpus == 0 && cpu.getCpuUsage().getPercpuUsage() != null) {
+                cpus = cpu.getCpuUsage().getPercpuUsage().size();
+            }
+            return (double) cpuDelta / systemDelta * Math.max(1, cpus) * 100.0;
+        }
+        
+        private static long rate(long delta, long elapsedMs) {
+            // Counters reset when the container restarts
+            return delta < 0 ? 0 : delta * 1000 / elapsedMs;
+        }
+        
+        private static long orZero(Long value) {
+            return value != null ? value : 0;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.vision.paas.deploy.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stats Ring Buffer
+ * Keeps the most recent samples of one container in parallel primitive arrays,
+ * so an hour of one-second samples costs a few hundred KB and no per-sample objects.
+ */
+public class StatsRingBuffer {
+    
+    private final long[] timestamps;
+    private final double[] cpuPercent;
+    private final long[] memoryBytes;
+    private final long[] memoryLimitBytes;
+    private final long[] networkRx;
+    private final long[] networkTx;
+    private final long[] blockRead;
+    private final long[] blockWrite;
+    private int next;
+    private int size;
+    
+    public StatsRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        timestamps = new long[capacity];
+        cpuPercent = new double[capacity];
+        memoryBytes = new long[capacity];
+        memoryLimitBytes = new long[capacity];
+        networkRx = new long[capacity];
+        networkTx = new long[capacity];
+        blockRead = new long[capacity];
+        blockWrite = new long[capacity];
+    }
+    
+    /**
+     * Store a sample, overwriting the oldest one when full
+     */
+    public synchronized void append(long timestamp, double cpu, long memory, long memoryLimit,
+                                    long rxPerSec, long txPerSec, long readPerSec, long writePerSec) {
+        timestamps[next] = timestamp;
+        cpuPercent[next] = cpu;
+        memoryBytes[next] = memory;
+        memoryLimitBytes[next] = memoryLimit;
+        networkRx[next] = rxPerSec;
+        networkTx[next] = txPerSec;
+        blockRead[next] = readPerSec;
+        blockWrite[next] = writePerSec;
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+    
+    /**
+     * Samples taken at or after the given time, oldest first
+     * @param fromMillis Epoch millis
+     */
+    public synchronized List<StatsSample> since(long fromMillis) {
+        int oldest = (next - size + timestamps.length) % timestamps.length;
+        List<StatsSample> samples = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int index = (oldest + i) % timestamps.length;
+            if (timestamps[index] >= fromMillis) {
+                samples.add(new StatsSample(timestamps[index], cpuPercent[index], memoryBytes[index],
+                        memoryLimitBytes[index], networkRx[index], networkTx[index],
+                        blockRead[index], blockWrite[index]));
+            }
+        }
+        return samples;
+    }
+    
+    public int getCapacity() {
+        return timestamps.length;
+    }
+}
@@ -0,0 +1,23 @@
+package com.vision.paas.deploy.stats;
+
+/**
+ * Resource usage of a container over one sampling interval
+ * @param timestamp Epoch millis of the sample
+ * @param cpuPercent CPU usage, 100 per fully used core
+ * @param memoryBytes Memory in use, excluding page cache
+ * @param memoryLimitBytes Memory limit of the container
+ * @param networkRxBytesPerSec Bytes received per second across all networks
+ * @param networkTxBytesPerSec Bytes sent per second across all networks
+ * @param blockReadBytesPerSec Block device bytes read per second
+ * @param blockWriteBytesPerSec Block device bytes written per second
+ */
+public record StatsSample(
+        long timestamp,
+        double cpuPercent,
+        long memoryBytes,
+        long memoryLimitBytes,
+        long networkRxBytesPerSec,
+        long networkTxBytesPerSec,
+        long blockReadBytesPerSec,
+        long blockWriteBytesPerSec) {
+}
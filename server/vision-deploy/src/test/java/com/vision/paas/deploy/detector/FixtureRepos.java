@@ -0,0 +1,34 @@
+package com.vision.paas.deploy.detector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The fixture repositories under src/test/resources/fixtures, one directory per repository
+ */
+final class FixtureRepos {
+    
+    private FixtureRepos() {
+    }
+    
+    static List<Path> all() {
+        URL fixtures = FixtureRepos.class.getResource("/fixtures");
+        if (fixtures == null) {
+            throw new IllegalStateException("Fixture repositories not on the classpath");
+        }
+        try (Stream<Path> repos = Files.list(Paths.get(fixtures.toURI()))) {
+            return repos.filter(Files::isDirectory).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
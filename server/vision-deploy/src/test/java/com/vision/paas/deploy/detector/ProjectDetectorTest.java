@@ -0,0 +1,106 @@
+package com.vision.paas.deploy.detector;
+
+import com.vision.paas.common.enums.ProjectType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the fixture corpus through {@link ProjectDetector} and checks it against
+ * {@link BaselineProjectDetector}: reading from a RepoSnapshot must not change what is detected.
+ */
+class ProjectDetectorTest {
+    
+    private static final Map<String, ProjectType> EXPECTED = Map.ofEntries(
+            entry("nextjs", ProjectType.NEXTJS),
+            entry("react", ProjectType.REACT),
+            entry("vue", ProjectType.VUE),
+            entry("angular", ProjectType.ANGULAR),
+            entry("svelte", ProjectType.SVELTE),
+            entry("nuxt", ProjectType.NUXT),
+            entry("spring-boot", ProjectType.SPRING_BOOT),
+            entry("spring-boot-gradle", ProjectType.SPRING_BOOT),
+            entry("spring-cloud", ProjectType.SPRING_CLOUD),
+            entry("micronaut", ProjectType.MICRONAUT),
+            entry("quarkus", ProjectType.QUARKUS),
+            entry("django", ProjectType.DJANGO),
+            entry("flask", ProjectType.FLASK),
+            entry("fastapi", ProjectType.FASTAPI),
+            entry("express", ProjectType.EXPRESS),
+            entry("nestjs", ProjectType.NESTJS),
+            entry("koa", ProjectType.KOA),
+            entry("go", ProjectType.GO),
+            entry("gin", ProjectType.GIN),
+            entry("rails", ProjectType.RAILS),
+            entry("laravel", ProjectType.LARAVEL),
+            entry("static-html", ProjectType.STATIC_HTML),
+            entry("gatsby", ProjectType.GATSBY),
+            entry("jekyll", ProjectType.JEKYLL),
+            entry("unknown", ProjectType.UNKNOWN));
+    
+    private final ProjectDetector detector = new ProjectDetector();
+    private final BaselineProjectDetector baseline = new BaselineProjectDetector();
+    
+    static List<Path> fixtures() {
+        return FixtureRepos.all();
+    }
+    
+    @ParameterizedTest
+    @MethodSource("fixtures")
+    void detectsTheSameTypeAsTheBaseline(Path repo) {
+        ProjectType type = detector.detect(repo.toString());
+        
+        assertThat(type).isEqualTo(baseline.detect(repo.toString()));
+        assertThat(type).isEqualTo(EXPECTED.get(repo.getFileName().toString()));
+    }
+    
+    @ParameterizedTest
+    @MethodSource("fixtures")
+    void detectsTheSamePortAsTheBaseline(Path repo) {
+        RepoSnapshot snapshot = RepoSnapshot.scan(repo.toString());
+        ProjectType type = detector.detect(snapshot);
+        
+        assertThat(detector.detectPort(snapshot, type)).isEqualTo(baseline.detectPort(repo.toString(), type));
+    }
+    
+    @Test
+    void corpusHasARepositoryPerDetectableType() {
+        Set<String> names = fixtures().stream()
+                .map(repo -> repo.getFileName().toString())
+                .collect(Collectors.toSet());
+        assertThat(names).isEqualTo(EXPECTED.keySet());
+        
+        // No files identify a Hugo site yet, so it is never detected
+        Set<ProjectType> detectable = EnumSet.complementOf(EnumSet.of(ProjectType.HUGO));
+        assertThat(EnumSet.copyOf(EXPECTED.values())).isEqualTo(detectable);
+    }
+    
+    @Test
+    void readsPortsFromTheStartScriptAndApplicationProperties() {
+        assertThat(detector.detectPort(fixture("express"), ProjectType.EXPRESS)).isEqualTo(4000);
+        assertThat(detector.detectPort(fixture("spring-boot"), ProjectType.SPRING_BOOT)).isEqualTo(9090);
+    }
+    
+    @Test
+    void missingDirectoryIsUnknown() {
+        assertThat(detector.detect("/nonexistent/repo")).isEqualTo(ProjectType.UNKNOWN);
+    }
+    
+    private static String fixture(String name) {
+        return fixtures().stream()
+                .filter(repo -> repo.getFileName().toString().equals(name))
+                .findFirst()
+                .orElseThrow()
+                .toString();
+    }
+}
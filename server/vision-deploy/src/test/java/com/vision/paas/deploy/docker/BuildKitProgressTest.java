@@ -0,0 +1,138 @@
+package com.vision.paas.deploy.docker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BuildKitProgressTest {
+    
+    @Test
+    void numbersStepsAndPrefixesTheirLogs() {
+        List<String> lines = new ArrayList<>();
+        BuildKitProgress progress = new BuildKitProgress(lines::add);
+        
+        progress.accept(status(vertex("sha256:a", "[1/2] FROM node:18", false, true, null)));
+        progress.accept(status(vertex("sha256:b", "[2/2] RUN npm ci", false, true, null),
+                log("sha256:b", "added 12 packages\nnpm notice\n")));
+        // Later updates of a step that was already announced add nothing
+        progress.accept(status(vertex("sha256:b", "[2/2] RUN npm ci", false, true, null)));
+        
+        assertThat(lines).containsExactly(
+                "#1 [1/2] FROM node:18",
+                "#2 [2/2] RUN npm ci",
+                "#2 added 12 packages",
+                "#2 npm notice");
+    }
+    
+    @Test
+    void reportsCachedAndFailedSteps() {
+        List<String> lines = new ArrayList<>();
+        BuildKitProgress progress = new BuildKitProgress(lines::add);
+        
+        progress.accept(status(vertex("sha256:a", "[1/2] COPY . .", true, false, null)));
+        progress.accept(status(vertex("sha256:b", "[2/2] RUN make", false, true, "exit code: 2")));
+        
+        assertThat(lines).containsExactly(
+                "#1 [1/2] COPY . .",
+                "#1 CACHED",
+                "#2 [2/2] RUN make",
+                "#2 ERROR: exit code: 2");
+    }
+    
+    @Test
+    void skipsFieldsItDoesNotUse() {
+        List<String> lines = new ArrayList<>();
+        BuildKitProgress progress = new BuildKitProgress(lines::add);
+        
+        ByteArrayOutputStream vertex = new ByteArrayOutputStream();
+        string(vertex, 1, "sha256:a");
+        string(vertex, 2, "sha256:input");
+        string(vertex, 3, "[1/1] FROM alpine");
+        bytes(vertex, 5, timestamp());
+        bytes(vertex, 6, timestamp());
+        ByteArrayOutputStream status = new ByteArrayOutputStream();
+        bytes(status, 1, vertex.toByteArray());
+        // VertexStatus entries carry byte counts only
+        bytes(status, 2, new byte[] {0x0a, 0x01, 'x', 0x28, (byte) 0x96, 0x01});
+        
+        progress.accept(status.toByteArray());
+        
+        assertThat(lines).containsExactly("#1 [1/1] FROM alpine");
+    }
+    
+    private static byte[] status(byte[]... entries) {
+        return join(entries);
+    }
+    
+    private static byte[] vertex(String digest, String name, boolean cached, boolean started, String error) {
+        ByteArrayOutputStream vertex = new ByteArrayOutputStream();
+        string(vertex, 1, digest);
+        string(vertex, 3, name);
+        if (cached) {
+            varint(vertex, 4 << 3);
+            varint(vertex, 1);
+        }
+        if (started) {
+            bytes(vertex, 5, timestamp());
+        }
+        if (error != null) {
+            string(vertex, 7, error);
+        }
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        bytes(field, 1, vertex.toByteArray());
+        return field.toByteArray();
+    }
+    
+    private static byte[] log(String digest, String message) {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        string(log, 1, digest);
+        bytes(log, 2, timestamp());
+        varint(log, 3 << 3);
+        varint(log, 1);
+        string(log, 4, message);
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        bytes(field, 3, log.toByteArray());
+        return field.toByteArray();
+    }
+    
+    /**
+     * google.protobuf.Timestamp with seconds set
+     */
+    private static byte[] timestamp() {
+        ByteArrayOutputStream timestamp = new ByteArrayOutputStream();
+        varint(timestamp, 1 << 3);
+        varint(timestamp, 1_700_000_000L);
+        return timestamp.toByteArray();
+    }
+    
+    private static void string(ByteArrayOutputStream out, int field, String value) {
+        bytes(out, field, value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void bytes(ByteArrayOutputStream out, int field, byte[] value) {
+        varint(out, field << 3 | 2);
+        varint(out, value.length);
+        out.writeBytes(value);
+    }
+    
+    private static void varint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static byte[] join(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
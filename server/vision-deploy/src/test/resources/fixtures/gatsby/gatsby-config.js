@@ -0,0 +1 @@
+module.exports = { siteMetadata: { title: 'Site' } };